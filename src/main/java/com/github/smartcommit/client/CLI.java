@@ -82,6 +82,40 @@ public class CLI {
       description = "Set the minimal similarity between change, [0.0, 1.0].")
   Double minSimilarity = 0.8D;
 
+  @Parameter(
+      names = {"-jg", "--jgit"},
+      arity = 1,
+      description = "Whether to use the built-in jGit instead of the git command, true/false.")
+  Boolean useJGit = false;
+
+  @Parameter(
+      names = {"-gt", "--git-threads"},
+      arity = 1,
+      description =
+          "Set the number of threads to read the changed files with the git command (1 to read them sequentially), default: the number of processors.")
+  Integer gitThreadNum = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(
+      names = {"-pd", "--parallel-diffs"},
+      arity = 1,
+      description =
+          "Whether to parse the diff of different files in parallel (same hunks, faster for large diffs with multiple cores), true/false.")
+  Boolean parallelDiffParsing = false;
+
+  @Parameter(
+      names = {"-rw", "--reuse-workspace"},
+      arity = 1,
+      description =
+          "Whether to keep the sources in the output dir across runs and only write the changed ones, true/false.")
+  Boolean reuseWorkspace = false;
+
+  @Parameter(
+      names = {"-pg", "--parallel-graphs"},
+      arity = 1,
+      description =
+          "Whether to parse the files in parallel when building the graphs (same graphs, faster with multiple cores), true/false.")
+  Boolean parallelGraphs = false;
+
   public static void main(String[] args) {
     // config the logger
     //    PropertyConfigurator.configure("log4j.properties");
@@ -116,6 +150,11 @@ public class CLI {
       smartCommit.setWeightThreshold(weightThreshold);
       smartCommit.setMinSimilarity(minSimilarity);
       smartCommit.setMaxDistance(granularity); // use the distance on the tree to limit granularity
+      smartCommit.setUseJGit(useJGit);
+      smartCommit.setGitThreadNum(gitThreadNum);
+      smartCommit.setParallelDiffParsing(parallelDiffParsing);
+      smartCommit.setReuseWorkspace(reuseWorkspace);
+      smartCommit.setParallelGraphs(parallelGraphs);
 
       Map<String, Group> groups;
       if (analyzeWorkingTree) {
@@ -174,6 +213,9 @@ public class CLI {
         cli.analyzeWorkingTree = false;
       }
     }
+    if (cli.gitThreadNum < 1) {
+      throw new ParameterException("The number of git threads should be at least 1.");
+    }
   }
 
   private boolean checkRepoValid(String repoPath) {
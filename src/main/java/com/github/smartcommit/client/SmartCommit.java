@@ -4,27 +4,34 @@ import com.github.smartcommit.core.GraphBuilder;
 import com.github.smartcommit.core.GroupGenerator;
 import com.github.smartcommit.core.RepoAnalyzer;
 import com.github.smartcommit.io.DataCollector;
+import com.github.smartcommit.io.JsonSerializer;
+import com.github.smartcommit.io.PatchIndex;
+import com.github.smartcommit.io.ResultsBundle;
+import com.github.smartcommit.io.Workspace;
 import com.github.smartcommit.model.Action;
 import com.github.smartcommit.model.DiffFile;
 import com.github.smartcommit.model.DiffHunk;
 import com.github.smartcommit.model.Group;
 import com.github.smartcommit.model.constant.ChangeType;
 import com.github.smartcommit.model.constant.GroupLabel;
+import com.github.smartcommit.model.constant.FileType;
 import com.github.smartcommit.model.constant.Version;
 import com.github.smartcommit.model.graph.Edge;
 import com.github.smartcommit.model.graph.Node;
 import com.github.smartcommit.util.GitServiceCGit;
 import com.github.smartcommit.util.Utils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.stream.JsonReader;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.jgrapht.Graph;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
@@ -37,6 +44,8 @@ public class SmartCommit {
   private final String repoPath;
   private final String tempDir;
   private Map<String, DiffHunk> id2DiffHunkMap;
+  // raw diffs of the last working tree analysis, to generate patches without reading them back
+  private PatchIndex patchIndex;
 
   // saved for analysis
   Graph<Node, Edge> baseGraph;
@@ -48,6 +57,22 @@ public class SmartCommit {
   private double weightThreshold = 0D;
   private double minSimilarity = 0.8D;
   private int maxDistance = 0;
+  private boolean useJGit = false;
+  // number of threads for the git command to classify and read the changed files
+  private int gitThreadNum = Runtime.getRuntime().availableProcessors();
+  // parse the diff of different files in parallel
+  private boolean parallelDiffParsing = false;
+  // write json results without whitespaces
+  private boolean compactJson = false;
+  // save the results in one bundle file instead of many json files
+  private boolean bundleResults = false;
+  // keep the sources in the temp dir across runs, instead of clearing and writing them all again
+  private boolean reuseWorkspace = false;
+  private long maxWorkspaceBytes = Workspace.DEFAULT_MAX_BYTES;
+  // generate patches in parallel
+  private boolean parallelPatches = false;
+  // parse and visit the files in parallel when building the graphs
+  private boolean parallelGraphs = false;
 
   /**
    * Initial setup for analysis
@@ -65,6 +90,7 @@ public class SmartCommit {
     this.baseGraph = null;
     this.currentGraph = null;
     this.id2DiffHunkMap = new HashMap<>();
+    this.patchIndex = null;
   }
 
   public void setDetectRefactorings(boolean detectRefactorings) {
@@ -87,6 +113,60 @@ public class SmartCommit {
     this.maxDistance = maxDistance;
   }
 
+  public void setUseJGit(boolean useJGit) {
+    this.useJGit = useJGit;
+  }
+
+  public void setGitThreadNum(int gitThreadNum) {
+    this.gitThreadNum = gitThreadNum;
+  }
+
+  public void setParallelDiffParsing(boolean parallelDiffParsing) {
+    this.parallelDiffParsing = parallelDiffParsing;
+  }
+
+  public void setCompactJson(boolean compactJson) {
+    this.compactJson = compactJson;
+  }
+
+  /**
+   * Save the groups, diff files and diff hunks in one indexed file (ResultsBundle.FILE_NAME)
+   * instead of one json file for each of them, only the editable manual groups are still saved as
+   * separate files
+   *
+   * @param bundleResults
+   */
+  public void setBundleResults(boolean bundleResults) {
+    this.bundleResults = bundleResults;
+  }
+
+  /**
+   * Keep the sources of diff files in the temp dir across runs (e.g. repeated analyses of the
+   * working tree from the IDE), so that only the changed ones are written again
+   *
+   * @param reuseWorkspace
+   */
+  public void setReuseWorkspace(boolean reuseWorkspace) {
+    this.reuseWorkspace = reuseWorkspace;
+  }
+
+  /**
+   * Max total size of the sources kept in the workspace, the least recently used are evicted
+   *
+   * @param maxWorkspaceBytes
+   */
+  public void setMaxWorkspaceBytes(long maxWorkspaceBytes) {
+    this.maxWorkspaceBytes = maxWorkspaceBytes;
+  }
+
+  public void setParallelPatches(boolean parallelPatches) {
+    this.parallelPatches = parallelPatches;
+  }
+
+  public void setParallelGraphs(boolean parallelGraphs) {
+    this.parallelGraphs = parallelGraphs;
+  }
+
   public void setId2DiffHunkMap(Map<String, DiffHunk> id2DiffHunkMap) {
     this.id2DiffHunkMap = id2DiffHunkMap;
   }
@@ -100,7 +180,15 @@ public class SmartCommit {
    *
    */
   private void prepareTempDir(String dir) {
-    Utils.clearDir(dir);
+    if (reuseWorkspace) {
+      // only the sources are reused, results are always generated again
+      Workspace.clearExcept(
+          dir,
+          Arrays.asList(
+              Version.BASE.asString(), Version.CURRENT.asString(), Workspace.OBJECTS_DIR));
+    } else {
+      Utils.clearDir(dir);
+    }
     System.setProperty("logs.dir", dir);
     //    PropertyConfigurator.configure("log4j.properties");
   }
@@ -114,6 +202,9 @@ public class SmartCommit {
     prepareTempDir(tempDir);
     // 1. analyze the repo
     RepoAnalyzer repoAnalyzer = new RepoAnalyzer(repoID, repoName, repoPath);
+    repoAnalyzer.setUseJGit(useJGit);
+    repoAnalyzer.setGitThreadNum(gitThreadNum);
+    repoAnalyzer.setParallelDiffParsing(parallelDiffParsing);
     List<DiffFile> diffFiles = repoAnalyzer.analyzeWorkingTree();
     List<DiffHunk> allDiffHunks = repoAnalyzer.getDiffHunks();
     if (diffFiles.isEmpty()) {
@@ -161,10 +252,14 @@ public class SmartCommit {
     }
 
     this.id2DiffHunkMap = repoAnalyzer.getIdToDiffHunkMap();
+    this.patchIndex = PatchIndex.of(diffFiles);
 
     // 2. collect the data into temp dir
     // (1) diff files (2) file id mapping (3) diff hunks
     DataCollector dataCollector = new DataCollector(repoName, tempDir);
+    dataCollector.setCompactJson(compactJson);
+    dataCollector.setWorkspace(
+        reuseWorkspace ? new Workspace(tempDir, maxWorkspaceBytes) : null);
     // dirs that keeps the source code of diff files
     Pair<String, String> srcDirs = dataCollector.collectDiffFilesWorking(diffFiles);
 
@@ -179,7 +274,11 @@ public class SmartCommit {
       results = analyze(diffFiles, allDiffHunks, srcDirs);
     }
 
-    dataCollector.collectDiffHunks(diffFiles, tempDir);
+    if (bundleResults) {
+      dataCollector.describeDiffHunks(diffFiles);
+    } else {
+      dataCollector.collectDiffHunks(diffFiles, tempDir);
+    }
 
     // generate commit message
     if (results != null) {
@@ -189,8 +288,12 @@ public class SmartCommit {
         group.setRecommendedCommitMsgs(generateCommitMsg(group));
       }
       // save the results on disk
-      exportGroupResults(results, tempDir);
-      exportGroupDetails(results, tempDir + File.separator + "details");
+      if (bundleResults) {
+        exportResultsBundle(results, diffFiles, tempDir);
+      } else {
+        exportGroupResults(results, tempDir);
+        exportGroupDetails(results, tempDir + File.separator + "details");
+      }
     }
 
     return results;
@@ -208,6 +311,9 @@ public class SmartCommit {
 
     // 1. analyze the repo
     RepoAnalyzer repoAnalyzer = new RepoAnalyzer(repoID, repoName, repoPath);
+    repoAnalyzer.setUseJGit(useJGit);
+    repoAnalyzer.setGitThreadNum(gitThreadNum);
+    repoAnalyzer.setParallelDiffParsing(parallelDiffParsing);
     List<DiffFile> diffFiles = repoAnalyzer.analyzeCommit(commitID);
     List<DiffHunk> allDiffHunks = repoAnalyzer.getDiffHunks();
 
@@ -217,18 +323,27 @@ public class SmartCommit {
     }
 
     this.id2DiffHunkMap = repoAnalyzer.getIdToDiffHunkMap();
+    // patches are exported from the results of the working tree, not the ones of a commit
+    this.patchIndex = null;
 
     // 2. collect the data into temp dir
     DataCollector dataCollector = new DataCollector(repoName, tempDir);
+    dataCollector.setCompactJson(compactJson);
+    dataCollector.setWorkspace(
+        reuseWorkspace ? new Workspace(tempDir, maxWorkspaceBytes) : null);
     // dirs that keeps the source code of diff files
     Pair<String, String> srcDirs = dataCollector.collectDiffFilesAtCommit(commitID, diffFiles);
 
     Map<String, Group> results = analyze(diffFiles, allDiffHunks, srcDirs);
 
-    dataCollector.collectDiffHunks(diffFiles, resultsDir);
-
-    exportGroupResults(results, resultsDir);
-    exportGroupDetails(results, resultsDir + File.separator + "details");
+    if (bundleResults) {
+      dataCollector.describeDiffHunks(diffFiles);
+      exportResultsBundle(results, diffFiles, resultsDir);
+    } else {
+      dataCollector.collectDiffHunks(diffFiles, resultsDir);
+      exportGroupResults(results, resultsDir);
+      exportGroupDetails(results, resultsDir + File.separator + "details");
+    }
 
     return results;
   }
@@ -247,6 +362,14 @@ public class SmartCommit {
       e.printStackTrace();
     }
 
+    // the graphs are built, contents are loaded again from their sources if needed
+    // keep the java sources to detect refactorings from, instead of loading them all again
+    logger.info("Before releasing file contents: " + describeMemory(diffFiles));
+    diffFiles.stream()
+        .filter(diffFile -> !detectRefactorings || diffFile.getFileType() != FileType.JAVA)
+        .forEach(DiffFile::releaseContents);
+    logger.info("After releasing file contents: " + describeMemory(diffFiles));
+
     // analyze the diff hunks
     GroupGenerator generator =
         new GroupGenerator(
@@ -256,22 +379,48 @@ public class SmartCommit {
     generator.enableRefDetection(detectRefactorings);
     generator.enableNonJavaChanges(processNonJavaChanges);
     generator.buildDiffGraph();
-    return generator.generateGroups(weightThreshold);
+    Map<String, Group> results = generator.generateGroups(weightThreshold);
+    diffFiles.forEach(DiffFile::releaseContents);
+    return results;
+  }
+
+  /**
+   * Describe the memory held by file contents and the used heap
+   *
+   * @return
+   */
+  private static String describeMemory(List<DiffFile> diffFiles) {
+    long contentSize = 0L;
+    for (DiffFile diffFile : diffFiles) {
+      contentSize += diffFile.getLoadedContentSize();
+    }
+    Runtime runtime = Runtime.getRuntime();
+    return "contents "
+        + (contentSize >> 10)
+        + "KiB in "
+        + diffFiles.size()
+        + " files, heap used "
+        + ((runtime.totalMemory() - runtime.freeMemory()) >> 20)
+        + "MiB";
   }
 
   /**
    * Build the Entity Reference Graphs for base and current versions
    *
+   * @param srcDirs dirs of the collected files
    */
   private void buildRefGraphs(List<DiffFile> diffFiles, Pair<String, String> srcDirs)
       throws ExecutionException, InterruptedException, TimeoutException {
+    GraphBuilder baseBuilder = new GraphBuilder(srcDirs.getLeft(), diffFiles);
+    GraphBuilder currentBuilder = new GraphBuilder(srcDirs.getRight(), diffFiles);
+    baseBuilder.setParallelEnabled(parallelGraphs);
+    currentBuilder.setParallelEnabled(parallelGraphs);
+
     ExecutorService executorService = Executors.newFixedThreadPool(2);
-    Future<Graph<Node, Edge>> baseBuilder =
-        executorService.submit(new GraphBuilder(srcDirs.getLeft(), diffFiles));
-    Future<Graph<Node, Edge>> currentBuilder =
-        executorService.submit(new GraphBuilder(srcDirs.getRight(), diffFiles));
-    baseGraph = baseBuilder.get(60 * 10, TimeUnit.SECONDS);
-    currentGraph = currentBuilder.get(60 * 10, TimeUnit.SECONDS);
+    Future<Graph<Node, Edge>> baseFuture = executorService.submit(baseBuilder);
+    Future<Graph<Node, Edge>> currentFuture = executorService.submit(currentBuilder);
+    baseGraph = baseFuture.get(60 * 10, TimeUnit.SECONDS);
+    currentGraph = currentFuture.get(60 * 10, TimeUnit.SECONDS);
     //            String baseDot = GraphExporter.exportAsDotWithType(baseGraph);
     //            String currentDot = GraphExporter.exportAsDotWithType(currentGraph);
     executorService.shutdown();
@@ -340,19 +489,49 @@ public class SmartCommit {
    * @param outputDir output directory path
    */
   public void exportGroupResults(Map<String, Group> generatedGroups, String outputDir) {
-    Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    JsonSerializer serializer = JsonSerializer.of(compactJson);
     for (Map.Entry<String, Group> entry : generatedGroups.entrySet()) {
-      Utils.writeStringToFile(
-          gson.toJson(entry.getValue()),
+      String generatedPath =
           outputDir
               + File.separator
               + "generated_groups"
               + File.separator
               + entry.getKey()
-              + ".json");
+              + ".json";
+      if (serializer.writeToFile(entry.getValue(), generatedPath)) {
+        // any manual adjustments will be made on this copy
+        JsonSerializer.copyFile(
+            generatedPath,
+            outputDir
+                + File.separator
+                + "manual_groups"
+                + File.separator
+                + entry.getKey()
+                + ".json");
+      }
+    }
+  }
+
+  /**
+   * Save the groups and diffs in one bundle file, plus the manual groups to be adjusted
+   *
+   * @param generatedGroups generated groups <id:group>
+   * @param diffFiles
+   * @param outputDir output directory path
+   */
+  public void exportResultsBundle(
+      Map<String, Group> generatedGroups, List<DiffFile> diffFiles, String outputDir) {
+    try {
+      ResultsBundle.write(
+          generatedGroups, diffFiles, outputDir + File.separator + ResultsBundle.FILE_NAME);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    JsonSerializer serializer = JsonSerializer.of(compactJson);
+    for (Map.Entry<String, Group> entry : generatedGroups.entrySet()) {
       // any manual adjustments will be made on this copy
-      Utils.writeStringToFile(
-          gson.toJson(entry.getValue()),
+      serializer.writeToFile(
+          entry.getValue(),
           outputDir + File.separator + "manual_groups" + File.separator + entry.getKey() + ".json");
     }
   }
@@ -364,38 +543,42 @@ public class SmartCommit {
    * @param outputDir output directory path
    */
   public void exportGroupDetails(Map<String, Group> results, String outputDir) {
-    Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    JsonSerializer serializer = JsonSerializer.of(compactJson);
     List<String> groupedDiffHunks = new ArrayList<>();
     for (Map.Entry<String, Group> entry : results.entrySet()) {
       String path = outputDir + File.separator + entry.getKey() + ".json";
-      StringBuilder builder = new StringBuilder();
-      builder.append(entry.getValue().getIntentLabel()).append("\n");
-      builder.append(entry.getValue().getCommitMsg()).append("\n");
-      // check for duplication
-      for (String id : entry.getValue().getDiffHunkIDs()) {
-        if (groupedDiffHunks.contains(id)) {
-          DiffHunk diffHunk = id2DiffHunkMap.get(id.split(":")[1]);
-          logger.error("Duplicate DiffHunk: " + diffHunk.getUniqueIndex());
-        }
-        groupedDiffHunks.add(id);
-        String[] pair = id.split(":");
-        String diffHunkID;
-        if (pair.length == 2) {
-          diffHunkID = pair[1];
-        } else if (pair.length == 1) {
-          diffHunkID = pair[0];
-        } else {
-          logger.error("Invalid id: " + id);
-          continue;
+      try (Writer writer = JsonSerializer.newFileWriter(path)) {
+        writer.append(String.valueOf(entry.getValue().getIntentLabel())).append("\n");
+        writer.append(entry.getValue().getCommitMsg()).append("\n");
+        // check for duplication
+        for (String id : entry.getValue().getDiffHunkIDs()) {
+          if (groupedDiffHunks.contains(id)) {
+            DiffHunk diffHunk = id2DiffHunkMap.get(id.split(":")[1]);
+            logger.error("Duplicate DiffHunk: " + diffHunk.getUniqueIndex());
+          }
+          groupedDiffHunks.add(id);
+          String[] pair = id.split(":");
+          String diffHunkID;
+          if (pair.length == 2) {
+            diffHunkID = pair[1];
+          } else if (pair.length == 1) {
+            diffHunkID = pair[0];
+          } else {
+            logger.error("Invalid id: " + id);
+            continue;
+          }
+          writer.append("------------").append("\n");
+          DiffHunk diffHunk = id2DiffHunkMap.get(diffHunkID);
+          writer.append(diffHunk.getUniqueIndex()).append("\n");
+          writer.append(diffHunk.getDescription()).append("\n");
+          serializer.toJson(diffHunk.getBaseHunk(), writer);
+          writer.append("\n");
+          serializer.toJson(diffHunk.getCurrentHunk(), writer);
+          writer.append("\n");
         }
-        builder.append("------------").append("\n");
-        DiffHunk diffHunk = id2DiffHunkMap.get(diffHunkID);
-        builder.append(diffHunk.getUniqueIndex()).append("\n");
-        builder.append(diffHunk.getDescription()).append("\n");
-        builder.append(gson.toJson(diffHunk.getBaseHunk())).append("\n");
-        builder.append(gson.toJson(diffHunk.getCurrentHunk())).append("\n");
+      } catch (IOException e) {
+        e.printStackTrace();
       }
-      Utils.writeStringToFile(builder.toString(), path);
     }
 
     if (groupedDiffHunks.size() != id2DiffHunkMap.keySet().size()) {
@@ -408,61 +591,94 @@ public class SmartCommit {
   }
 
   /**
-   * Read selected group json file, generate patches that can be applied incrementally for
+   * Read selected group json files, generate patches that can be applied incrementally for
    * inter-versions
    *
+   * @param selectedGroupIDs null to export all groups
+   * @throws FileNotFoundException if the manual groups do not exist
    */
   public void exportPatches(List<String> selectedGroupIDs) throws FileNotFoundException {
     String manualGroupsDir = tempDir + File.separator + "manual_groups";
-    String fileDiffsDir = tempDir + File.separator + "diffs";
     String patchesDir = tempDir + File.separator + "patches";
+    if (!new File(manualGroupsDir).exists()) {
+      throw new FileNotFoundException(manualGroupsDir);
+    }
     Utils.clearDir(patchesDir);
 
-    List<String> groupFilePaths = Utils.listAllJsonFilePaths(manualGroupsDir);
-    Gson gson = new Gson();
-    for (String path : groupFilePaths) {
-      StringBuilder builder = new StringBuilder();
-      // read and parse group json file
-      JsonReader reader = new JsonReader(new FileReader(path));
-      Group group = gson.fromJson(reader, Group.class);
-      // put diff hunks within the same file together
-      Map<String, List<String>> fileID2hunkIDsMap = new HashMap<>();
-      for (String id : group.getDiffHunkIDs()) {
-        Pair<String, String> idPair = Utils.parseUUIDs(id);
-        String fileID = idPair.getLeft();
-        String diffHunkID = idPair.getRight();
-        if (fileID2hunkIDsMap.containsKey(fileID)) {
-          fileID2hunkIDsMap.get(fileID).add(diffHunkID);
-        } else {
-          List<String> temp = new ArrayList<>();
-          temp.add(diffHunkID);
-          fileID2hunkIDsMap.put(fileID, temp);
+    // read the groups, which may be edited by users
+    List<Group> groups = new ArrayList<>();
+    for (String path : Utils.listAllJsonFilePaths(manualGroupsDir)) {
+      try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+        Group group = JsonSerializer.COMPACT.fromJson(reader, Group.class);
+        if (selectedGroupIDs == null || selectedGroupIDs.contains(group.getGroupID())) {
+          groups.add(group);
         }
+      } catch (IOException e) {
+        e.printStackTrace();
       }
+    }
 
-      // read and parse the diff json by file id
-      for (Map.Entry<String, List<String>> entry : fileID2hunkIDsMap.entrySet()) {
-        String fileDiffPath = fileDiffsDir + File.separator + entry.getKey() + ".json";
-        reader = new JsonReader(new FileReader(fileDiffPath));
-        DiffFile diffFile = gson.fromJson(reader, DiffFile.class);
-        // get headers and raw diffs
-        builder
-            .append(String.join(System.lineSeparator(), diffFile.getRawHeaders()))
-            .append(System.lineSeparator());
-        for (String diffHunkID : entry.getValue()) {
-          DiffHunk diffHunk = diffFile.getDiffHunksMap().getOrDefault(diffHunkID, null);
-          if (diffHunk != null) {
-            builder
-                .append(String.join(System.lineSeparator(), diffHunk.getRawDiffs()))
-                .append(System.lineSeparator());
-          } else {
-            logger.error("Null diffHunk with id: " + diffHunkID);
-          }
-        }
+    // save patches in temp dir
+    for (Map.Entry<String, String> entry : generatePatches(groups).entrySet()) {
+      String resultPath = patchesDir + File.separator + entry.getKey() + ".patch";
+      Utils.writeStringToFile(entry.getValue(), resultPath);
+    }
+  }
+
+  /**
+   * Generate the patches of groups in memory, without writing them
+   *
+   * @param groups
+   * @return groupID : patch, in the order of the groups
+   */
+  public Map<String, String> generatePatches(Collection<Group> groups) {
+    PatchIndex index = patchIndex != null ? patchIndex : loadPatchIndex(groups);
+    return index.generatePatches(groups, parallelPatches);
+  }
+
+  /**
+   * Load the diff files that the groups touch from the temp dir, each for once
+   *
+   * @param groups
+   * @return
+   */
+  private PatchIndex loadPatchIndex(Collection<Group> groups) {
+    Set<String> fileIDs = PatchIndex.collectFileIDs(groups);
+    // read the diffs from the bundle if the results are bundled
+    String bundlePath = tempDir + File.separator + ResultsBundle.FILE_NAME;
+    if (new File(bundlePath).exists()) {
+      try (ResultsBundle bundle = ResultsBundle.open(bundlePath)) {
+        return PatchIndex.load(fileIDs, fileID -> readDiffFile(bundle, fileID), parallelPatches);
+      } catch (IOException e) {
+        e.printStackTrace();
       }
-      // save patches in temp dir
-      String resultPath = patchesDir + File.separator + group.getGroupID() + ".patch";
-      Utils.writeStringToFile(builder.toString(), resultPath);
+    }
+    String fileDiffsDir = tempDir + File.separator + "diffs";
+    return PatchIndex.load(
+        fileIDs,
+        fileID -> readDiffFile(fileDiffsDir + File.separator + fileID + ".json"),
+        parallelPatches);
+  }
+
+  private DiffFile readDiffFile(ResultsBundle bundle, String fileID) {
+    try {
+      DiffFile diffFile = bundle.getDiffFile(fileID);
+      if (diffFile == null) {
+        logger.error("Null diffFile with id: " + fileID);
+      }
+      return diffFile;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private DiffFile readDiffFile(String path) {
+    try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+      return JsonSerializer.COMPACT.fromJson(reader, DiffFile.class);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
     }
   }
 
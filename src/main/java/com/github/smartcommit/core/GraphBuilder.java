@@ -11,11 +11,13 @@ import com.github.smartcommit.model.entity.FieldInfo;
 import com.github.smartcommit.model.entity.HunkInfo;
 import com.github.smartcommit.model.entity.MethodInfo;
 import com.github.smartcommit.model.graph.Edge;
+import com.github.smartcommit.model.graph.EdgeAggregator;
 import com.github.smartcommit.model.graph.EdgeType;
 import com.github.smartcommit.model.graph.Node;
 import com.github.smartcommit.model.graph.NodeType;
 import com.github.smartcommit.util.JDTService;
 import com.github.smartcommit.util.NameResolver;
+import com.github.smartcommit.util.SuffixTrie;
 import com.github.smartcommit.util.Utils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -28,12 +30,18 @@ import org.jgrapht.graph.builder.GraphTypeBuilder;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /** Build the semantic context graph of DiffHunks in Java files. */
 public class GraphBuilder implements Callable<Graph<Node, Edge>> {
 
   private static final Logger logger = Logger.getLogger(GraphBuilder.class);
+  private static final Pattern PACKAGE_PATTERN =
+      Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
   private static final String JRE_PATH =
       System.getProperty("java.home") + File.separator + "lib/rt.jar";
   //  private static final String[] CLASS_PATH =
@@ -43,6 +51,17 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
   private List<DiffFile> diffFiles;
   private EntityPool entityPool;
   private Graph<Node, Edge> graph;
+  private boolean parallelEnabled = false;
+  // number of batches to parse in parallel
+  private int batchNum = Runtime.getRuntime().availableProcessors();
+  // whether the bindings of all files come from the same parser, so that they can be matched as is
+  private boolean bindingsShared = true;
+  // version : diff files by relative paths
+  private Map<Version, SuffixTrie<DiffFile>> diffFileTries = new EnumMap<>(Version.class);
+  // fileIndex : imported types in hunks by suffixes, built when the edges are created
+  private Map<Integer, SuffixTrie<HunkInfo>> importTries = new HashMap<>();
+  // reference edges counted before added into the graph
+  private EdgeAggregator edgeAggregator = new EdgeAggregator();
 
   public GraphBuilder(String srcDir) {
     this.srcDir = srcDir;
@@ -56,6 +75,26 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
     this.graph = initGraph();
   }
 
+  /**
+   * Parse and visit the files in parallel, then create the nodes and edges in the same order as
+   * the sequential mode, so that the graph (including ids) is the same
+   *
+   * @param parallelEnabled
+   */
+  public void setParallelEnabled(boolean parallelEnabled) {
+    this.parallelEnabled = parallelEnabled;
+  }
+
+  /**
+   * Split the files into the given number of batches in the parallel mode, one per processor by
+   * default
+   *
+   * @param batchNum
+   */
+  public void setBatchNum(int batchNum) {
+    this.batchNum = batchNum;
+  }
+
   /**
    * Initialize an empty Graph
    *
@@ -77,85 +116,24 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
    */
   @Override
   public Graph<Node, Edge> call() {
-    // get all java files by extension in the source directory
-    Collection<File> javaFiles = FileUtils.listFiles(new File(srcDir), new String[] {"java"}, true);
-    Set<String> srcPathSet = new HashSet<>();
-    Set<String> srcFolderSet = new HashSet<>();
-    for (File javaFile : javaFiles) {
-      String srcPath = javaFile.getAbsolutePath();
-      String srcFolderPath = javaFile.getParentFile().getAbsolutePath();
-      srcPathSet.add(srcPath);
-      srcFolderSet.add(srcFolderPath);
-    }
-
-    String[] srcPaths = new String[srcPathSet.size()];
-    srcPathSet.toArray(srcPaths);
-    NameResolver.setSrcPathSet(srcPathSet);
-    String[] srcFolderPaths = new String[srcFolderSet.size()];
-    srcFolderSet.toArray(srcFolderPaths);
-    String[] encodings = new String[srcFolderPaths.length];
-    Arrays.fill(encodings, "UTF-8");
-
-    ASTParser parser = ASTParser.newParser(8);
-    Map<String, String> options = JavaCore.getOptions();
-    options.put(JavaCore.COMPILER_COMPLIANCE, "8");
-    options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_1_8);
-    options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
-    options.put(JavaCore.COMPILER_DOC_COMMENT_SUPPORT, JavaCore.ENABLED);
-    JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
-    parser.setCompilerOptions(options);
-
-    //        parser.setProject(WorkspaceUtilities.javaProject);
-    parser.setKind(ASTParser.K_COMPILATION_UNIT);
-    parser.setEnvironment(new String[] {JRE_PATH}, srcFolderPaths, encodings, true);
-    parser.setResolveBindings(true);
-    parser.setBindingsRecovery(true);
-
     // Vertex: create nodes and nesting edges while visiting the ASTs
-    encodings = new String[srcPaths.length];
-    Arrays.fill(encodings, "UTF-8");
-    parser.createASTs(
-        srcPaths,
-        encodings,
-        new String[] {},
-        new FileASTRequestor() {
-          @Override
-          public void acceptAST(String sourceFilePath, CompilationUnit cu) {
-            try {
-              // get the corresponding diff file
-              Version version = Version.BASE;
-              if (sourceFilePath.contains(
-                  File.separator + Version.CURRENT.asString() + File.separator)) {
-                version = Version.CURRENT;
-              }
-              Optional<DiffFile> diffFileOpt = getDiffFileByPath(sourceFilePath, version);
-              if (diffFileOpt.isPresent()) {
-                DiffFile diffFile = diffFileOpt.get();
-                Map<String, Pair<Integer, Integer>> hunksPosition =
-                    computeHunksPosition(diffFile, cu, version);
-
-                // collect type/field/method infos and create nodes
-                JDTService jdtService =
-                    new JDTService(FileUtils.readFileToString(new File(sourceFilePath)));
-                cu.accept(new MemberVisitor(diffFile.getIndex(), entityPool, graph, jdtService));
-
-                // collect hunk infos and create nodes
-                createHunkInfos(version, diffFile.getIndex(), hunksPosition, cu, jdtService);
-              }
-            } catch (Exception e) {
-              e.printStackTrace();
-            }
-          }
-        },
-        null);
+    indexDiffFiles();
+    parseSrcDir();
 
     // Edge: create inter-entity edges with the EntityPool and EntityInfo
     Map<String, MethodInfo> methodDecMap = entityPool.methodInfoMap;
     Map<String, FieldInfo> fieldDecMap = entityPool.fieldInfoMap;
     Map<String, HunkInfo> hunkMap = entityPool.hunkInfoMap;
-    Map<IMethodBinding, MethodInfo> methodBindingMap = new HashMap<>();
+    // bindings from different batches are different objects for the same method, so use keys
+    Function<IMethodBinding, Object> bindingKey =
+        bindingsShared ? binding -> binding : IMethodBinding::getKey;
+    Map<Object, MethodInfo> methodBindingMap = new HashMap<>();
     for (MethodInfo methodInfo : entityPool.methodInfoMap.values()) {
-      methodBindingMap.put(methodInfo.methodBinding, methodInfo);
+      Object key =
+          methodInfo.methodBinding == null ? null : bindingKey.apply(methodInfo.methodBinding);
+      if (key != null) {
+        methodBindingMap.put(key, methodInfo);
+      }
     }
 
     // 0. edges from type/interface/enum/annotation declaration
@@ -167,7 +145,7 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
     for (DeclarationInfo info : topDecMap.values()) {
       // method invocation
       for (IMethodBinding methodCall : info.methodCalls) {
-        MethodInfo targetMethodInfo = methodBindingMap.get(methodCall);
+        MethodInfo targetMethodInfo = methodBindingMap.get(bindingKey.apply(methodCall));
         if (targetMethodInfo != null) {
           createEdge(info.node, targetMethodInfo.node, EdgeType.CALL);
         }
@@ -193,7 +171,7 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
       Node methodDeclNode = methodInfo.node;
       // method invocation
       for (IMethodBinding methodCall : methodInfo.methodCalls) {
-        MethodInfo targetMethodInfo = methodBindingMap.get(methodCall);
+        MethodInfo targetMethodInfo = methodBindingMap.get(bindingKey.apply(methodCall));
         if (targetMethodInfo != null) {
           createEdge(methodDeclNode, targetMethodInfo.node, EdgeType.CALL);
         }
@@ -245,7 +223,7 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
 
       // method invocation
       for (IMethodBinding methodCall : fieldInfo.methodCalls) {
-        MethodInfo targetMethodInfo = methodBindingMap.get(methodCall);
+        MethodInfo targetMethodInfo = methodBindingMap.get(bindingKey.apply(methodCall));
         if (targetMethodInfo != null) {
           createEdge(fieldDeclNode, targetMethodInfo.node, EdgeType.CALL);
         }
@@ -273,7 +251,7 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
       Node hunkNode = hunkInfo.node;
       // method invocation
       for (IMethodBinding methodCall : hunkInfo.methodCalls) {
-        MethodInfo targetMethodInfo = methodBindingMap.get(methodCall);
+        MethodInfo targetMethodInfo = methodBindingMap.get(bindingKey.apply(methodCall));
         if (targetMethodInfo != null) {
           createEdge(hunkNode, targetMethodInfo.node, EdgeType.CALL);
         }
@@ -296,41 +274,21 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
       }
     }
 
+    edgeAggregator.materialize(graph);
     return graph;
   }
 
   /**
    * Create an (logical) edge in the graph: if not exists, create; else increase the weight by one
    *
+   * <p>Edges are counted first and added into the graph at the end of the build.
+   *
    * @param source
    * @param target
    * @param edgeType
-   * @return whether the operation succeeds
    */
-  private boolean createEdge(Node source, Node target, EdgeType edgeType) {
-    int edgeCount = graph.edgeSet().size();
-    boolean success = false;
-    Set<Edge> edges = graph.getAllEdges(source, target);
-    if (edges.isEmpty()) {
-      success = graph.addEdge(source, target, new Edge(edgeCount++, edgeType));
-    } else {
-      // find the edge with the same type and increase the weight by one
-      for (Edge e : edges) {
-        if (e.getType().equals(edgeType)) {
-          Integer lastWeight = e.getWeight();
-          e.increaseWeight();
-          success = (e.getWeight() - lastWeight == 1);
-        }
-      }
-      // allow for multiple edges with different types
-      if (!success) {
-        success = graph.addEdge(source, target, new Edge(edgeCount++, edgeType));
-      }
-    }
-    if (!success) {
-      logger.warn("Unsuccessful edge creation: " + edgeType);
-    }
-    return success;
+  private void createEdge(Node source, Node target, EdgeType edgeType) {
+    edgeAggregator.add(source, target, edgeType);
   }
 
   /**
@@ -356,11 +314,18 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
       if (type2HunkMap.containsKey(type)) {
         return Optional.of(type2HunkMap.get(type).node);
       } else {
-        // unqualified type
-        for (Map.Entry<String, HunkInfo> entry : type2HunkMap.entrySet()) {
-          if (entry.getKey().endsWith(type)) {
-            return Optional.of(entry.getValue().node);
-          }
+        // unqualified type, matched in the order of the map as the scan over its entries did
+        SuffixTrie<HunkInfo> trie =
+            importTries.computeIfAbsent(
+                fileIndex,
+                index -> {
+                  SuffixTrie<HunkInfo> importTrie = new SuffixTrie<>();
+                  type2HunkMap.forEach(importTrie::put);
+                  return importTrie;
+                });
+        HunkInfo hunkInfo = trie.getFirstEndingWith(type);
+        if (hunkInfo != null) {
+          return Optional.of(hunkInfo.node);
         }
       }
     }
@@ -371,6 +336,7 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
    *
    * @param hunksPosition
    * @param cu
+   * @param merger to create nodes and edges in the graph
    * @return
    */
   private void createHunkInfos(
@@ -378,7 +344,8 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
       Integer fileIndex,
       Map<String, Pair<Integer, Integer>> hunksPosition,
       CompilationUnit cu,
-      JDTService jdtService) {
+      JDTService jdtService,
+      Executor merger) {
     Map<String, HunkInfo> importType2HunkMap = new HashMap<>();
     for (String index : hunksPosition.keySet()) {
       // for each diff hunk, find and analyze covered nodes, create hunk node and info
@@ -425,16 +392,7 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
         }
       }
 
-      int nodeID = graph.vertexSet().size() + 1;
-      int edgeID = graph.edgeSet().size() + 1;
-      Node hunkNode = new Node(nodeID, NodeType.HUNK, hunkInfo.uniqueName(), hunkInfo.uniqueName());
-      hunkNode.isInDiffHunk = true;
-      hunkNode.diffHunkIndex = index;
-
-      hunkInfo.node = hunkNode;
-      graph.addVertex(hunkNode);
-
-      boolean existInGraph = false;
+      List<DeclarationRef> declarationRefs = new ArrayList<>();
       for (ASTNode astNode : coveredNodes) {
         if (astNode instanceof ImportDeclaration) {
           // save type defs in import statements
@@ -445,268 +403,464 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
         } else if (astNode instanceof Expression) {
           jdtService.parseExpression(hunkInfo, (Expression) astNode);
         } else if (astNode instanceof BodyDeclaration) {
-          Optional<Node> nodeOpt = Optional.empty();
-          // find the corresponding nodeOpt in the entity pool (expected to exist)
-          switch (astNode.getNodeType()) {
-              // TODO: for type declarations, members should all be in diff
-            case ASTNode.ANNOTATION_TYPE_DECLARATION:
-              ITypeBinding annoBinding = ((AnnotationTypeDeclaration) astNode).resolveBinding();
-              if (annoBinding != null && annoBinding.getQualifiedName().contains(".")) {
-                nodeOpt =
-                    findNodeByNameAndType(
-                        annoBinding.getQualifiedName(), NodeType.ANNOTATION, true);
-              } else {
-                nodeOpt =
-                    findNodeByNameAndType(
-                        ((AnnotationTypeDeclaration) astNode).getName().getIdentifier(),
-                        NodeType.ANNOTATION,
-                        false);
-              }
-              if (nodeOpt.isPresent()) {
-                existInGraph = true;
-                Node node = nodeOpt.get();
-                node.isInDiffHunk = true;
-                node.diffHunkIndex = index;
-
-                hunkInfo.typeDefs.add(node.getQualifiedName());
-                graph.addEdge(hunkNode, node, new Edge(edgeID, EdgeType.CONTAIN));
-
-              } else {
-                logger.warn("ANNOTATION_TYPE_DECLARATION Not Found: " + astNode);
-              }
-              break;
-            case ASTNode.ANNOTATION_TYPE_MEMBER_DECLARATION:
-              IMethodBinding memberBinding =
-                  ((AnnotationTypeMemberDeclaration) astNode).resolveBinding();
-              if (memberBinding != null
-                  && memberBinding.getDeclaringClass().getQualifiedName().contains(".")) {
-                nodeOpt =
-                    findNodeByNameAndType(
-                        memberBinding.getDeclaringClass().getQualifiedName()
-                            + ":"
-                            + memberBinding.getName(),
-                        NodeType.ANNOTATION_MEMBER,
-                        true);
-              } else {
-                nodeOpt =
-                    findNodeByNameAndType(
-                        ((AnnotationTypeMemberDeclaration) astNode).getName().getIdentifier(),
-                        NodeType.ANNOTATION_MEMBER,
-                        false);
-              }
+          collectDeclarationRefs(astNode, jdtService, declarationRefs);
+        }
+      }
+      String parentIdentifier = findParentIdentifier(coveredNodes);
+
+      merger.execute(
+          () -> {
+            int nodeID = graph.vertexSet().size() + 1;
+            int edgeID = graph.edgeSet().size() + 1;
+            Node hunkNode =
+                new Node(nodeID, NodeType.HUNK, hunkInfo.uniqueName(), hunkInfo.uniqueName());
+            hunkNode.isInDiffHunk = true;
+            hunkNode.diffHunkIndex = index;
+
+            hunkInfo.node = hunkNode;
+            graph.addVertex(hunkNode);
+            entityPool.nodeIndex.add(hunkNode);
+
+            boolean existInGraph = false;
+            for (DeclarationRef ref : declarationRefs) {
+              // find the corresponding node in the entity pool (expected to exist)
+              Optional<Node> nodeOpt =
+                  findNodeByNameAndType(ref.name, ref.nodeType, ref.isQualifiedName);
               if (nodeOpt.isPresent()) {
                 existInGraph = true;
                 Node node = nodeOpt.get();
                 node.isInDiffHunk = true;
                 node.diffHunkIndex = index;
 
+                switch (ref.nodeType) {
+                  case ANNOTATION:
+                  case ENUM:
+                  case CLASS:
+                  case INTERFACE:
+                    hunkInfo.typeDefs.add(node.getQualifiedName());
+                    break;
+                  case ENUM_CONSTANT: // consider constant as fields
+                  case FIELD:
+                    hunkInfo.fieldDefs.add(node.getQualifiedName());
+                    break;
+                  case METHOD:
+                    hunkInfo.methodDefs.add(node.getQualifiedName());
+                    break;
+                }
                 graph.addEdge(hunkNode, node, new Edge(edgeID, EdgeType.CONTAIN));
               } else {
-                logger.warn("ANNOTATION_TYPE_MEMBER_DECLARATION Not Found: " + astNode);
+                logger.warn(ref.label + " Not Found: " + ref.astNode);
               }
-              break;
-            case ASTNode.ENUM_DECLARATION:
-              ITypeBinding enumBinding = ((EnumDeclaration) astNode).resolveBinding();
-              if (enumBinding != null && enumBinding.getQualifiedName().contains(".")) {
-                nodeOpt =
-                    findNodeByNameAndType(enumBinding.getQualifiedName(), NodeType.ENUM, true);
-              } else {
-                nodeOpt =
-                    findNodeByNameAndType(
-                        ((AbstractTypeDeclaration) astNode).getName().getIdentifier(),
-                        NodeType.ENUM,
-                        false);
+            }
+            // create the HunkInfo node for hunks inside entities
+            if (!existInGraph) {
+              // find parent entity node (expected to exist) and create the contain edge
+              if (parentIdentifier != null) {
+                Optional<Node> parentNodeOpt =
+                    entityPool.nodeIndex.findByIdentifier(parentIdentifier);
+                if (parentNodeOpt.isPresent()) {
+                  graph.addEdge(parentNodeOpt.get(), hunkNode, new Edge(edgeID, EdgeType.CONTAIN));
+                }
               }
-              if (nodeOpt.isPresent()) {
-                existInGraph = true;
-                Node node = nodeOpt.get();
-                node.isInDiffHunk = true;
-                node.diffHunkIndex = index;
 
-                hunkInfo.typeDefs.add(node.getQualifiedName());
-                graph.addEdge(hunkNode, node, new Edge(edgeID, EdgeType.CONTAIN));
-              } else {
-                logger.warn("ENUM_DECLARATION Not Found: " + astNode);
-              }
-              break;
-            case ASTNode.TYPE_DECLARATION:
-              ITypeBinding typeBinding = ((TypeDeclaration) astNode).resolveBinding();
-              NodeType type =
-                  ((TypeDeclaration) astNode).isInterface() ? NodeType.INTERFACE : NodeType.CLASS;
-              if (typeBinding != null && typeBinding.getQualifiedName().contains(".")) {
-                nodeOpt = findNodeByNameAndType(typeBinding.getQualifiedName(), type, true);
-              } else {
-                nodeOpt =
-                    findNodeByNameAndType(
-                        ((TypeDeclaration) astNode).getName().getIdentifier(), type, false);
+              // save imported types into the entityPool
+              if (!hunkInfo.typeDefs.isEmpty()) {
+                for (String type : hunkInfo.typeDefs) {
+                  importType2HunkMap.put(type, hunkInfo);
+                }
               }
+            }
 
-              if (nodeOpt.isPresent()) {
-                existInGraph = true;
-                Node node = nodeOpt.get();
-                node.isInDiffHunk = true;
-                node.diffHunkIndex = index;
+            // add HunkInfo into the pool
+            entityPool.hunkInfoMap.put(hunkInfo.uniqueName(), hunkInfo);
+          });
+    }
+    merger.execute(
+        () -> {
+          if (!importType2HunkMap.isEmpty()) {
+            entityPool.importInfoMap.put(fileIndex, importType2HunkMap);
+          }
+        });
+  }
 
-                hunkInfo.typeDefs.add(node.getQualifiedName());
-                graph.addEdge(hunkNode, node, new Edge(edgeID, EdgeType.CONTAIN));
+  /**
+   * Collect the names to find the nodes of a declaration covered by a hunk
+   *
+   * @param astNode
+   * @param jdtService
+   * @param refs
+   */
+  private void collectDeclarationRefs(
+      ASTNode astNode, JDTService jdtService, List<DeclarationRef> refs) {
+    switch (astNode.getNodeType()) {
+        // TODO: for type declarations, members should all be in diff
+      case ASTNode.ANNOTATION_TYPE_DECLARATION:
+        ITypeBinding annoBinding = ((AnnotationTypeDeclaration) astNode).resolveBinding();
+        if (annoBinding != null && annoBinding.getQualifiedName().contains(".")) {
+          refs.add(
+              new DeclarationRef(
+                  annoBinding.getQualifiedName(),
+                  NodeType.ANNOTATION,
+                  true,
+                  "ANNOTATION_TYPE_DECLARATION",
+                  astNode));
+        } else {
+          refs.add(
+              new DeclarationRef(
+                  ((AnnotationTypeDeclaration) astNode).getName().getIdentifier(),
+                  NodeType.ANNOTATION,
+                  false,
+                  "ANNOTATION_TYPE_DECLARATION",
+                  astNode));
+        }
+        break;
+      case ASTNode.ANNOTATION_TYPE_MEMBER_DECLARATION:
+        IMethodBinding memberBinding = ((AnnotationTypeMemberDeclaration) astNode).resolveBinding();
+        if (memberBinding != null
+            && memberBinding.getDeclaringClass().getQualifiedName().contains(".")) {
+          refs.add(
+              new DeclarationRef(
+                  memberBinding.getDeclaringClass().getQualifiedName()
+                      + ":"
+                      + memberBinding.getName(),
+                  NodeType.ANNOTATION_MEMBER,
+                  true,
+                  "ANNOTATION_TYPE_MEMBER_DECLARATION",
+                  astNode));
+        } else {
+          refs.add(
+              new DeclarationRef(
+                  ((AnnotationTypeMemberDeclaration) astNode).getName().getIdentifier(),
+                  NodeType.ANNOTATION_MEMBER,
+                  false,
+                  "ANNOTATION_TYPE_MEMBER_DECLARATION",
+                  astNode));
+        }
+        break;
+      case ASTNode.ENUM_DECLARATION:
+        ITypeBinding enumBinding = ((EnumDeclaration) astNode).resolveBinding();
+        if (enumBinding != null && enumBinding.getQualifiedName().contains(".")) {
+          refs.add(
+              new DeclarationRef(
+                  enumBinding.getQualifiedName(),
+                  NodeType.ENUM,
+                  true,
+                  "ENUM_DECLARATION",
+                  astNode));
+        } else {
+          refs.add(
+              new DeclarationRef(
+                  ((AbstractTypeDeclaration) astNode).getName().getIdentifier(),
+                  NodeType.ENUM,
+                  false,
+                  "ENUM_DECLARATION",
+                  astNode));
+        }
+        break;
+      case ASTNode.TYPE_DECLARATION:
+        ITypeBinding typeBinding = ((TypeDeclaration) astNode).resolveBinding();
+        NodeType type =
+            ((TypeDeclaration) astNode).isInterface() ? NodeType.INTERFACE : NodeType.CLASS;
+        if (typeBinding != null && typeBinding.getQualifiedName().contains(".")) {
+          refs.add(
+              new DeclarationRef(
+                  typeBinding.getQualifiedName(), type, true, "TYPE_DECLARATION", astNode));
+        } else {
+          refs.add(
+              new DeclarationRef(
+                  ((TypeDeclaration) astNode).getName().getIdentifier(),
+                  type,
+                  false,
+                  "TYPE_DECLARATION",
+                  astNode));
+        }
+        break;
+      case ASTNode.ENUM_CONSTANT_DECLARATION:
+        IVariableBinding varBinding = ((EnumConstantDeclaration) astNode).resolveVariable();
+        if (varBinding != null && varBinding.getDeclaringClass().getQualifiedName().contains(".")) {
+          refs.add(
+              new DeclarationRef(
+                  varBinding.getDeclaringClass().getQualifiedName()
+                      + ":"
+                      + ((EnumConstantDeclaration) astNode).getName().getFullyQualifiedName(),
+                  NodeType.ENUM_CONSTANT,
+                  true,
+                  "ENUM_CONSTANT_DECLARATION",
+                  astNode));
+        } else {
+          refs.add(
+              new DeclarationRef(
+                  ((EnumConstantDeclaration) astNode).getName().getIdentifier(),
+                  NodeType.ENUM_CONSTANT,
+                  false,
+                  "ENUM_CONSTANT_DECLARATION",
+                  astNode));
+        }
+        break;
+      case ASTNode.FIELD_DECLARATION:
+        List<VariableDeclarationFragment> fragments = ((FieldDeclaration) astNode).fragments();
+        //              hunkInfo.typeUses.addAll(
+        //                  processAnnotations(((FieldDeclaration) astNode).modifiers()));
+        for (VariableDeclarationFragment fragment : fragments) {
+          IVariableBinding binding = fragment.resolveBinding();
+          if (binding != null
+              && binding.getDeclaringClass() != null
+              && binding.getDeclaringClass().getQualifiedName().contains(".")) {
+            // use qualified name
+            refs.add(
+                new DeclarationRef(
+                    binding.getDeclaringClass().getQualifiedName() + ":" + binding.getName(),
+                    NodeType.FIELD,
+                    true,
+                    "FIELD_DECLARATION",
+                    astNode));
+          } else {
+            // use simple name instead
+            refs.add(
+                new DeclarationRef(
+                    fragment.getName().getFullyQualifiedName(),
+                    NodeType.FIELD,
+                    false,
+                    "FIELD_DECLARATION",
+                    astNode));
+          }
+        }
+        break;
+      case ASTNode.METHOD_DECLARATION:
+        MethodDeclaration methodDeclaration = (MethodDeclaration) astNode;
+        String uniqueMethodName = methodDeclaration.getName().getIdentifier();
+        IMethodBinding methodBinding = methodDeclaration.resolveBinding();
+        if (methodBinding != null
+            && methodBinding.getDeclaringClass() != null
+            && methodBinding.getDeclaringClass().getQualifiedName().contains(".")) {
+          // get the unique name of the method, including the parameter string
+          uniqueMethodName =
+              jdtService.getUniqueNameForMethod(
+                  methodBinding.getDeclaringClass().getQualifiedName(), methodDeclaration);
+          refs.add(
+              new DeclarationRef(
+                  uniqueMethodName, NodeType.METHOD, true, "METHOD_DECLARATION", astNode));
+        } else {
+          refs.add(
+              new DeclarationRef(
+                  uniqueMethodName, NodeType.METHOD, false, "METHOD_DECLARATION", astNode));
+        }
+        break;
+      case ASTNode.INITIALIZER:
+        // parse all method calls/field access in initializer and create node
+        // find node by identifier and create edge
+        Initializer initializer = (Initializer) astNode;
+        if (initializer.getParent() instanceof TypeDeclaration) {
+          TypeDeclaration parent = ((TypeDeclaration) initializer.getParent());
+          if (parent.resolveBinding() != null) {
+            String uniqueName = parent.resolveBinding().getQualifiedName() + ":INIT";
+            refs.add(
+                new DeclarationRef(
+                    uniqueName, NodeType.INITIALIZER_BLOCK, true, "INITIALIZER", astNode));
+          } else {
+            String uniqueName = parent.getName().getFullyQualifiedName() + ":INIT";
+            refs.add(
+                new DeclarationRef(
+                    uniqueName, NodeType.INITIALIZER_BLOCK, false, "INITIALIZER", astNode));
+          }
+        }
+        break;
+      default:
+        logger.warn("Unconsidered type: " + Annotation.nodeClassForType(astNode.getNodeType()));
+    }
+  }
 
-              } else {
-                logger.warn("TYPE_DECLARATION Not Found: " + astNode);
-              }
-              break;
-            case ASTNode.ENUM_CONSTANT_DECLARATION:
-              IVariableBinding varBinding = ((EnumConstantDeclaration) astNode).resolveVariable();
-              if (varBinding != null
-                  && varBinding.getDeclaringClass().getQualifiedName().contains(".")) {
-                nodeOpt =
-                    findNodeByNameAndType(
-                        varBinding.getDeclaringClass().getQualifiedName()
-                            + ":"
-                            + ((EnumConstantDeclaration) astNode).getName().getFullyQualifiedName(),
-                        NodeType.ENUM_CONSTANT,
-                        true);
-              } else {
-                nodeOpt =
-                    findNodeByNameAndType(
-                        ((EnumConstantDeclaration) astNode).getName().getIdentifier(),
-                        NodeType.ENUM_CONSTANT,
-                        false);
-              }
+  /** A declaration covered by a hunk, to be found in the graph by name and type */
+  private static class DeclarationRef {
+    private final String name;
+    private final NodeType nodeType;
+    private final boolean isQualifiedName;
+    // for the warning if not found
+    private final String label;
+    private final ASTNode astNode;
+
+    private DeclarationRef(
+        String name, NodeType nodeType, boolean isQualifiedName, String label, ASTNode astNode) {
+      this.name = name;
+      this.nodeType = nodeType;
+      this.isQualifiedName = isQualifiedName;
+      this.label = label;
+      this.astNode = astNode;
+    }
+  }
 
-              if (nodeOpt.isPresent()) {
-                existInGraph = true;
-                Node node = nodeOpt.get();
-                node.isInDiffHunk = true;
-                node.diffHunkIndex = index;
+  /** Parse the java files in the source directory in one batch, or in batches in parallel */
+  private void parseSrcDir() {
+    // get all java files by extension in the source directory
+    Collection<File> javaFiles = FileUtils.listFiles(new File(srcDir), new String[] {"java"}, true);
+    Set<String> srcPathSet = new HashSet<>();
+    Set<String> srcFolderSet = new HashSet<>();
+    for (File javaFile : javaFiles) {
+      String srcPath = javaFile.getAbsolutePath();
+      String srcFolderPath = javaFile.getParentFile().getAbsolutePath();
+      srcPathSet.add(srcPath);
+      srcFolderSet.add(srcFolderPath);
+    }
 
-                // consider constant as fields
-                hunkInfo.fieldDefs.add(node.getQualifiedName());
-                graph.addEdge(hunkNode, node, new Edge(edgeID, EdgeType.CONTAIN));
+    String[] srcPaths = new String[srcPathSet.size()];
+    srcPathSet.toArray(srcPaths);
+    NameResolver.setSrcPathSet(srcPathSet);
+    String[] srcFolderPaths = new String[srcFolderSet.size()];
+    srcFolderSet.toArray(srcFolderPaths);
 
-              } else {
-                logger.warn("ENUM_CONSTANT_DECLARATION Not Found: " + astNode);
-              }
-              break;
-            case ASTNode.FIELD_DECLARATION:
-              List<VariableDeclarationFragment> fragments =
-                  ((FieldDeclaration) astNode).fragments();
-              //              hunkInfo.typeUses.addAll(
-              //                  processAnnotations(((FieldDeclaration) astNode).modifiers()));
-              for (VariableDeclarationFragment fragment : fragments) {
-                IVariableBinding binding = fragment.resolveBinding();
-                if (binding != null
-                    && binding.getDeclaringClass() != null
-                    && binding.getDeclaringClass().getQualifiedName().contains(".")) {
-                  // use qualified name
-                  nodeOpt =
-                      findNodeByNameAndType(
-                          binding.getDeclaringClass().getQualifiedName() + ":" + binding.getName(),
-                          NodeType.FIELD,
-                          true);
-                } else {
-                  // use simple name instead
-                  nodeOpt =
-                      findNodeByNameAndType(
-                          fragment.getName().getFullyQualifiedName(), NodeType.FIELD, false);
-                }
-                if (nodeOpt.isPresent()) {
-                  existInGraph = true;
-                  Node node = nodeOpt.get();
-                  node.isInDiffHunk = true;
-                  node.diffHunkIndex = index;
+    int batchCount = Math.min(batchNum, srcPaths.length);
+    if (!parallelEnabled || batchCount < 2) {
+      parseBatch(srcPaths, srcFolderPaths, null);
+      return;
+    }
 
-                  hunkInfo.fieldDefs.add(node.getQualifiedName());
-                  graph.addEdge(hunkNode, node, new Edge(edgeID, EdgeType.CONTAIN));
+    // split into contiguous batches, so that merging them in order keeps the order of files
+    int batchSize = (srcPaths.length + batchCount - 1) / batchCount;
+    List<String[]> batches = new ArrayList<>();
+    for (int i = 0; i < srcPaths.length; i += batchSize) {
+      batches.add(Arrays.copyOfRange(srcPaths, i, Math.min(i + batchSize, srcPaths.length)));
+    }
+    bindingsShared = false;
+    // files in other batches are not compilation units of the parser, so they are found from the
+    // roots of their packages instead
+    Set<String> srcRootSet = new LinkedHashSet<>(Arrays.asList(srcFolderPaths));
+    for (File javaFile : javaFiles) {
+      srcRootSet.add(getSrcRoot(javaFile));
+    }
+    String[] srcRootPaths = srcRootSet.toArray(new String[0]);
+    List<List<Runnable>> merges =
+        batches.parallelStream()
+            .map(
+                batch -> {
+                  List<Runnable> batchMerges = new ArrayList<>();
+                  parseBatch(batch, srcRootPaths, batchMerges);
+                  return batchMerges;
+                })
+            .collect(Collectors.toList());
+    merges.forEach(batchMerges -> batchMerges.forEach(Runnable::run));
+  }
 
-                } else {
-                  logger.warn("FIELD_DECLARATION Not Found: " + astNode);
-                }
-              }
-              break;
-            case ASTNode.METHOD_DECLARATION:
-              MethodDeclaration methodDeclaration = (MethodDeclaration) astNode;
-              String uniqueMethodName = methodDeclaration.getName().getIdentifier();
-              IMethodBinding methodBinding = methodDeclaration.resolveBinding();
-              if (methodBinding != null
-                  && methodBinding.getDeclaringClass() != null
-                  && methodBinding.getDeclaringClass().getQualifiedName().contains(".")) {
-                // get the unique name of the method, including the parameter string
-                uniqueMethodName =
-                    jdtService.getUniqueNameForMethod(
-                        methodBinding.getDeclaringClass().getQualifiedName(), methodDeclaration);
-                nodeOpt = findNodeByNameAndType(uniqueMethodName, NodeType.METHOD, true);
-              } else {
-                nodeOpt = findNodeByNameAndType(uniqueMethodName, NodeType.METHOD, false);
-              }
+  /**
+   * Get the root folder of the package declared in a java file, e.g. src/main/java
+   *
+   * @param javaFile
+   * @return the parent folder if the package does not match the path
+   */
+  private static String getSrcRoot(File javaFile) {
+    String folderPath = javaFile.getParentFile().getAbsolutePath();
+    Matcher matcher =
+        PACKAGE_PATTERN.matcher(Utils.readFileToString(javaFile.getAbsolutePath()));
+    if (matcher.find()) {
+      String packagePath = File.separator + matcher.group(1).replace('.', File.separatorChar);
+      if (folderPath.endsWith(packagePath)) {
+        return folderPath.substring(0, folderPath.length() - packagePath.length());
+      }
+    }
+    return folderPath;
+  }
 
-              if (nodeOpt.isPresent()) {
-                existInGraph = true;
-                Node node = nodeOpt.get();
-                node.isInDiffHunk = true;
-                node.diffHunkIndex = index;
+  /**
+   * Parse a batch of java files, with the source folders to resolve the bindings
+   *
+   * <p>The files are the copies in the temp dir: JDT only resolves bindings across compilation
+   * units in a createASTs batch, which reads the units from disk (the in-memory units of its API
+   * need a Java project in an Eclipse workspace).
+   *
+   * @param srcPaths
+   * @param srcFolderPaths
+   * @param merges to keep the merge of each file in order, or null to merge right after visiting
+   */
+  private void parseBatch(String[] srcPaths, String[] srcFolderPaths, List<Runnable> merges) {
+    String[] encodings = new String[srcFolderPaths.length];
+    Arrays.fill(encodings, "UTF-8");
 
-                hunkInfo.methodDefs.add(node.getQualifiedName());
-                graph.addEdge(hunkNode, node, new Edge(edgeID, EdgeType.CONTAIN));
+    ASTParser parser = createParser();
+    parser.setEnvironment(new String[] {JRE_PATH}, srcFolderPaths, encodings, true);
 
-              } else {
-                logger.warn("METHOD_DECLARATION Not Found: " + astNode);
+    encodings = new String[srcPaths.length];
+    Arrays.fill(encodings, "UTF-8");
+    parser.createASTs(
+        srcPaths,
+        encodings,
+        new String[] {},
+        new FileASTRequestor() {
+          @Override
+          public void acceptAST(String sourceFilePath, CompilationUnit cu) {
+            try {
+              // get the corresponding diff file
+              Version version = Version.BASE;
+              if (sourceFilePath.contains(
+                  File.separator + Version.CURRENT.asString() + File.separator)) {
+                version = Version.CURRENT;
               }
-              break;
-            case ASTNode.INITIALIZER:
-              // parse all method calls/field access in initializer and create node
-              // find node by identifier and create edge
-              Initializer initializer = (Initializer) astNode;
-              if (initializer.getParent() instanceof TypeDeclaration) {
-                TypeDeclaration parent = ((TypeDeclaration) initializer.getParent());
-                if (parent.resolveBinding() != null) {
-                  String uniqueName = parent.resolveBinding().getQualifiedName() + ":INIT";
-                  nodeOpt = findNodeByNameAndType(uniqueName, NodeType.INITIALIZER_BLOCK, true);
-                } else {
-                  String uniqueName = parent.getName().getFullyQualifiedName() + ":INIT";
-                  nodeOpt = findNodeByNameAndType(uniqueName, NodeType.INITIALIZER_BLOCK, false);
-                }
-                if (nodeOpt.isPresent()) {
-                  existInGraph = true;
-                  Node node = nodeOpt.get();
-                  node.isInDiffHunk = true;
-                  node.diffHunkIndex = index;
-
-                  //                  hunkInfo.methodDefs.add(node.getQualifiedName());
-                  graph.addEdge(hunkNode, node, new Edge(edgeID, EdgeType.CONTAIN));
-
-                } else {
-                  logger.warn("INITIALIZER Not Found: " + astNode);
-                }
+              Optional<DiffFile> diffFileOpt = getDiffFileByPath(sourceFilePath, version);
+              if (diffFileOpt.isPresent()) {
+                // the file is a copy of the content in memory, no need to read it again
+                DiffFile diffFile = diffFileOpt.get();
+                visitAST(diffFile, version, cu, diffFile.getContentOf(version), merges);
               }
-              break;
-            default:
-              logger.warn(
-                  "Unconsidered type: " + Annotation.nodeClassForType(astNode.getNodeType()));
+            } catch (Exception e) {
+              e.printStackTrace();
+            }
           }
-        }
-      }
-      // create the HunkInfo node for hunks inside entities
-      if (!existInGraph) {
-        // find parent entity node (expected to exist) and create the contain edge
-        Optional<Node> parentNodeOpt = findParentNode(coveredNodes);
-        if (parentNodeOpt.isPresent()) {
-          graph.addEdge(parentNodeOpt.get(), hunkNode, new Edge(edgeID, EdgeType.CONTAIN));
-        }
+        },
+        null);
+  }
 
-        // save imported types into the entityPool
-        if (!hunkInfo.typeDefs.isEmpty()) {
-          for (String type : hunkInfo.typeDefs) {
-            importType2HunkMap.put(type, hunkInfo);
-          }
-        }
-      }
+  private ASTParser createParser() {
+    ASTParser parser = ASTParser.newParser(8);
+    Map<String, String> options = JavaCore.getOptions();
+    options.put(JavaCore.COMPILER_COMPLIANCE, "8");
+    options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, JavaCore.VERSION_1_8);
+    options.put(JavaCore.COMPILER_SOURCE, JavaCore.VERSION_1_8);
+    options.put(JavaCore.COMPILER_DOC_COMMENT_SUPPORT, JavaCore.ENABLED);
+    JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
+    parser.setCompilerOptions(options);
 
-      // add HunkInfo into the pool
-      entityPool.hunkInfoMap.put(hunkInfo.uniqueName(), hunkInfo);
-    }
-    if (!importType2HunkMap.isEmpty()) {
-      entityPool.importInfoMap.put(fileIndex, importType2HunkMap);
+    //        parser.setProject(WorkspaceUtilities.javaProject);
+    parser.setKind(ASTParser.K_COMPILATION_UNIT);
+    parser.setResolveBindings(true);
+    parser.setBindingsRecovery(true);
+    return parser;
+  }
+
+  /**
+   * Create nodes and nesting edges from the AST of a diff file
+   *
+   * @param diffFile
+   * @param version
+   * @param cu
+   * @param content the source of the AST
+   * @param merges to add the merge of the file into the graph, or null to merge right away
+   */
+  private void visitAST(
+      DiffFile diffFile,
+      Version version,
+      CompilationUnit cu,
+      String content,
+      List<Runnable> merges) {
+    Executor merger = Runnable::run;
+    if (merges != null) {
+      // entities are collected now, but nodes and edges are created later in the order of files
+      List<Runnable> steps = new ArrayList<>();
+      merger = steps::add;
+      merges.add(
+          () -> {
+            try {
+              steps.forEach(Runnable::run);
+            } catch (Exception e) {
+              e.printStackTrace();
+            }
+          });
     }
+    Map<String, Pair<Integer, Integer>> hunksPosition = computeHunksPosition(diffFile, cu, version);
+
+    // collect type/field/method infos and create nodes
+    JDTService jdtService = new JDTService(content);
+    cu.accept(new MemberVisitor(diffFile.getIndex(), entityPool, graph, jdtService, merger));
+
+    // collect hunk infos and create nodes
+    createHunkInfos(version, diffFile.getIndex(), hunksPosition, cu, jdtService, merger);
   }
 
   /**
@@ -760,12 +914,12 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
   }
 
   /**
-   * Find the nearest common ancestor entity in the ast and the node in the graph
+   * Find the nearest common ancestor entity in the ast, whose node in the graph has the identifier
    *
    * @param astNodes
-   * @return
+   * @return null if no entity is found
    */
-  private Optional<Node> findParentNode(Set<ASTNode> astNodes) {
+  private String findParentIdentifier(Set<ASTNode> astNodes) {
     // TODO: find the nearest common ancestor of the covered ast nodes
     ASTNode parentEntity = null;
     for (ASTNode astNode : astNodes) {
@@ -789,12 +943,9 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
           identifier = ((MethodDeclaration) parentEntity).getName().getFullyQualifiedName();
           break;
       }
-      String finalIdentifier = identifier;
-      return graph.vertexSet().stream()
-          .filter(node -> node.getIdentifier().equals(finalIdentifier))
-          .findAny();
+      return identifier;
     }
-    return Optional.empty();
+    return null;
   }
 
   /**
@@ -808,13 +959,9 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
   private Optional<Node> findNodeByNameAndType(
       String name, NodeType type, Boolean isQualifiedName) {
     if (isQualifiedName) {
-      return graph.vertexSet().stream()
-          .filter(node -> node.getType().equals(type) && node.getQualifiedName().equals(name))
-          .findAny();
+      return entityPool.nodeIndex.findByQualifiedName(name, type);
     } else {
-      return graph.vertexSet().stream()
-          .filter(node -> node.getType().equals(type) && node.getIdentifier().endsWith(name))
-          .findAny();
+      return entityPool.nodeIndex.findByIdentifierSuffix(type, name);
     }
   }
 
@@ -825,24 +972,25 @@ public class GraphBuilder implements Callable<Graph<Node, Edge>> {
    * @return
    */
   private Optional<DiffFile> getDiffFileByPath(String absolutePath, Version version) {
-    String formattedPath = Utils.formatPath(absolutePath);
-    switch (version) {
-      case BASE:
-        return this.diffFiles.stream()
-            .filter(
-                diffFile ->
-                    !diffFile.getBaseRelativePath().isEmpty()
-                        && formattedPath.endsWith(diffFile.getBaseRelativePath()))
-            .findAny();
-      case CURRENT:
-        return this.diffFiles.stream()
-            .filter(
-                diffFile ->
-                    !diffFile.getCurrentRelativePath().isEmpty()
-                        && formattedPath.endsWith(diffFile.getCurrentRelativePath()))
-            .findAny();
-      default:
-        return Optional.empty();
+    SuffixTrie<DiffFile> trie = diffFileTries.get(version);
+    if (trie == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(trie.getFirstSuffixOf(Utils.formatPath(absolutePath)));
+  }
+
+  /** Index the diff files by their relative paths in each version, before parsing the files */
+  private void indexDiffFiles() {
+    diffFileTries.clear();
+    for (Version version : Arrays.asList(Version.BASE, Version.CURRENT)) {
+      SuffixTrie<DiffFile> trie = new SuffixTrie<>();
+      for (DiffFile diffFile : diffFiles) {
+        String relativePath = diffFile.getRelativePathOf(version);
+        if (!relativePath.isEmpty()) {
+          trie.put(relativePath, diffFile);
+        }
+      }
+      diffFileTries.put(version, trie);
     }
   }
 }
@@ -1,5 +1,6 @@
 package com.github.smartcommit.core;
 
+import com.github.smartcommit.io.DataCollector;
 import com.github.smartcommit.model.DiffFile;
 import com.github.smartcommit.model.DiffHunk;
 import com.github.smartcommit.model.Group;
@@ -23,8 +24,6 @@ import org.jgrapht.graph.builder.GraphTypeBuilder;
 import org.refactoringminer.api.Refactoring;
 import org.refactoringminer.api.RefactoringMinerTimedOutException;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
@@ -913,11 +912,16 @@ public class GroupGenerator {
     //    Set<DiffHunk> refDiffHunks = new TreeSet<>(ascendingByIndexComparator());
 
     try {
-      File rootFolder1 = new File(srcDirs.getLeft());
-      File rootFolder2 = new File(srcDirs.getRight());
-
-      UMLModel model1 = new UMLModelASTReader(rootFolder1).getUmlModel();
-      UMLModel model2 = new UMLModelASTReader(rootFolder2).getUmlModel();
+      // read the sources in memory instead of the copies in srcDirs, unlike the graph builder
+      Map<String, String> baseSources = DataCollector.collectJavaSources(diffFiles, Version.BASE);
+      Map<String, String> currentSources =
+          DataCollector.collectJavaSources(diffFiles, Version.CURRENT);
+
+      UMLModel model1 =
+          new UMLModelASTReader(baseSources, getParentDirs(baseSources.keySet())).getUmlModel();
+      UMLModel model2 =
+          new UMLModelASTReader(currentSources, getParentDirs(currentSources.keySet()))
+              .getUmlModel();
       UMLModelDiff modelDiff = model1.diff(model2);
 
       List<Refactoring> refactorings = modelDiff.getRefactorings();
@@ -942,12 +946,30 @@ public class GroupGenerator {
           }
         }
       }
-    } catch (RefactoringMinerTimedOutException | IOException e) {
+    } catch (RefactoringMinerTimedOutException e) {
       e.printStackTrace();
     }
     return refDiffHunks;
   }
 
+  /**
+   * Collect all the parent dirs of the files, as UMLModelASTReader does for the files in a folder
+   *
+   * @param filePaths relative paths separated by "/"
+   * @return
+   */
+  private Set<String> getParentDirs(Set<String> filePaths) {
+    Set<String> dirs = new LinkedHashSet<>();
+    for (String filePath : filePaths) {
+      String dir = filePath;
+      while (dir.contains("/")) {
+        dir = dir.substring(0, dir.lastIndexOf("/"));
+        dirs.add(dir);
+      }
+    }
+    return dirs;
+  }
+
   /**
    * Construct a comparator which rank the diffhunks firstly by fileIndex, secondly by diffHunkIndex
    *
@@ -5,10 +5,12 @@ import com.github.smartcommit.model.DiffHunk;
 import com.github.smartcommit.model.constant.FileStatus;
 import com.github.smartcommit.util.GitService;
 import com.github.smartcommit.util.GitServiceCGit;
+import com.github.smartcommit.util.GitServiceJGit;
 import com.github.smartcommit.util.Utils;
 import org.apache.log4j.Logger;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 // import com.github.gumtreediff.gen.jdt.JdtTreeGenerator;
 
@@ -23,6 +25,12 @@ public class RepoAnalyzer {
   private List<DiffHunk> diffHunks;
   private Map<String, DiffFile> idToDiffFileMap;
   private Map<String, DiffHunk> idToDiffHunkMap;
+  // analyze with jGit in-process, instead of forking git commands
+  private boolean useJGit = false;
+  // number of threads for the git command to classify and read the changed files
+  private int gitThreadNum = Runtime.getRuntime().availableProcessors();
+  // parse the diff of different files in parallel
+  private boolean parallelDiffParsing = false;
 
   public RepoAnalyzer(String repoID, String repoName, String repoPath) {
     this.repoID = repoID;
@@ -34,6 +42,29 @@ public class RepoAnalyzer {
     this.idToDiffHunkMap = new HashMap<>();
   }
 
+  public void setUseJGit(boolean useJGit) {
+    this.useJGit = useJGit;
+  }
+
+  /**
+   * Number of threads to classify and read the changed files with the git command, not used by
+   * jGit
+   *
+   * @param gitThreadNum 1 to run sequentially
+   */
+  public void setGitThreadNum(int gitThreadNum) {
+    this.gitThreadNum = gitThreadNum;
+  }
+
+  /**
+   * Parse the diff of different files in parallel, which only pays off for large diffs
+   *
+   * @param parallelDiffParsing
+   */
+  public void setParallelDiffParsing(boolean parallelDiffParsing) {
+    this.parallelDiffParsing = parallelDiffParsing;
+  }
+
   public String getRepoPath() {
     return repoPath;
   }
@@ -49,13 +80,14 @@ public class RepoAnalyzer {
   /** Analyze the current working tree to cache temp data */
   public List<DiffFile> analyzeWorkingTree() {
     // analyze the diff files and hunks
-    GitService gitService = new GitServiceCGit();
+    GitService gitService = createGitService();
     ArrayList<DiffFile> diffFiles = gitService.getChangedFilesInWorkingTree(this.repoPath);
     if (!diffFiles.isEmpty()) {
       gitService.getDiffHunksInWorkingTree(this.repoPath, diffFiles);
       this.diffFiles = diffFiles;
       this.idToDiffFileMap = generateIDToDiffFileMap();
     }
+    closeGitService(gitService);
     return diffFiles;
   }
 
@@ -66,16 +98,79 @@ public class RepoAnalyzer {
    */
   public List<DiffFile> analyzeCommit(String commitID) {
     // analyze the diff files and hunks
-    GitService gitService = new GitServiceCGit();
+    GitService gitService = createGitService();
     ArrayList<DiffFile> diffFiles = gitService.getChangedFilesAtCommit(this.repoPath, commitID);
     if (!diffFiles.isEmpty()) {
       gitService.getDiffHunksAtCommit(this.repoPath, commitID, diffFiles);
       this.diffFiles = diffFiles;
       this.idToDiffFileMap = generateIDToDiffFileMap();
     }
+    closeGitService(gitService);
     return diffFiles;
   }
 
+  /**
+   * Analyze the given commits one by one in-process with one jGit walk, and pass the diff files of
+   * each commit to the consumer instead of keeping them all. During the callback, the getters
+   * return the data of the current commit.
+   *
+   * @param commitIDs
+   * @param consumer accepts the commit id and its diff files
+   */
+  public void analyzeCommits(List<String> commitIDs, BiConsumer<String, List<DiffFile>> consumer) {
+    try (GitServiceJGit gitService = new GitServiceJGit()) {
+      gitService.walkCommits(
+          this.repoPath, commitIDs, (commitID, diffFiles) -> accept(commitID, diffFiles, consumer));
+    }
+  }
+
+  /**
+   * Analyze the non-merge commits in (from, to] from the oldest to the newest, walking the history
+   * once in-process
+   *
+   * @param fromCommitID excluded, null to start from the root commit
+   * @param toCommitID included
+   * @param consumer accepts the commit id and its diff files
+   */
+  public void analyzeRange(
+      String fromCommitID, String toCommitID, BiConsumer<String, List<DiffFile>> consumer) {
+    try (GitServiceJGit gitService = new GitServiceJGit()) {
+      gitService.walkRange(
+          this.repoPath,
+          fromCommitID,
+          toCommitID,
+          (commitID, diffFiles) -> accept(commitID, diffFiles, consumer));
+    }
+  }
+
+  private void accept(
+      String commitID, List<DiffFile> diffFiles, BiConsumer<String, List<DiffFile>> consumer) {
+    // only keep the data of the current commit
+    this.diffFiles = diffFiles;
+    this.diffHunks = new ArrayList<>();
+    this.idToDiffHunkMap = new HashMap<>();
+    this.idToDiffFileMap = generateIDToDiffFileMap();
+    consumer.accept(commitID, diffFiles);
+  }
+
+  private GitService createGitService() {
+    if (useJGit) {
+      GitServiceJGit gitService = new GitServiceJGit();
+      gitService.setParallelDiffParsing(parallelDiffParsing);
+      return gitService;
+    }
+    GitServiceCGit gitService = new GitServiceCGit();
+    gitService.setThreadNum(gitThreadNum);
+    gitService.setParallelDiffParsing(parallelDiffParsing);
+    return gitService;
+  }
+
+  private void closeGitService(GitService gitService) {
+    if (gitService instanceof GitServiceJGit) {
+      ((GitServiceJGit) gitService).close();
+    }
+  }
+
   /**
    * Generate fileID:diffFile map (for commit stage)
    *
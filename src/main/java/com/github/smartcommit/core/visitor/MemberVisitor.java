@@ -13,25 +13,49 @@ import org.jgrapht.Graph;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
+/**
+ * Collect the infos of types and members, and create their nodes and nesting edges
+ *
+ * <p>Infos are collected (with bindings resolved) while visiting, but the changes to the graph and
+ * the entity pool are passed to the merger, which applies them immediately by default. A merger
+ * that keeps them to apply later allows visiting files in parallel, then merging them in a fixed
+ * order, so that node and edge ids are the same as visiting them one by one.
+ */
 public class MemberVisitor extends ASTVisitor {
   private Integer fileIndex;
   private EntityPool entityPool;
   private Graph<Node, Edge> graph;
   private JDTService jdtService;
+  private Executor merger;
 
   public MemberVisitor(
       Integer fileIndex, EntityPool entityPool, Graph<Node, Edge> graph, JDTService jdtService) {
+    this(fileIndex, entityPool, graph, jdtService, Runnable::run);
+  }
+
+  /**
+   * @param merger to apply the changes to the graph and the entity pool in order
+   */
+  public MemberVisitor(
+      Integer fileIndex,
+      EntityPool entityPool,
+      Graph<Node, Edge> graph,
+      JDTService jdtService,
+      Executor merger) {
     this.fileIndex = fileIndex;
     this.entityPool = entityPool;
     this.graph = graph;
     this.jdtService = jdtService;
+    this.merger = merger;
   }
 
   @Override
   public boolean visit(PackageDeclaration node) {
-    getOrCreatePkgNode(node.getName().getFullyQualifiedName());
+    String packageName = node.getName().getFullyQualifiedName();
+    merger.execute(() -> getOrCreatePkgNode(packageName));
     return true;
   }
 
@@ -39,21 +63,23 @@ public class MemberVisitor extends ASTVisitor {
   public boolean visit(AnnotationTypeDeclaration node) {
     // Annotation types are a form of interface
     String qualifiedName = jdtService.getQualifiedNameForNamedType(node);
-    Node enumNode =
-        new Node(
-            generateNodeID(), NodeType.ANNOTATION, node.getName().getIdentifier(), qualifiedName);
-    graph.addVertex(enumNode);
-
-    if (node.isPackageMemberTypeDeclaration()) {
-      String packageName = jdtService.getPackageName(node);
-      if (!packageName.isEmpty()) {
-        Node pkgNode = getOrCreatePkgNode(packageName);
-        graph.addEdge(pkgNode, enumNode, new Edge(generateEdgeID(), EdgeType.CONTAIN));
-      }
-    }
+    String identifier = node.getName().getIdentifier();
+    String packageName =
+        node.isPackageMemberTypeDeclaration() ? jdtService.getPackageName(node) : "";
     AnnotationInfo annotationInfo = jdtService.createAnnotationInfo(node);
-    annotationInfo.node = enumNode;
-    entityPool.annotationInfoMap.put(annotationInfo.fullName, annotationInfo);
+    merger.execute(
+        () -> {
+          Node enumNode = new Node(generateNodeID(), NodeType.ANNOTATION, identifier, qualifiedName);
+          graph.addVertex(enumNode);
+          entityPool.nodeIndex.add(enumNode);
+
+          if (!packageName.isEmpty()) {
+            Node pkgNode = getOrCreatePkgNode(packageName);
+            graph.addEdge(pkgNode, enumNode, new Edge(generateEdgeID(), EdgeType.CONTAIN));
+          }
+          annotationInfo.node = enumNode;
+          entityPool.annotationInfoMap.put(annotationInfo.fullName, annotationInfo);
+        });
 
     // support all child types of BodyDeclaration, including: AnnotationTypeMemberDeclaration,
     // EnumDeclaration, etc.
@@ -69,15 +95,20 @@ public class MemberVisitor extends ASTVisitor {
         AnnotationMemberInfo memberInfo =
             jdtService.createAnnotationMemberInfo(
                 fileIndex, (AnnotationTypeMemberDeclaration) member, qualifiedName);
-        Node memberNode =
-            new Node(
-                generateNodeID(),
-                NodeType.ANNOTATION_MEMBER,
-                memberInfo.name,
-                memberInfo.uniqueName());
-        graph.addVertex(memberNode);
-        graph.addEdge(enumNode, memberNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-        memberInfo.node = memberNode;
+        merger.execute(
+            () -> {
+              Node memberNode =
+                  new Node(
+                      generateNodeID(),
+                      NodeType.ANNOTATION_MEMBER,
+                      memberInfo.name,
+                      memberInfo.uniqueName());
+              graph.addVertex(memberNode);
+              entityPool.nodeIndex.add(memberNode);
+              graph.addEdge(
+                  annotationInfo.node, memberNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
+              memberInfo.node = memberNode;
+            });
       } else if (member instanceof EnumDeclaration) {
         visit((EnumDeclaration) member);
       }
@@ -89,73 +120,63 @@ public class MemberVisitor extends ASTVisitor {
   @Override
   public boolean visit(EnumDeclaration node) {
     String qualifiedName = jdtService.getQualifiedNameForNamedType(node);
-    Node enumNode =
-        new Node(generateNodeID(), NodeType.ENUM, node.getName().getIdentifier(), qualifiedName);
-    graph.addVertex(enumNode);
-
-    if (node.isPackageMemberTypeDeclaration()) {
-      String packageName = jdtService.getPackageName(node);
-      if (!packageName.isEmpty()) {
-        Node pkgNode = getOrCreatePkgNode(packageName);
-        graph.addEdge(pkgNode, enumNode, new Edge(generateEdgeID(), EdgeType.CONTAIN));
-      }
-    } else if (node.isLocalTypeDeclaration() || node.isMemberTypeDeclaration()) {
-      String parentTypeName = qualifiedName.replace("." + node.getName().getIdentifier(), "");
-      Optional<Node> nodeOpt = getParentTypeNode(parentTypeName);
-      nodeOpt.ifPresent(
-          value -> graph.addEdge(value, enumNode, new Edge(generateEdgeID(), EdgeType.DEFINE)));
-    }
+    String identifier = node.getName().getIdentifier();
+    String packageName =
+        node.isPackageMemberTypeDeclaration() ? jdtService.getPackageName(node) : "";
+    String parentTypeName =
+        !node.isPackageMemberTypeDeclaration()
+                && (node.isLocalTypeDeclaration() || node.isMemberTypeDeclaration())
+            ? qualifiedName.replace("." + identifier, "")
+            : null;
 
     EnumInfo enumInfo = jdtService.createEnumInfo(fileIndex, node);
-    enumInfo.node = enumNode;
-    entityPool.enumInfoMap.put(enumInfo.fullName, enumInfo);
-
+    List<EnumConstantInfo> enumConstantInfos = new ArrayList<>();
     for (Object obj : node.enumConstants()) {
       if (obj instanceof EnumConstantDeclaration) {
-        EnumConstantInfo enumConstantInfo =
+        enumConstantInfos.add(
             jdtService.createEnumConstantInfo(
-                fileIndex, (EnumConstantDeclaration) obj, qualifiedName);
-        Node enumConstantNode =
-            new Node(
-                generateNodeID(),
-                NodeType.ENUM_CONSTANT,
-                enumConstantInfo.name,
-                enumConstantInfo.uniqueName());
-        graph.addVertex(enumConstantNode);
-        graph.addEdge(enumNode, enumConstantNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-        enumConstantInfo.node = enumConstantNode;
-        entityPool.enumConstantInfoMap.put(enumConstantInfo.uniqueName(), enumConstantInfo);
-      }
-    }
-
-    for (Object obj : node.bodyDeclarations()) {
-      if (obj instanceof FieldDeclaration) {
-        // each field declaration can declare multiple fields with the common properties
-        List<FieldInfo> fieldInfos =
-            jdtService.createFieldInfos(fileIndex, (FieldDeclaration) obj, qualifiedName);
-        for (FieldInfo fieldInfo : fieldInfos) {
-          Node fieldNode =
-              new Node(generateNodeID(), NodeType.FIELD, fieldInfo.name, fieldInfo.uniqueName());
-          graph.addVertex(fieldNode);
-          graph.addEdge(enumNode, fieldNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-          fieldInfo.node = fieldNode;
-
-          entityPool.fieldInfoMap.put(fieldInfo.uniqueName(), fieldInfo);
-        }
-      } else if (obj instanceof MethodDeclaration) {
-        MethodInfo methodInfo =
-            jdtService.createMethodInfo(fileIndex, (MethodDeclaration) obj, qualifiedName);
-        Node methodNode =
-            new Node(generateNodeID(), NodeType.METHOD, methodInfo.name, methodInfo.uniqueName());
-        graph.addVertex(methodNode);
-        graph.addEdge(enumNode, methodNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-        methodInfo.node = methodNode;
-        entityPool.methodInfoMap.put(methodInfo.uniqueName(), methodInfo);
+                fileIndex, (EnumConstantDeclaration) obj, qualifiedName));
       }
     }
+    List<DeclarationInfo> memberInfos = createMemberInfos(node.bodyDeclarations(), qualifiedName);
+
+    merger.execute(
+        () -> {
+          Node enumNode = new Node(generateNodeID(), NodeType.ENUM, identifier, qualifiedName);
+          graph.addVertex(enumNode);
+          entityPool.nodeIndex.add(enumNode);
+
+          if (!packageName.isEmpty()) {
+            Node pkgNode = getOrCreatePkgNode(packageName);
+            graph.addEdge(pkgNode, enumNode, new Edge(generateEdgeID(), EdgeType.CONTAIN));
+          } else if (parentTypeName != null) {
+            Optional<Node> nodeOpt = getParentTypeNode(parentTypeName);
+            nodeOpt.ifPresent(
+                value ->
+                    graph.addEdge(value, enumNode, new Edge(generateEdgeID(), EdgeType.DEFINE)));
+          }
+
+          enumInfo.node = enumNode;
+          entityPool.enumInfoMap.put(enumInfo.fullName, enumInfo);
+
+          for (EnumConstantInfo enumConstantInfo : enumConstantInfos) {
+            Node enumConstantNode =
+                new Node(
+                    generateNodeID(),
+                    NodeType.ENUM_CONSTANT,
+                    enumConstantInfo.name,
+                    enumConstantInfo.uniqueName());
+            graph.addVertex(enumConstantNode);
+            entityPool.nodeIndex.add(enumConstantNode);
+            graph.addEdge(
+                enumNode, enumConstantNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
+
+            enumConstantInfo.node = enumConstantNode;
+            entityPool.enumConstantInfoMap.put(enumConstantInfo.uniqueName(), enumConstantInfo);
+          }
+
+          addMemberNodes(enumNode, memberInfos);
+        });
 
     return true;
   }
@@ -171,187 +192,188 @@ public class MemberVisitor extends ASTVisitor {
    */
   @Override
   public boolean visit(AnonymousClassDeclaration declaration) {
-    // create vertex
     String superClassName = "";
     if (declaration.getParent() instanceof ClassInstanceCreation) {
       superClassName = ((ClassInstanceCreation) declaration.getParent()).getType().toString();
     } else if (declaration.getParent() instanceof EnumConstantDeclaration) {
       superClassName = ((EnumConstantDeclaration) declaration.getParent()).getName().toString();
     }
+    String finalSuperClassName = superClassName;
 
     String qualifiedName = jdtService.getQualifiedNameForAnonyType(declaration, superClassName);
-    Node node = new Node(generateNodeID(), NodeType.ANONY_CLASS, superClassName, qualifiedName);
-    graph.addVertex(node);
     // parse info
     ClassInfo classInfo =
         jdtService.createAnonyClassInfo(declaration, superClassName, qualifiedName);
-    classInfo.node = node;
-    entityPool.classInfoMap.put(classInfo.fullName, classInfo);
-
-    // find parent node and create an edge
-    if (qualifiedName.lastIndexOf(":") != -1) {
-      Optional<Node> parentNodeOpt =
-          getParentMemberNode(qualifiedName.substring(0, qualifiedName.lastIndexOf(":")));
-      parentNodeOpt.ifPresent(
-          parentNode ->
-              graph.addEdge(parentNode, node, new Edge(generateEdgeID(), EdgeType.DEFINE)));
-    }
-    // parse member declarations and create vertices
-    List<Initializer> initializers =
-        ((List<?>) declaration.bodyDeclarations())
-            .stream()
-                .filter(Initializer.class::isInstance)
-                .map(Initializer.class::cast)
-                .collect(Collectors.toList());
-    if (!initializers.isEmpty()) {
-      for (Initializer initializer : initializers) {
-        InitializerInfo info =
-            jdtService.createInitializerInfo(fileIndex, initializer, qualifiedName);
-        Node initNode =
-            new Node(
-                generateNodeID(), NodeType.INITIALIZER_BLOCK, info.uniqueName(), info.uniqueName());
-        graph.addVertex(initNode);
-        graph.addEdge(node, initNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-        info.node = initNode;
-
-        entityPool.initBlockInfoMap.put(info.uniqueName(), info);
+    // parse member declarations, initializers first
+    List<DeclarationInfo> memberInfos =
+        createInitializerInfos(declaration.bodyDeclarations(), qualifiedName);
+    for (Object child : declaration.bodyDeclarations()) {
+      if (child instanceof FieldDeclaration) {
+        memberInfos.addAll(
+            jdtService.createFieldInfos(fileIndex, (FieldDeclaration) child, qualifiedName));
       }
     }
-
-    List<FieldDeclaration> fieldDeclarations =
-        ((List<?>) declaration.bodyDeclarations())
-            .stream()
-                .filter(FieldDeclaration.class::isInstance)
-                .map(FieldDeclaration.class::cast)
-                .collect(Collectors.toList());
-    for (FieldDeclaration fieldDeclaration : fieldDeclarations) {
-      // each field declaration can declare multiple fields with the common properties
-      List<FieldInfo> fieldInfos =
-          jdtService.createFieldInfos(fileIndex, fieldDeclaration, qualifiedName);
-      for (FieldInfo fieldInfo : fieldInfos) {
-        Node fieldNode =
-            new Node(generateNodeID(), NodeType.FIELD, fieldInfo.name, fieldInfo.uniqueName());
-        graph.addVertex(fieldNode);
-        graph.addEdge(node, fieldNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-        fieldInfo.node = fieldNode;
-
-        entityPool.fieldInfoMap.put(fieldInfo.uniqueName(), fieldInfo);
+    for (Object child : declaration.bodyDeclarations()) {
+      if (child instanceof MethodDeclaration) {
+        memberInfos.add(
+            jdtService.createMethodInfo(fileIndex, (MethodDeclaration) child, qualifiedName));
       }
     }
 
-    List<MethodDeclaration> methodDeclarations =
-        ((List<?>) declaration.bodyDeclarations())
-            .stream()
-                .filter(MethodDeclaration.class::isInstance)
-                .map(MethodDeclaration.class::cast)
-                .collect(Collectors.toList());
-    for (MethodDeclaration methodDeclaration : methodDeclarations) {
-      MethodInfo methodInfo =
-          jdtService.createMethodInfo(fileIndex, methodDeclaration, qualifiedName);
-      Node methodNode =
-          new Node(generateNodeID(), NodeType.METHOD, methodInfo.name, methodInfo.uniqueName());
-      graph.addVertex(methodNode);
-      graph.addEdge(node, methodNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-      methodInfo.node = methodNode;
-      entityPool.methodInfoMap.put(methodInfo.uniqueName(), methodInfo);
-    }
+    merger.execute(
+        () -> {
+          // create vertex
+          Node node =
+              new Node(generateNodeID(), NodeType.ANONY_CLASS, finalSuperClassName, qualifiedName);
+          graph.addVertex(node);
+          entityPool.nodeIndex.add(node);
+          classInfo.node = node;
+          entityPool.classInfoMap.put(classInfo.fullName, classInfo);
+
+          // find parent node and create an edge
+          if (qualifiedName.lastIndexOf(":") != -1) {
+            Optional<Node> parentNodeOpt =
+                getParentMemberNode(qualifiedName.substring(0, qualifiedName.lastIndexOf(":")));
+            parentNodeOpt.ifPresent(
+                parentNode ->
+                    graph.addEdge(parentNode, node, new Edge(generateEdgeID(), EdgeType.DEFINE)));
+          }
+          addMemberNodes(node, memberInfos);
+        });
 
     return true;
   }
 
   @Override
   public boolean visit(TypeDeclaration type) {
-    // create the node for the current type declaration
     NodeType nodeType = type.isInterface() ? NodeType.INTERFACE : NodeType.CLASS;
     //    nodeType = (type.isMemberTypeDeclaration() || type.isMemberTypeDeclaration()) ?
     // NodeType.INNER_CLASS : nodeType;
     String qualifiedNameForType = jdtService.getQualifiedNameForNamedType(type);
-    Node typeNode =
-        new Node(generateNodeID(), nodeType, type.getName().getIdentifier(), qualifiedNameForType);
-    graph.addVertex(typeNode);
-
-    if (type.isInterface()) {
-      InterfaceInfo interfaceInfo = jdtService.createInterfaceInfo(fileIndex, type);
-      interfaceInfo.node = typeNode;
-      entityPool.interfaceInfoMap.put(interfaceInfo.fullName, interfaceInfo);
-    } else {
-      ClassInfo classInfo = jdtService.createClassInfo(fileIndex, type);
-      classInfo.node = typeNode;
-      entityPool.classInfoMap.put(classInfo.fullName, classInfo);
-    }
+    String identifier = type.getName().getIdentifier();
+    DeclarationInfo typeInfo =
+        type.isInterface()
+            ? jdtService.createInterfaceInfo(fileIndex, type)
+            : jdtService.createClassInfo(fileIndex, type);
+    String packageName =
+        type.isPackageMemberTypeDeclaration() ? jdtService.getPackageName(type) : "";
+    String parentTypeName =
+        !type.isPackageMemberTypeDeclaration()
+                && (type.isLocalTypeDeclaration() || type.isMemberTypeDeclaration())
+            ? qualifiedNameForType.replace("." + identifier, "")
+            : null;
 
-    // find and link with the package node or the parent type node
-    if (type.isPackageMemberTypeDeclaration()) {
-      String packageName = jdtService.getPackageName(type);
-      if (!packageName.isEmpty()) {
-        Node pkgNode = getOrCreatePkgNode(packageName);
-        graph.addEdge(pkgNode, typeNode, new Edge(generateEdgeID(), EdgeType.CONTAIN));
-      }
-    } else if (type.isLocalTypeDeclaration() || type.isMemberTypeDeclaration()) {
-      String parentTypeName =
-          qualifiedNameForType.replace("." + type.getName().getIdentifier(), "");
-      Optional<Node> nodeOpt = getParentTypeNode(parentTypeName);
-      nodeOpt.ifPresent(
-          node -> graph.addEdge(node, typeNode, new Edge(generateEdgeID(), EdgeType.DEFINE)));
+    // process the members inside the current type
+    List<DeclarationInfo> memberInfos =
+        createInitializerInfos(type.bodyDeclarations(), qualifiedNameForType);
+    for (FieldDeclaration fieldDeclaration : type.getFields()) {
+      // each field declaration can declare multiple fields with the common properties
+      memberInfos.addAll(
+          jdtService.createFieldInfos(fileIndex, fieldDeclaration, qualifiedNameForType));
+    }
+    for (MethodDeclaration methodDeclaration : type.getMethods()) {
+      memberInfos.add(
+          jdtService.createMethodInfo(fileIndex, methodDeclaration, qualifiedNameForType));
     }
 
-    // process the members inside the current type
-    List<Initializer> initializers = new ArrayList<>();
-    for (Object child : type.bodyDeclarations()) {
+    merger.execute(
+        () -> {
+          // create the node for the current type declaration
+          Node typeNode = new Node(generateNodeID(), nodeType, identifier, qualifiedNameForType);
+          graph.addVertex(typeNode);
+          entityPool.nodeIndex.add(typeNode);
+
+          typeInfo.node = typeNode;
+          if (typeInfo instanceof InterfaceInfo) {
+            InterfaceInfo interfaceInfo = (InterfaceInfo) typeInfo;
+            entityPool.interfaceInfoMap.put(interfaceInfo.fullName, interfaceInfo);
+          } else {
+            ClassInfo classInfo = (ClassInfo) typeInfo;
+            entityPool.classInfoMap.put(classInfo.fullName, classInfo);
+          }
+
+          // find and link with the package node or the parent type node
+          if (!packageName.isEmpty()) {
+            Node pkgNode = getOrCreatePkgNode(packageName);
+            graph.addEdge(pkgNode, typeNode, new Edge(generateEdgeID(), EdgeType.CONTAIN));
+          } else if (parentTypeName != null) {
+            Optional<Node> nodeOpt = getParentTypeNode(parentTypeName);
+            nodeOpt.ifPresent(
+                node ->
+                    graph.addEdge(node, typeNode, new Edge(generateEdgeID(), EdgeType.DEFINE)));
+          }
+
+          addMemberNodes(typeNode, memberInfos);
+        });
+
+    return true;
+  }
+
+  private List<DeclarationInfo> createInitializerInfos(
+      List<?> bodyDeclarations, String qualifiedName) {
+    List<DeclarationInfo> infos = new ArrayList<>();
+    for (Object child : bodyDeclarations) {
       if (child instanceof Initializer) {
-        initializers.add((Initializer) child);
+        infos.add(jdtService.createInitializerInfo(fileIndex, (Initializer) child, qualifiedName));
       }
     }
-    if (!initializers.isEmpty()) {
-      for (Initializer initializer : initializers) {
-        InitializerInfo info =
-            jdtService.createInitializerInfo(fileIndex, initializer, qualifiedNameForType);
-        Node initNode =
-            new Node(
-                generateNodeID(), NodeType.INITIALIZER_BLOCK, info.uniqueName(), info.uniqueName());
-        graph.addVertex(initNode);
-        graph.addEdge(typeNode, initNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-        info.node = initNode;
+    return infos;
+  }
 
-        entityPool.initBlockInfoMap.put(info.uniqueName(), info);
+  /**
+   * Collect the infos of fields and methods, in the order of declarations
+   *
+   * @param bodyDeclarations
+   * @param qualifiedName
+   * @return
+   */
+  private List<DeclarationInfo> createMemberInfos(List<?> bodyDeclarations, String qualifiedName) {
+    List<DeclarationInfo> infos = new ArrayList<>();
+    for (Object obj : bodyDeclarations) {
+      if (obj instanceof FieldDeclaration) {
+        // each field declaration can declare multiple fields with the common properties
+        infos.addAll(jdtService.createFieldInfos(fileIndex, (FieldDeclaration) obj, qualifiedName));
+      } else if (obj instanceof MethodDeclaration) {
+        infos.add(jdtService.createMethodInfo(fileIndex, (MethodDeclaration) obj, qualifiedName));
       }
     }
+    return infos;
+  }
 
-    FieldDeclaration[] fieldDeclarations = type.getFields();
-    for (FieldDeclaration fieldDeclaration : fieldDeclarations) {
-      // each field declaration can declare multiple fields with the common properties
-      List<FieldInfo> fieldInfos =
-          jdtService.createFieldInfos(fileIndex, fieldDeclaration, qualifiedNameForType);
-      for (FieldInfo fieldInfo : fieldInfos) {
-        Node fieldNode =
+  /**
+   * Create the nodes of initializers, fields and methods, defined by the parent node
+   *
+   * @param parentNode
+   * @param memberInfos
+   */
+  private void addMemberNodes(Node parentNode, List<DeclarationInfo> memberInfos) {
+    for (DeclarationInfo info : memberInfos) {
+      Node memberNode;
+      if (info instanceof InitializerInfo) {
+        InitializerInfo initializerInfo = (InitializerInfo) info;
+        memberNode =
+            new Node(
+                generateNodeID(),
+                NodeType.INITIALIZER_BLOCK,
+                initializerInfo.uniqueName(),
+                initializerInfo.uniqueName());
+        entityPool.initBlockInfoMap.put(initializerInfo.uniqueName(), initializerInfo);
+      } else if (info instanceof FieldInfo) {
+        FieldInfo fieldInfo = (FieldInfo) info;
+        memberNode =
             new Node(generateNodeID(), NodeType.FIELD, fieldInfo.name, fieldInfo.uniqueName());
-        graph.addVertex(fieldNode);
-        graph.addEdge(typeNode, fieldNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-        fieldInfo.node = fieldNode;
-
         entityPool.fieldInfoMap.put(fieldInfo.uniqueName(), fieldInfo);
+      } else {
+        MethodInfo methodInfo = (MethodInfo) info;
+        memberNode =
+            new Node(generateNodeID(), NodeType.METHOD, methodInfo.name, methodInfo.uniqueName());
+        entityPool.methodInfoMap.put(methodInfo.uniqueName(), methodInfo);
       }
+      graph.addVertex(memberNode);
+      entityPool.nodeIndex.add(memberNode);
+      graph.addEdge(parentNode, memberNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
+      info.node = memberNode;
     }
-
-    MethodDeclaration[] methodDeclarations = type.getMethods();
-    for (MethodDeclaration methodDeclaration : methodDeclarations) {
-      MethodInfo methodInfo =
-          jdtService.createMethodInfo(fileIndex, methodDeclaration, qualifiedNameForType);
-      Node methodNode =
-          new Node(generateNodeID(), NodeType.METHOD, methodInfo.name, methodInfo.uniqueName());
-      graph.addVertex(methodNode);
-      graph.addEdge(typeNode, methodNode, new Edge(generateEdgeID(), EdgeType.DEFINE));
-
-      methodInfo.node = methodNode;
-      entityPool.methodInfoMap.put(methodInfo.uniqueName(), methodInfo);
-    }
-
-    return true;
   }
 
   /**
@@ -374,12 +396,8 @@ public class MemberVisitor extends ASTVisitor {
    * @return
    */
   private Optional<Node> getParentTypeNode(String qualifiedName) {
-    return graph.vertexSet().stream()
-        .filter(
-            node ->
-                (node.getType().equals(NodeType.CLASS) || node.getType().equals(NodeType.INTERFACE))
-                    && node.getQualifiedName().equals(qualifiedName))
-        .findAny();
+    return entityPool.nodeIndex.findByQualifiedName(
+        qualifiedName, NodeType.CLASS, NodeType.INTERFACE);
   }
 
   /**
@@ -389,14 +407,8 @@ public class MemberVisitor extends ASTVisitor {
    * @return
    */
   private Optional<Node> getParentMemberNode(String qualifiedName) {
-    return graph.vertexSet().stream()
-        .filter(
-            node ->
-                (node.getType().equals(NodeType.METHOD)
-                    || node.getType().equals(NodeType.FIELD)
-                    || node.getType().equals(NodeType.INITIALIZER_BLOCK)))
-        .filter(node -> node.getQualifiedName().equals(qualifiedName))
-        .findAny();
+    return entityPool.nodeIndex.findByQualifiedName(
+        qualifiedName, NodeType.METHOD, NodeType.FIELD, NodeType.INITIALIZER_BLOCK);
   }
 
   /**
@@ -407,18 +419,14 @@ public class MemberVisitor extends ASTVisitor {
    */
   private Node getOrCreatePkgNode(String packageName) {
     Optional<Node> pkgNodeOpt =
-        graph.vertexSet().stream()
-            .filter(
-                node ->
-                    node.getType().equals(NodeType.PACKAGE)
-                        && node.getQualifiedName().equals(packageName))
-            .findAny();
+        entityPool.nodeIndex.findByQualifiedName(packageName, NodeType.PACKAGE);
     if (pkgNodeOpt.isPresent()) {
       return pkgNodeOpt.get();
     } else {
       // create if not exist
       Node pkgNode = new Node(generateNodeID(), NodeType.PACKAGE, packageName, packageName);
       graph.addVertex(pkgNode);
+      entityPool.nodeIndex.add(pkgNode);
       return pkgNode;
     }
   }
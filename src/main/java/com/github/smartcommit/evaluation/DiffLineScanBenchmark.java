@@ -0,0 +1,183 @@
+package com.github.smartcommit.evaluation;
+
+import com.github.smartcommit.util.diffparser.api.ByteBufferDiffParser;
+import com.github.smartcommit.util.diffparser.api.UnifiedDiffParser;
+import com.github.smartcommit.util.diffparser.unified.HunkHeaderScanner;
+import com.google.common.base.Stopwatch;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+/**
+ * Compare the throughput (lines per second) of classifying diff lines and reading hunk ranges with
+ * regular expressions and String checks (as the parser did before) and with {@link
+ * HunkHeaderScanner}, on a -U0 diff of many tiny hunks. Also report the throughput of scanning the
+ * whole diff with {@link ByteBufferDiffParser} (which the git services use), whose hunk headers are
+ * read by the same scanner, and with {@link UnifiedDiffParser}. The byte parser decodes the lines
+ * of hunks on first access, which is not included.
+ *
+ * <p>Usage: DiffLineScanBenchmark [hunkNum] [rounds]
+ */
+public class DiffLineScanBenchmark {
+  public static void main(String[] args) {
+    BasicConfigurator.configure();
+    org.apache.log4j.Logger.getRootLogger().setLevel(Level.ERROR);
+
+    int hunkNum = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    List<String> lines = generateLines(hunkNum, new Random(hunkNum));
+    byte[] diff = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+    System.out.println("Hunks: " + hunkNum + " Lines: " + lines.size() + " Rounds: " + rounds);
+
+    // warm up the JIT, and check that both give the same result
+    long expected = scanWithRegex(lines);
+    long actual = scanWithScanner(lines);
+    new ByteBufferDiffParser(StandardCharsets.UTF_8).parse(diff);
+    new UnifiedDiffParser().parse(diff);
+
+    long regexTime = 0L;
+    long scannerTime = 0L;
+    long byteParserTime = 0L;
+    long parserTime = 0L;
+    for (int i = 0; i < rounds; ++i) {
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      scanWithRegex(lines);
+      regexTime += stopwatch.stop().elapsed(TimeUnit.NANOSECONDS);
+      stopwatch.reset().start();
+      scanWithScanner(lines);
+      scannerTime += stopwatch.stop().elapsed(TimeUnit.NANOSECONDS);
+      stopwatch.reset().start();
+      new ByteBufferDiffParser(StandardCharsets.UTF_8).parse(diff);
+      byteParserTime += stopwatch.stop().elapsed(TimeUnit.NANOSECONDS);
+      stopwatch.reset().start();
+      new UnifiedDiffParser().parse(diff);
+      parserTime += stopwatch.stop().elapsed(TimeUnit.NANOSECONDS);
+    }
+    System.out.println("Regex scan: " + linesPerSecond(lines.size(), regexTime / rounds));
+    System.out.println("Scanner scan: " + linesPerSecond(lines.size(), scannerTime / rounds));
+    System.out.println(
+        "ByteBufferDiffParser: " + linesPerSecond(lines.size(), byteParserTime / rounds));
+    System.out.println("UnifiedDiffParser: " + linesPerSecond(lines.size(), parserTime / rounds));
+    System.out.println("Same result: " + (expected == actual));
+  }
+
+  private static String linesPerSecond(int lineNum, long nanos) {
+    return String.format("%.0f lines/s (%dms)", lineNum * 1e9 / nanos, nanos / 1000000);
+  }
+
+  /**
+   * Classify lines in the order of checks in a hunk, and read the ranges of hunk headers, with
+   * String.startsWith, String.trim and LINE_RANGE_PATTERN
+   *
+   * @return a checksum of the results
+   */
+  private static long scanWithRegex(List<String> lines) {
+    long sum = 0L;
+    for (String line : lines) {
+      if (line.startsWith("---") || line.startsWith("+++")) {
+        sum += 1;
+      } else if (line.startsWith("-")) {
+        sum += 2;
+      } else if (line.startsWith("+")) {
+        sum += 3;
+      } else if ("".equals(line.trim())) {
+        sum += 4;
+      } else {
+        Matcher matcher = UnifiedDiffParser.LINE_RANGE_PATTERN.matcher(line);
+        if (matcher.matches()) {
+          sum += Integer.valueOf(matcher.group(1));
+          sum += Integer.valueOf(matcher.group(2) != null ? matcher.group(2) : "1");
+          sum += Integer.valueOf(matcher.group(3));
+          sum += Integer.valueOf(matcher.group(4) != null ? matcher.group(4) : "1");
+        } else if (line.startsWith(" ") || line.startsWith("\\")) {
+          sum += 5;
+        }
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * The same as {@link #scanWithRegex}, by the first char and {@link HunkHeaderScanner}
+   *
+   * @return a checksum of the results
+   */
+  private static long scanWithScanner(List<String> lines) {
+    long sum = 0L;
+    int[] ranges = new int[4];
+    for (String line : lines) {
+      char first = line.isEmpty() ? 0 : line.charAt(0);
+      if ((first == '-' || first == '+')
+          && line.length() >= 3
+          && line.charAt(1) == first
+          && line.charAt(2) == first) {
+        sum += 1;
+      } else if (first == '-') {
+        sum += 2;
+      } else if (first == '+') {
+        sum += 3;
+      } else if (isBlank(line)) {
+        sum += 4;
+      } else if (HunkHeaderScanner.parse(line, ranges)) {
+        sum += ranges[0] + ranges[1] + ranges[2] + ranges[3];
+      } else if (first == ' ' || first == '\\') {
+        sum += 5;
+      }
+    }
+    return sum;
+  }
+
+  private static boolean isBlank(String line) {
+    for (int i = 0; i < line.length(); ++i) {
+      if (line.charAt(i) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Generate a -U0 diff of Java files, with mostly one or two changed lines per hunk
+   *
+   * @return
+   */
+  private static List<String> generateLines(int hunkNum, Random random) {
+    List<String> lines = new ArrayList<>();
+    int line = 1;
+    for (int hunk = 0; hunk < hunkNum; ++hunk) {
+      if (hunk % 2000 == 0) {
+        String path = "src/main/java/com/example/Class" + hunk / 2000 + ".java";
+        lines.add("diff --git a/" + path + " b/" + path);
+        lines.add("index 1234567..89abcde 100644");
+        lines.add("--- a/" + path);
+        lines.add("+++ b/" + path);
+        line = 1;
+      }
+      line += 1 + random.nextInt(20);
+      int removed = random.nextInt(3);
+      int added = 1 + random.nextInt(2);
+      lines.add(
+          "@@ -"
+              + line
+              + (removed == 1 ? "" : "," + removed)
+              + " +"
+              + line
+              + (added == 1 ? "" : "," + added)
+              + " @@ public class Example {");
+      for (int i = 0; i < removed; ++i) {
+        lines.add("-    int old" + random.nextInt(1000) + " = compute(index - 1);");
+      }
+      for (int i = 0; i < added; ++i) {
+        lines.add("+    int new" + random.nextInt(1000) + " = compute(index + 1);");
+      }
+    }
+    return lines;
+  }
+}
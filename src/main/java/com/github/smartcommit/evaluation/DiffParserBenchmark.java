@@ -0,0 +1,195 @@
+package com.github.smartcommit.evaluation;
+
+import com.github.smartcommit.util.diffparser.api.ByteBufferDiffParser;
+import com.github.smartcommit.util.diffparser.api.model.Diff;
+import com.github.smartcommit.util.diffparser.api.model.Hunk;
+import com.github.smartcommit.util.diffparser.api.model.Line;
+import com.google.common.base.Stopwatch;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the runtime of parsing a unified diff sequentially and in parallel with {@link
+ * ByteBufferDiffParser} on synthetic diffs of the given sizes, and check that both give the same
+ * diffs.
+ *
+ * <p>The hunk lines are decoded lazily, so the timed parse covers scanning and splitting only,
+ * while the check decodes all of them.
+ *
+ * <p>The parsed diffs take several times the size of the input in memory, so give the JVM enough
+ * heap for the largest size (e.g. -Xmx16g for 500 MB).
+ *
+ * <p>Usage: DiffParserBenchmark [rounds] [sizeInMB...]
+ */
+public class DiffParserBenchmark {
+  public static void main(String[] args) {
+    BasicConfigurator.configure();
+    org.apache.log4j.Logger.getRootLogger().setLevel(Level.ERROR);
+
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+    int[] sizes = {10, 100, 500};
+    if (args.length > 1) {
+      sizes = new int[args.length - 1];
+      for (int i = 1; i < args.length; ++i) {
+        sizes[i - 1] = Integer.parseInt(args[i]);
+      }
+    }
+    System.out.println(
+        "Rounds: " + rounds + " Threads: " + Runtime.getRuntime().availableProcessors());
+
+    for (int size : sizes) {
+      byte[] diff = generateDiff(size * 1024L * 1024L, new Random(size));
+      // warm up the JIT
+      run(diff, false);
+      run(diff, true);
+
+      long sequentialTime = 0L;
+      long parallelTime = 0L;
+      for (int i = 0; i < rounds; ++i) {
+        sequentialTime += run(diff, false);
+        parallelTime += run(diff, true);
+      }
+
+      long expected = summarize(parse(diff, false));
+      long actual = summarize(parse(diff, true));
+      System.out.println(
+          size
+              + "MB: sequential "
+              + sequentialTime / rounds
+              + "ms/round, parallel "
+              + parallelTime / rounds
+              + "ms/round, same diffs: "
+              + (expected == actual));
+    }
+  }
+
+  /**
+   * Parse the diff once
+   *
+   * @return elapsed time in milliseconds
+   */
+  private static long run(byte[] diff, boolean parallel) {
+    // let the previous result be collected before timing
+    System.gc();
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    parse(diff, parallel);
+    return stopwatch.stop().elapsed(TimeUnit.MILLISECONDS);
+  }
+
+  private static List<Diff> parse(byte[] diff, boolean parallel) {
+    ByteBufferDiffParser parser = new ByteBufferDiffParser(StandardCharsets.UTF_8);
+    parser.setParallelEnabled(parallel);
+    return parser.parse(diff);
+  }
+
+  /**
+   * Hash everything the parser extracts, to compare the results without holding both
+   *
+   * @return
+   */
+  private static long summarize(List<Diff> diffs) {
+    long hash = diffs.size();
+    for (Diff diff : diffs) {
+      hash = 31 * hash + diff.getHeaderLines().hashCode();
+      hash = 31 * hash + String.valueOf(diff.getFromFileName()).hashCode();
+      hash = 31 * hash + String.valueOf(diff.getToFileName()).hashCode();
+      for (Hunk hunk : diff.getHunks()) {
+        hash = 31 * hash + hunk.getFromFileRange().getLineStart();
+        hash = 31 * hash + hunk.getFromFileRange().getLineCount();
+        hash = 31 * hash + hunk.getToFileRange().getLineStart();
+        hash = 31 * hash + hunk.getToFileRange().getLineCount();
+        for (Line line : hunk.getLines()) {
+          hash = 31 * hash + line.getLineType().ordinal();
+          hash = 31 * hash + line.getContent().hashCode();
+        }
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Generate a git diff of Java files with -U3 hunks, with some binary files in between
+   *
+   * @param size approximate size in bytes
+   * @return
+   */
+  private static byte[] generateDiff(long size, Random random) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream((int) size + 4096);
+    StringBuilder builder = new StringBuilder();
+    for (int file = 0; output.size() < size; ++file) {
+      builder.setLength(0);
+      String path = "src/main/java/com/example/module" + file % 97 + "/Class" + file + ".java";
+      builder.append("diff --git a/").append(path).append(" b/").append(path).append("\n");
+      if (random.nextInt(20) == 0) {
+        builder.append("index 1234567..89abcde 100644\n");
+        builder
+            .append("Binary files a/")
+            .append(path)
+            .append(" and b/")
+            .append(path)
+            .append(" differ\n");
+        output.write(builder.toString().getBytes(StandardCharsets.UTF_8), 0, builder.length());
+        continue;
+      }
+      builder.append("index 1234567..89abcde 100644\n");
+      builder.append("--- a/").append(path).append("\n");
+      builder.append("+++ b/").append(path).append("\n");
+      int line = 1;
+      for (int hunk = 1 + random.nextInt(6); hunk > 0; --hunk) {
+        line += 3 + random.nextInt(200);
+        int removed = random.nextInt(8);
+        int added = random.nextInt(12);
+        builder
+            .append("@@ -")
+            .append(line)
+            .append(",")
+            .append(removed + 6)
+            .append(" +")
+            .append(line)
+            .append(",")
+            .append(added + 6)
+            .append(" @@ public class Class")
+            .append(file)
+            .append(" {\n");
+        appendLines(builder, ' ', 3, random);
+        appendLines(builder, '-', removed, random);
+        appendLines(builder, '+', added, random);
+        appendLines(builder, ' ', 3, random);
+      }
+      byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+      output.write(bytes, 0, bytes.length);
+    }
+    return output.toByteArray();
+  }
+
+  private static void appendLines(StringBuilder builder, char prefix, int count, Random random) {
+    for (int i = 0; i < count; ++i) {
+      builder.append(prefix);
+      switch (random.nextInt(6)) {
+        case 0:
+          // blank context lines make the parser look ahead
+          builder.append("\n");
+          break;
+        case 1:
+          builder.append("    }\n");
+          break;
+        case 2:
+          builder.append("    int value").append(random.nextInt(1000)).append(" = 0;\n");
+          break;
+        default:
+          builder
+              .append("    result.add(compute(\"")
+              .append(Integer.toHexString(random.nextInt()))
+              .append("\", index - ")
+              .append(random.nextInt(10))
+              .append("));\n");
+      }
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.github.smartcommit.evaluation;
 import com.github.smartcommit.client.SmartCommit;
 import com.github.smartcommit.core.RepoAnalyzer;
 import com.github.smartcommit.io.DataCollector;
+import com.github.smartcommit.io.JsonSerializer;
 import com.github.smartcommit.model.*;
 import com.github.smartcommit.model.constant.FileType;
 import com.github.smartcommit.model.constant.GroupLabel;
@@ -11,8 +12,6 @@ import com.github.smartcommit.util.GitService;
 import com.github.smartcommit.util.GitServiceCGit;
 import com.github.smartcommit.util.Utils;
 import com.google.common.base.Stopwatch;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.mongodb.BasicDBObject;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
@@ -250,10 +249,9 @@ public class Evaluation {
 
         // override the copy
         FileUtils.deleteQuietly(new File(resultsDir + File.separator + "manual_groups"));
-        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
         for (Entry<String, Group> ent : groundTruthGroups.entrySet()) {
-          Utils.writeStringToFile(
-              gson.toJson(ent.getValue()),
+          JsonSerializer.PRETTY.writeToFile(
+              ent.getValue(),
               resultsDir
                   + File.separator
                   + "manual_groups"
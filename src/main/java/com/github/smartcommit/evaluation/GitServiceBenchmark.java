@@ -0,0 +1,181 @@
+package com.github.smartcommit.evaluation;
+
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.util.GitService;
+import com.github.smartcommit.util.GitServiceCGit;
+import com.github.smartcommit.util.GitServiceJGit;
+import com.google.common.base.Stopwatch;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the runtime of the git backends (forking git vs. in-process jGit) on the same commits,
+ * and check that they collect the same diff files and diff hunks.
+ *
+ * <p>Usage: GitServiceBenchmark repoPath [commitNum] [rounds]
+ */
+public class GitServiceBenchmark {
+  public static void main(String[] args) {
+    BasicConfigurator.configure();
+    org.apache.log4j.Logger.getRootLogger().setLevel(Level.ERROR);
+
+    String repoPath = args.length > 0 ? args[0] : System.getProperty("user.dir");
+    int commitNum = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+    List<String> commits = getRecentCommits(repoPath, commitNum);
+    System.out.println("Repo: " + repoPath + " Commits: " + commits.size() + " Rounds: " + rounds);
+
+    // warm up the JIT, the page cache and the pack files
+    run(new GitServiceCGit(), repoPath, commits);
+    run(new GitServiceJGit(), repoPath, commits);
+
+    long cgitTime = 0L;
+    long jgitTime = 0L;
+    long walkTime = 0L;
+    for (int i = 0; i < rounds; ++i) {
+      cgitTime += run(new GitServiceCGit(), repoPath, commits);
+      jgitTime += run(new GitServiceJGit(), repoPath, commits);
+      walkTime += walk(repoPath, commits, new HashMap<>());
+    }
+    System.out.println("CGit: " + cgitTime / rounds + "ms/round");
+    System.out.println("JGit: " + jgitTime / rounds + "ms/round");
+    System.out.println("JGit walk: " + walkTime / rounds + "ms/round");
+
+    // compare the results commit by commit
+    int mismatches = 0;
+    GitServiceCGit cgit = new GitServiceCGit();
+    try (GitServiceJGit jgit = new GitServiceJGit()) {
+      for (String commitID : commits) {
+        String expected = summarize(cgit, repoPath, commitID);
+        String actual = summarize(jgit, repoPath, commitID);
+        if (!expected.equals(actual)) {
+          mismatches++;
+          System.out.println("Mismatch at " + commitID + ":\nCGit: " + expected + "\nJGit: " + actual);
+        }
+      }
+    }
+    System.out.println("Mismatched commits: " + mismatches + "/" + commits.size());
+
+    // the walk should collect the same as analyzing commits one by one
+    Map<String, String> walked = new HashMap<>();
+    walk(repoPath, commits, walked);
+    mismatches = 0;
+    try (GitServiceJGit jgit = new GitServiceJGit()) {
+      for (String commitID : commits) {
+        if (!summarize(jgit, repoPath, commitID).equals(walked.get(commitID))) {
+          mismatches++;
+          System.out.println("Mismatch in walk at " + commitID);
+        }
+      }
+    }
+    System.out.println("Mismatched commits in walk: " + mismatches + "/" + commits.size());
+  }
+
+  /**
+   * Collect the diff files and hunks of all the commits in one walk
+   *
+   * @param summaries commitID : summary of the diff files
+   * @return elapsed time in milliseconds
+   */
+  private static long walk(String repoPath, List<String> commits, Map<String, String> summaries) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    // parents first
+    List<String> reversed = new ArrayList<>(commits);
+    Collections.reverse(reversed);
+    try (GitServiceJGit jgit = new GitServiceJGit()) {
+      jgit.walkCommits(
+          repoPath,
+          reversed,
+          (commitID, diffFiles) -> summaries.put(commitID, summarize(diffFiles)));
+    }
+    return stopwatch.stop().elapsed(TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Collect the diff files and hunks of all the commits with the given backend
+   *
+   * @return elapsed time in milliseconds
+   */
+  private static long run(GitService gitService, String repoPath, List<String> commits) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (String commitID : commits) {
+      List<DiffFile> diffFiles = gitService.getChangedFilesAtCommit(repoPath, commitID);
+      gitService.getDiffHunksAtCommit(repoPath, commitID, diffFiles);
+    }
+    long elapsed = stopwatch.stop().elapsed(TimeUnit.MILLISECONDS);
+    if (gitService instanceof GitServiceJGit) {
+      ((GitServiceJGit) gitService).close();
+    }
+    return elapsed;
+  }
+
+  /**
+   * Summarize the changed files and the line ranges of hunks in one commit
+   *
+   * @return
+   */
+  private static String summarize(GitService gitService, String repoPath, String commitID) {
+    List<DiffFile> diffFiles = gitService.getChangedFilesAtCommit(repoPath, commitID);
+    gitService.getDiffHunksAtCommit(repoPath, commitID, diffFiles);
+    return summarize(diffFiles);
+  }
+
+  private static String summarize(List<DiffFile> diffFiles) {
+    StringBuilder builder = new StringBuilder();
+    for (DiffFile diffFile : diffFiles) {
+      builder
+          .append(diffFile.getStatus())
+          .append(":")
+          .append(diffFile.getBaseRelativePath())
+          .append(":")
+          .append(diffFile.getCurrentRelativePath())
+          .append(":")
+          .append(diffFile.getFileType())
+          .append("[");
+      for (DiffHunk diffHunk : diffFile.getDiffHunks()) {
+        builder
+            .append(diffHunk.getBaseStartLine())
+            .append("-")
+            .append(diffHunk.getBaseEndLine())
+            .append(",")
+            .append(diffHunk.getCurrentStartLine())
+            .append("-")
+            .append(diffHunk.getCurrentEndLine())
+            .append(";");
+      }
+      builder.append("] ");
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Get the latest non-merge commits on the first-parent history of HEAD
+   *
+   * @return
+   */
+  private static List<String> getRecentCommits(String repoPath, int commitNum) {
+    List<String> commits = new ArrayList<>();
+    try (Git git = Git.open(new File(repoPath))) {
+      for (RevCommit commit : git.log().call()) {
+        if (commits.size() >= commitNum) {
+          break;
+        }
+        // the CGit backend diffs against commit~, which requires exactly one parent
+        if (commit.getParentCount() == 1) {
+          commits.add(commit.getName());
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return commits;
+  }
+}
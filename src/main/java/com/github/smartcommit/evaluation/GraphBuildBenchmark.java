@@ -0,0 +1,119 @@
+package com.github.smartcommit.evaluation;
+
+import com.github.smartcommit.core.GraphBuilder;
+import com.github.smartcommit.core.RepoAnalyzer;
+import com.github.smartcommit.io.DataCollector;
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.constant.FileType;
+import com.github.smartcommit.model.graph.Edge;
+import com.github.smartcommit.model.graph.Node;
+import com.github.smartcommit.util.Utils;
+import com.google.common.base.Stopwatch;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.jgrapht.Graph;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the time to build the graphs of both versions against the size of the changeset, by
+ * building them for the first N diff files of a commit (or the working tree) with growing N.
+ *
+ * <p>The time per file should stay about the same as N grows, since nodes and diff files are
+ * found through indexes instead of scanning all of them for each lookup.
+ *
+ * <p>Usage: GraphBuildBenchmark repoPath [commitID|WT] [rounds] [size...]
+ */
+public class GraphBuildBenchmark {
+  public static void main(String[] args) throws Exception {
+    BasicConfigurator.configure();
+    org.apache.log4j.Logger.getRootLogger().setLevel(Level.ERROR);
+
+    String repoPath = args.length > 0 ? args[0] : System.getProperty("user.dir");
+    String commitID = args.length > 1 ? args[1] : "WT";
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+    RepoAnalyzer repoAnalyzer = new RepoAnalyzer("benchmark", "benchmark", repoPath);
+    List<DiffFile> diffFiles =
+        commitID.equals("WT")
+            ? repoAnalyzer.analyzeWorkingTree()
+            : repoAnalyzer.analyzeCommit(commitID);
+    if (diffFiles.isEmpty()) {
+      System.out.println("No changes at " + commitID);
+      return;
+    }
+
+    List<Integer> sizes = new ArrayList<>();
+    if (args.length > 3) {
+      for (int i = 3; i < args.length; ++i) {
+        sizes.add(Math.min(Integer.parseInt(args[i]), diffFiles.size()));
+      }
+    } else {
+      // doubled until all diff files are included
+      for (int size = 16; size < diffFiles.size(); size *= 2) {
+        sizes.add(size);
+      }
+      sizes.add(diffFiles.size());
+    }
+    System.out.println(
+        "Repo: " + repoPath + " Changes: " + commitID + " Diff files: " + diffFiles.size());
+
+    String tempDir = Files.createTempDirectory("graph-benchmark").toString();
+    try {
+      for (int size : sizes) {
+        // a prefix keeps the indices of the diff files
+        List<DiffFile> changeset = new ArrayList<>(diffFiles.subList(0, size));
+        DataCollector dataCollector =
+            new DataCollector("benchmark", tempDir + File.separator + size);
+        Pair<String, String> srcDirs = dataCollector.collectDiffFilesWorking(changeset);
+
+        // warm up the JIT
+        build(changeset, srcDirs);
+        long time = 0L;
+        Pair<Graph<Node, Edge>, Graph<Node, Edge>> graphs = null;
+        for (int i = 0; i < rounds; ++i) {
+          Stopwatch stopwatch = Stopwatch.createStarted();
+          graphs = build(changeset, srcDirs);
+          time += stopwatch.stop().elapsed(TimeUnit.MILLISECONDS);
+        }
+        long javaFiles =
+            changeset.stream().filter(diffFile -> diffFile.getFileType() == FileType.JAVA).count();
+        int nodes = graphs.getLeft().vertexSet().size() + graphs.getRight().vertexSet().size();
+        int edges = graphs.getLeft().edgeSet().size() + graphs.getRight().edgeSet().size();
+        System.out.println(
+            size
+                + " files ("
+                + javaFiles
+                + " java): "
+                + nodes
+                + " nodes "
+                + edges
+                + " edges, "
+                + time / rounds
+                + "ms/round, "
+                + String.format("%.2f", (double) time / rounds / Math.max(1L, javaFiles))
+                + "ms/java file");
+      }
+    } finally {
+      Utils.clearDir(tempDir);
+      new File(tempDir).delete();
+    }
+  }
+
+  /**
+   * Build the graphs of the base and current versions one after another
+   *
+   * @return (base graph, current graph)
+   */
+  private static Pair<Graph<Node, Edge>, Graph<Node, Edge>> build(
+      List<DiffFile> diffFiles, Pair<String, String> srcDirs) {
+    Graph<Node, Edge> baseGraph = new GraphBuilder(srcDirs.getLeft(), diffFiles).call();
+    Graph<Node, Edge> currentGraph = new GraphBuilder(srcDirs.getRight(), diffFiles).call();
+    return Pair.of(baseGraph, currentGraph);
+  }
+}
@@ -1,17 +1,17 @@
 package com.github.smartcommit.io;
 
 import com.github.smartcommit.model.Action;
+import com.github.smartcommit.model.ContentHandle;
 import com.github.smartcommit.model.DiffFile;
 import com.github.smartcommit.model.DiffHunk;
 import com.github.smartcommit.model.constant.*;
 import com.github.smartcommit.util.Utils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.eclipse.jdt.core.dom.*;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import static org.eclipse.jdt.core.dom.ASTNode.*;
@@ -21,12 +21,28 @@ public class DataCollector {
 
   private String repoName;
   private String tempDir;
+  private boolean compactJson = false;
+  // null to write the sources into the cleared temp dir
+  private Workspace workspace = null;
 
   public DataCollector(String repoName, String tempDir) {
     this.repoName = repoName;
     this.tempDir = Utils.createDir(tempDir);
   }
 
+  public void setCompactJson(boolean compactJson) {
+    this.compactJson = compactJson;
+  }
+
+  /**
+   * Write the sources through a workspace, which keeps the unchanged ones from the last run
+   *
+   * @param workspace
+   */
+  public void setWorkspace(Workspace workspace) {
+    this.workspace = workspace;
+  }
+
   /**
    * Collect the base and current version of diff files
    *
@@ -76,6 +92,7 @@ public class DataCollector {
    */
   private int collect(String baseDir, String currentDir, List<DiffFile> diffFiles) {
     int count = 0;
+    Set<String> writtenPaths = new HashSet<>();
     Utils.createDir(baseDir);
     Utils.createDir(currentDir);
     for (DiffFile diffFile : diffFiles) {
@@ -88,7 +105,9 @@ public class DataCollector {
         case ADDED:
         case UNTRACKED:
           currentPath = currentDir + diffFile.getCurrentRelativePath();
-          if (Utils.writeStringToFile(diffFile.getCurrentContent(), currentPath)) {
+          if (write(diffFile.getCurrentContent(), currentPath, writtenPaths)) {
+            // load from the copy if released
+            diffFile.getCurrentContentHandle().setLoader(fileLoader(currentPath));
             count++;
           } else {
             logger.error("Error when collecting: " + diffFile.getStatus() + ":" + currentPath);
@@ -96,7 +115,8 @@ public class DataCollector {
           break;
         case DELETED:
           basePath = baseDir + diffFile.getBaseRelativePath();
-          if (Utils.writeStringToFile(diffFile.getBaseContent(), basePath)) {
+          if (write(diffFile.getBaseContent(), basePath, writtenPaths)) {
+            diffFile.getBaseContentHandle().setLoader(fileLoader(basePath));
             count++;
           } else {
             logger.error("Error when collecting: " + diffFile.getStatus() + ":" + basePath);
@@ -107,9 +127,11 @@ public class DataCollector {
         case COPIED:
           basePath = baseDir + diffFile.getBaseRelativePath();
           currentPath = currentDir + diffFile.getCurrentRelativePath();
-          boolean baseOk = Utils.writeStringToFile(diffFile.getBaseContent(), basePath);
-          boolean currentOk = Utils.writeStringToFile(diffFile.getCurrentContent(), currentPath);
+          boolean baseOk = write(diffFile.getBaseContent(), basePath, writtenPaths);
+          boolean currentOk = write(diffFile.getCurrentContent(), currentPath, writtenPaths);
           if (baseOk && currentOk) {
+            diffFile.getBaseContentHandle().setLoader(fileLoader(basePath));
+            diffFile.getCurrentContentHandle().setLoader(fileLoader(currentPath));
             count++;
           } else {
             logger.error("Error when collecting: " + diffFile.getStatus() + ":" + basePath);
@@ -117,9 +139,47 @@ public class DataCollector {
           break;
       }
     }
+
+    if (workspace != null) {
+      // remove the sources of files no longer changed, which would be parsed otherwise
+      workspace.retainOnly(baseDir, writtenPaths);
+      workspace.retainOnly(currentDir, writtenPaths);
+      workspace.evict();
+    }
     return count;
   }
 
+  private boolean write(String content, String filePath, Set<String> writtenPaths) {
+    writtenPaths.add(filePath);
+    return workspace == null
+        ? Utils.writeStringToFile(content, filePath)
+        : workspace.write(content, filePath);
+  }
+
+  /**
+   * Collect the java sources of one version of diff files in memory, for refactoring detection to
+   * read them without the copies in the temp dir (which the graphs are still built from)
+   *
+   * @param diffFiles
+   * @param version
+   * @return relative path : content
+   */
+  public static Map<String, String> collectJavaSources(List<DiffFile> diffFiles, Version version) {
+    Map<String, String> sources = new LinkedHashMap<>();
+    for (DiffFile diffFile : diffFiles) {
+      String relativePath = diffFile.getRelativePathOf(version);
+      if (!relativePath.isEmpty() && relativePath.endsWith(".java")) {
+        sources.put(relativePath, diffFile.getContentOf(version));
+      }
+    }
+    return sources;
+  }
+
+  private ContentHandle.Loader fileLoader(String filePath) {
+    // written in UTF-8 by Utils.writeStringToFile
+    return ContentHandle.fileLoader(filePath, StandardCharsets.UTF_8);
+  }
+
   /**
    * Save diffs for each diff file on the disk
    *
@@ -129,32 +189,39 @@ public class DataCollector {
   public Map<String, String> collectDiffHunks(List<DiffFile> diffFiles, String resultsDir) {
     String diffDir = resultsDir + File.separator + "diffs";
     Map<String, String> fileIDToPathMap = new HashMap<>();
+    describeDiffHunks(diffFiles);
     for (DiffFile diffFile : diffFiles) {
-      // generate description for each diff hunk
-      for (DiffHunk diffHunk : diffFile.getDiffHunks()) {
-        diffHunk.setAstActions(analyzeASTActions(diffHunk));
-        // TODO: move refactoring detection earlier?
-        diffHunk.generateDescription();
-      }
-
       String filePath =
           diffFile.getBaseRelativePath().isEmpty()
               ? diffFile.getCurrentRelativePath()
               : diffFile.getBaseRelativePath();
       fileIDToPathMap.put(diffFile.getFileID(), filePath);
-      Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-      Utils.writeStringToFile(
-          gson.toJson(diffFile.shallowClone()),
-          diffDir + File.separator + diffFile.getFileID() + ".json");
+      JsonSerializer.of(compactJson)
+          .writeToFile(
+              diffFile.shallowClone(), diffDir + File.separator + diffFile.getFileID() + ".json");
     }
 
     // save the fileID to path map
-    Gson gson = new Gson();
-    String str = gson.toJson(fileIDToPathMap);
-    Utils.writeStringToFile(str, resultsDir + File.separator + "file_ids.json");
+    JsonSerializer.COMPACT.writeToFile(
+        fileIDToPathMap, resultsDir + File.separator + "file_ids.json");
     return fileIDToPathMap;
   }
 
+  /**
+   * Generate description for each diff hunk
+   *
+   * @param diffFiles
+   */
+  public void describeDiffHunks(List<DiffFile> diffFiles) {
+    for (DiffFile diffFile : diffFiles) {
+      for (DiffHunk diffHunk : diffFile.getDiffHunks()) {
+        diffHunk.setAstActions(analyzeASTActions(diffHunk));
+        // TODO: move refactoring detection earlier?
+        diffHunk.generateDescription();
+      }
+    }
+  }
+
   /**
    * Generate description about the changes in a diff hunk
    *
@@ -0,0 +1,138 @@
+package com.github.smartcommit.io;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Serialize results into json files, streaming through a JsonWriter into the file instead of
+ * building the whole json string first.
+ *
+ * <p>Instances are immutable and thread-safe (as Gson is), so the two of them are shared: {@link
+ * #PRETTY} for files that people read, {@link #COMPACT} for files that only programs read.
+ */
+public class JsonSerializer {
+  public static final JsonSerializer PRETTY = new JsonSerializer(true);
+  public static final JsonSerializer COMPACT = new JsonSerializer(false);
+
+  private final Gson gson;
+
+  private JsonSerializer(boolean pretty) {
+    GsonBuilder builder = new GsonBuilder().disableHtmlEscaping();
+    if (pretty) {
+      builder.setPrettyPrinting();
+    }
+    this.gson = builder.create();
+  }
+
+  /**
+   * Get the shared serializer
+   *
+   * @param compact whether to write compact json without whitespaces
+   * @return
+   */
+  public static JsonSerializer of(boolean compact) {
+    return compact ? COMPACT : PRETTY;
+  }
+
+  public String toJson(Object src) {
+    return gson.toJson(src);
+  }
+
+  /**
+   * Write the json of the object into a writer, e.g. a file with other contents
+   *
+   * @param src
+   * @param writer
+   * @throws IOException
+   */
+  public void toJson(Object src, Writer writer) throws IOException {
+    try {
+      gson.toJson(src, writer);
+    } catch (JsonIOException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Read an object from the json in a reader
+   *
+   * @param reader
+   * @param classOfT
+   * @return
+   * @throws IOException
+   */
+  public <T> T fromJson(Reader reader, Class<T> classOfT) throws IOException {
+    try {
+      return gson.fromJson(reader, classOfT);
+    } catch (JsonParseException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Write the json of the object into a file in UTF-8, creating the parent dirs if not exist
+   *
+   * @param src
+   * @param filePath
+   * @return
+   */
+  public boolean writeToFile(Object src, String filePath) {
+    try (Writer writer = newFileWriter(filePath)) {
+      toJson(src, writer);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Open a buffered writer of the file in UTF-8, creating the parent dirs if not exist
+   *
+   * @param filePath
+   * @return
+   * @throws IOException
+   */
+  public static Writer newFileWriter(String filePath) throws IOException {
+    Path path = Paths.get(filePath);
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    return Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Copy a written file instead of serializing the object again
+   *
+   * <p>Not a hard link, since the copy may be edited (e.g. manual groups) while the source should
+   * stay as it was.
+   *
+   * @param sourcePath
+   * @param targetPath
+   * @return
+   */
+  public static boolean copyFile(String sourcePath, String targetPath) {
+    try {
+      Path target = Paths.get(targetPath);
+      if (target.getParent() != null) {
+        Files.createDirectories(target.getParent());
+      }
+      Files.copy(Paths.get(sourcePath), target, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,137 @@
+package com.github.smartcommit.io;
+
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.model.Group;
+import com.github.smartcommit.util.Utils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.Logger;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Raw diffs of the changed files indexed by file id and diff hunk id, to generate the patches of
+ * groups
+ *
+ * <p>Each diff file is loaded once when the index is built, instead of once for every group that
+ * touches it. The index is read-only afterwards, so patches can be generated in parallel.
+ */
+public class PatchIndex {
+  private static final Logger logger = Logger.getLogger(PatchIndex.class);
+
+  // fileID : raw headers of the file
+  private final Map<String, List<String>> fileHeaders = new HashMap<>();
+  // fileID:diffHunkID : raw diffs of the hunk
+  private final Map<String, List<String>> hunkDiffs = new HashMap<>();
+
+  private PatchIndex() {}
+
+  /**
+   * Index the diff files in memory, e.g. right after the analysis
+   *
+   * @param diffFiles
+   * @return
+   */
+  public static PatchIndex of(Collection<DiffFile> diffFiles) {
+    PatchIndex index = new PatchIndex();
+    diffFiles.forEach(index::add);
+    return index;
+  }
+
+  /**
+   * Load and index the diff files with the given ids
+   *
+   * @param fileIDs
+   * @param loader load a diff file by its id, return null if not found
+   * @param parallel whether to load the files in parallel
+   * @return
+   */
+  public static PatchIndex load(
+      Collection<String> fileIDs, Function<String, DiffFile> loader, boolean parallel) {
+    Stream<String> stream = parallel ? fileIDs.parallelStream() : fileIDs.stream();
+    List<DiffFile> diffFiles =
+        stream.map(loader).filter(Objects::nonNull).collect(Collectors.toList());
+    return of(diffFiles);
+  }
+
+  private void add(DiffFile diffFile) {
+    fileHeaders.put(diffFile.getFileID(), diffFile.getRawHeaders());
+    for (Map.Entry<String, DiffHunk> entry : diffFile.getDiffHunksMap().entrySet()) {
+      hunkDiffs.put(diffFile.getFileID() + ":" + entry.getKey(), entry.getValue().getRawDiffs());
+    }
+  }
+
+  /**
+   * Get the ids of the diff files that the groups touch
+   *
+   * @param groups
+   * @return
+   */
+  public static Set<String> collectFileIDs(Collection<Group> groups) {
+    Set<String> fileIDs = new LinkedHashSet<>();
+    for (Group group : groups) {
+      for (String id : group.getDiffHunkIDs()) {
+        fileIDs.add(Utils.parseUUIDs(id).getLeft());
+      }
+    }
+    return fileIDs;
+  }
+
+  /**
+   * Generate the patch of a group, which can be applied with git-apply
+   *
+   * @param group
+   * @return
+   */
+  public String generatePatch(Group group) {
+    // put diff hunks within the same file together, in the order of the group
+    Map<String, List<String>> fileID2hunkIDsMap = new LinkedHashMap<>();
+    for (String id : group.getDiffHunkIDs()) {
+      Pair<String, String> idPair = Utils.parseUUIDs(id);
+      fileID2hunkIDsMap.computeIfAbsent(idPair.getLeft(), k -> new ArrayList<>()).add(id);
+    }
+
+    String separator = System.lineSeparator();
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, List<String>> entry : fileID2hunkIDsMap.entrySet()) {
+      List<String> rawHeaders = fileHeaders.get(entry.getKey());
+      if (rawHeaders == null) {
+        logger.error("Null diffFile with id: " + entry.getKey());
+        continue;
+      }
+      // get headers and raw diffs
+      builder.append(String.join(separator, rawHeaders)).append(separator);
+      for (String id : entry.getValue()) {
+        List<String> rawDiffs = hunkDiffs.get(id);
+        if (rawDiffs != null) {
+          builder.append(String.join(separator, rawDiffs)).append(separator);
+        } else {
+          logger.error("Null diffHunk with id: " + Utils.parseUUIDs(id).getRight());
+        }
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Generate the patches of groups in one pass
+   *
+   * @param groups
+   * @param parallel whether to generate the patches in parallel
+   * @return groupID : patch, in the order of the groups
+   */
+  public Map<String, String> generatePatches(Collection<Group> groups, boolean parallel) {
+    Stream<Group> stream = parallel ? groups.parallelStream() : groups.stream();
+    // the order is kept by the collected list, even in parallel
+    List<String> patches = stream.map(this::generatePatch).collect(Collectors.toList());
+    Map<String, String> results = new LinkedHashMap<>();
+    Iterator<String> iterator = patches.iterator();
+    for (Group group : groups) {
+      results.put(group.getGroupID(), iterator.next());
+    }
+    return results;
+  }
+}
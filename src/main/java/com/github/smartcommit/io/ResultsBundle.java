@@ -0,0 +1,261 @@
+package com.github.smartcommit.io;
+
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.model.Group;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * All results of one analysis in a single file, instead of one json file per group and diff file.
+ *
+ * <p>The file starts with an index of (kind, id, owner, offset, length) entries, followed by the
+ * records in compact json. Opening a bundle reads only the index, then each group, diff file or
+ * diff hunk is looked up in O(1) and read with one positional read.
+ *
+ * <p>Diff files are saved without their diff hunks, which are saved as separate records owned by
+ * the file, and put back when the diff file is read.
+ */
+public class ResultsBundle implements Closeable {
+  public static final String FILE_NAME = "results.bundle";
+
+  private static final int MAGIC = 0x53435242; // "SCRB"
+  private static final int FORMAT_VERSION = 1;
+
+  private static final byte GROUP = 0;
+  private static final byte DIFF_FILE = 1;
+  private static final byte DIFF_HUNK = 2;
+
+  /** Position of a record in the file */
+  private static class Entry {
+    private final long offset;
+    private final int length;
+
+    private Entry(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private final FileChannel channel;
+  // id : entry, in the order of writing
+  private final Map<String, Entry> groups = new LinkedHashMap<>();
+  private final Map<String, Entry> diffFiles = new LinkedHashMap<>();
+  private final Map<String, Entry> diffHunks = new LinkedHashMap<>();
+  // fileID : diffHunkIDs
+  private final Map<String, List<String>> fileToHunks = new HashMap<>();
+
+  private ResultsBundle(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Write the results into one bundle file
+   *
+   * @param groups groupID : group
+   * @param diffFiles
+   * @param filePath
+   * @throws IOException
+   */
+  public static void write(Map<String, Group> groups, List<DiffFile> diffFiles, String filePath)
+      throws IOException {
+    // serialize the records first, to know their offsets in the index
+    ByteArrayOutputStream records = new ByteArrayOutputStream();
+    ByteArrayOutputStream index = new ByteArrayOutputStream();
+    DataOutputStream indexOutput = new DataOutputStream(index);
+    int count = 0;
+    for (Map.Entry<String, Group> entry : groups.entrySet()) {
+      writeRecord(GROUP, entry.getKey(), "", entry.getValue(), records, indexOutput);
+      count++;
+    }
+    for (DiffFile diffFile : diffFiles) {
+      DiffFile clone = diffFile.shallowClone();
+      clone.setDiffHunksMap(new HashMap<>());
+      writeRecord(DIFF_FILE, diffFile.getFileID(), "", clone, records, indexOutput);
+      count++;
+      for (Map.Entry<String, DiffHunk> entry : diffFile.getDiffHunksMap().entrySet()) {
+        writeRecord(
+            DIFF_HUNK, entry.getKey(), diffFile.getFileID(), entry.getValue(), records, indexOutput);
+        count++;
+      }
+    }
+    indexOutput.flush();
+
+    Path path = Paths.get(filePath);
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      output.writeInt(count);
+      // offsets in the index are relative to the end of it
+      output.writeInt(index.size());
+      index.writeTo(output);
+      records.writeTo(output);
+    }
+  }
+
+  private static void writeRecord(
+      byte kind,
+      String id,
+      String owner,
+      Object record,
+      ByteArrayOutputStream records,
+      DataOutputStream indexOutput)
+      throws IOException {
+    int offset = records.size();
+    Writer writer = new OutputStreamWriter(records, StandardCharsets.UTF_8);
+    JsonSerializer.COMPACT.toJson(record, writer);
+    writer.flush();
+    indexOutput.writeByte(kind);
+    indexOutput.writeUTF(id);
+    indexOutput.writeUTF(owner);
+    indexOutput.writeLong(offset);
+    indexOutput.writeInt(records.size() - offset);
+  }
+
+  /**
+   * Open a bundle file and read its index
+   *
+   * @param filePath
+   * @return
+   * @throws IOException if the file is not a bundle, or not readable
+   */
+  public static ResultsBundle open(String filePath) throws IOException {
+    FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+    try {
+      ResultsBundle bundle = new ResultsBundle(channel);
+      bundle.readIndex();
+      return bundle;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private void readIndex() throws IOException {
+    ByteBuffer header = read(0L, 16);
+    if (header.getInt() != MAGIC) {
+      throw new IOException("Not a results bundle");
+    }
+    int version = header.getInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported results bundle version: " + version);
+    }
+    int count = header.getInt();
+    int indexSize = header.getInt();
+    long recordsStart = 16L + indexSize;
+
+    ByteBuffer index = read(16L, indexSize);
+    DataInputStream input =
+        new DataInputStream(
+            new ByteArrayInputStream(index.array(), index.arrayOffset(), index.remaining()));
+    for (int i = 0; i < count; ++i) {
+      byte kind = input.readByte();
+      String id = input.readUTF();
+      String owner = input.readUTF();
+      Entry entry = new Entry(recordsStart + input.readLong(), input.readInt());
+      switch (kind) {
+        case GROUP:
+          groups.put(id, entry);
+          break;
+        case DIFF_FILE:
+          diffFiles.put(id, entry);
+          break;
+        case DIFF_HUNK:
+          diffHunks.put(id, entry);
+          fileToHunks.computeIfAbsent(owner, k -> new ArrayList<>()).add(id);
+          break;
+        default:
+          throw new IOException("Unknown record kind: " + kind);
+      }
+    }
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Truncated results bundle");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private <T> T readRecord(Entry entry, Class<T> classOfT) throws IOException {
+    ByteBuffer buffer = read(entry.offset, entry.length);
+    return JsonSerializer.COMPACT.fromJson(
+        new InputStreamReader(
+            new ByteArrayInputStream(buffer.array(), 0, buffer.limit()), StandardCharsets.UTF_8),
+        classOfT);
+  }
+
+  public Set<String> getGroupIDs() {
+    return Collections.unmodifiableSet(groups.keySet());
+  }
+
+  public Set<String> getFileIDs() {
+    return Collections.unmodifiableSet(diffFiles.keySet());
+  }
+
+  /**
+   * Read a group by its id
+   *
+   * @param groupID
+   * @return null if not found
+   * @throws IOException
+   */
+  public Group getGroup(String groupID) throws IOException {
+    Entry entry = groups.get(groupID);
+    return entry == null ? null : readRecord(entry, Group.class);
+  }
+
+  /**
+   * Read a diff file by its id, with its diff hunks
+   *
+   * @param fileID
+   * @return null if not found
+   * @throws IOException
+   */
+  public DiffFile getDiffFile(String fileID) throws IOException {
+    Entry entry = diffFiles.get(fileID);
+    if (entry == null) {
+      return null;
+    }
+    DiffFile diffFile = readRecord(entry, DiffFile.class);
+    Map<String, DiffHunk> diffHunksMap = new HashMap<>();
+    for (String diffHunkID : fileToHunks.getOrDefault(fileID, Collections.emptyList())) {
+      diffHunksMap.put(diffHunkID, readRecord(diffHunks.get(diffHunkID), DiffHunk.class));
+    }
+    diffFile.setDiffHunksMap(diffHunksMap);
+    return diffFile;
+  }
+
+  /**
+   * Read a diff hunk by its id
+   *
+   * @param diffHunkID
+   * @return null if not found
+   * @throws IOException
+   */
+  public DiffHunk getDiffHunk(String diffHunkID) throws IOException {
+    Entry entry = diffHunks.get(diffHunkID);
+    return entry == null ? null : readRecord(entry, DiffHunk.class);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
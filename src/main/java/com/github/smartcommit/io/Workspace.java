@@ -0,0 +1,230 @@
+package com.github.smartcommit.io;
+
+import com.github.smartcommit.util.Utils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A temp dir that keeps the sources of diff files across runs, instead of clearing and writing
+ * them all again on every analysis.
+ *
+ * <p>Each content is saved once under objects/, named by its git blob id, and hard linked (or
+ * copied if links are not supported) to its path in the base/current dir. A source that has not
+ * changed since the last run is already linked to its object, so it is not written again. Objects
+ * are touched when used, and the least recently used are deleted when their total size exceeds
+ * the limit.
+ */
+public class Workspace {
+  private static final Logger logger = Logger.getLogger(Workspace.class);
+
+  public static final String OBJECTS_DIR = "objects";
+  public static final long DEFAULT_MAX_BYTES = 256L << 20;
+  // objects used within the interval are not touched again
+  private static final long TOUCH_INTERVAL_MILLIS = 60_000L;
+
+  private final Path objectsDir;
+  private final long maxBytes;
+  private boolean objectsAdded = false;
+
+  /**
+   * @param rootDir the dir to keep the objects in, shared by the analyses under it
+   * @param maxBytes max total size of the objects
+   */
+  public Workspace(String rootDir, long maxBytes) {
+    this.objectsDir = Paths.get(rootDir, OBJECTS_DIR);
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Clear the results of the last run in a dir, but keep the sources and the objects
+   *
+   * @param dir
+   * @param keptNames names of the entries to keep in the dir
+   */
+  public static void clearExcept(String dir, Collection<String> keptNames) {
+    File[] files = new File(dir).listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      if (keptNames.contains(file.getName())) {
+        continue;
+      }
+      if (file.isDirectory()) {
+        Utils.clearDir(file.getAbsolutePath());
+      }
+      if (!file.delete()) {
+        logger.error("Failed to delete: " + file.getAbsolutePath());
+      }
+    }
+  }
+
+  /**
+   * Write the content to the file through the object store, skip if not changed since the last run
+   *
+   * @param content
+   * @param filePath
+   * @return true if the file has the content
+   */
+  public boolean write(String content, String filePath) {
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    String id = Utils.hashBlob(bytes);
+    Path object = objectsDir.resolve(id.substring(0, 2)).resolve(id.substring(2));
+    Path target = Paths.get(filePath);
+    try {
+      BasicFileAttributes objectAttributes = readAttributes(object);
+      if (objectAttributes != null) {
+        // touched to keep it from eviction
+        long now = System.currentTimeMillis();
+        if (now - objectAttributes.lastModifiedTime().toMillis() > TOUCH_INTERVAL_MILLIS) {
+          Files.setLastModifiedTime(object, FileTime.fromMillis(now));
+        }
+        BasicFileAttributes targetAttributes = readAttributes(target);
+        if (targetAttributes != null
+            && objectAttributes.fileKey() != null
+            && objectAttributes.fileKey().equals(targetAttributes.fileKey())) {
+          return true;
+        }
+      } else {
+        // written to a temp file first, so that a broken object is never left
+        Files.createDirectories(object.getParent());
+        Path temp = Files.createTempFile(object.getParent(), id.substring(2), ".tmp");
+        Files.write(temp, bytes);
+        Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING);
+        objectsAdded = true;
+      }
+
+      if (target.getParent() != null) {
+        Files.createDirectories(target.getParent());
+      }
+      Files.deleteIfExists(target);
+      try {
+        Files.createLink(target, object);
+      } catch (IOException | UnsupportedOperationException e) {
+        Files.copy(object, target);
+      }
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+  }
+
+  /** @return null if the file does not exist */
+  private static BasicFileAttributes readAttributes(Path path) {
+    try {
+      return Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Delete the files left in the dir by earlier runs, which are not written in this run
+   *
+   * @param dir
+   * @param writtenPaths paths of the files written in this run
+   */
+  public void retainOnly(String dir, Set<String> writtenPaths) {
+    Path root = Paths.get(dir).toAbsolutePath().normalize();
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    Set<Path> kept =
+        writtenPaths.stream()
+            .map(path -> Paths.get(path).toAbsolutePath().normalize())
+            .collect(Collectors.toSet());
+    try {
+      Files.walkFileTree(
+          root,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+              if (!kept.contains(file)) {
+                Files.delete(file);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path subDir, IOException e) {
+              // delete the dirs emptied
+              if (!subDir.equals(root)) {
+                try {
+                  Files.delete(subDir);
+                } catch (IOException ignored) {
+                  // not empty
+                }
+              }
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Delete the least recently used objects until their total size is within the limit
+   *
+   * <p>Files linked to a deleted object are not affected, they are only written again if used.
+   * Skipped if this workspace has added no object, since the size only grows with new objects.
+   *
+   * @return number of objects deleted
+   */
+  public int evict() {
+    if (!objectsAdded || !Files.isDirectory(objectsDir)) {
+      return 0;
+    }
+    // (path, attributes) of all objects, read once in the walk
+    List<Pair<Path, BasicFileAttributes>> objects = new ArrayList<>();
+    try {
+      Files.walkFileTree(
+          objectsDir,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              objects.add(Pair.of(file, attrs));
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException e) {
+      e.printStackTrace();
+      return 0;
+    }
+    long totalBytes = 0L;
+    for (Pair<Path, BasicFileAttributes> object : objects) {
+      totalBytes += object.getRight().size();
+    }
+    if (totalBytes <= maxBytes) {
+      return 0;
+    }
+
+    objects.sort(Comparator.comparing(object -> object.getRight().lastModifiedTime()));
+    int count = 0;
+    for (Pair<Path, BasicFileAttributes> object : objects) {
+      if (totalBytes <= maxBytes) {
+        break;
+      }
+      try {
+        Files.delete(object.getLeft());
+        totalBytes -= object.getRight().size();
+        count++;
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    logger.info("Evicted " + count + " objects from the workspace");
+    return count;
+  }
+}
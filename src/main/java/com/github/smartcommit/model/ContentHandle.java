@@ -0,0 +1,126 @@
+package com.github.smartcommit.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * A lazily loaded, reference-counted file content.
+ *
+ * <p>The content is kept in memory while it is retained, and dropped when the last holder releases
+ * it, as long as it can be loaded again from its source (e.g. a git object or a file on disk).
+ * Content loaded again is kept until the next release. Content without a source is never dropped.
+ */
+public class ContentHandle {
+  /** Load the content from its source */
+  public interface Loader {
+    String load() throws IOException;
+  }
+
+  private Loader loader;
+  private String content;
+  private int refCount = 0;
+
+  /**
+   * Content in memory without a source, which cannot be released
+   *
+   * @param content
+   */
+  public ContentHandle(String content) {
+    this.content = content;
+  }
+
+  /**
+   * Content in memory that can be loaded again after released
+   *
+   * @param content null to load on demand
+   * @param loader
+   */
+  public ContentHandle(String content, Loader loader) {
+    this.content = content;
+    this.loader = loader;
+  }
+
+  /**
+   * Content of a file on disk, loaded on demand
+   *
+   * @param filePath
+   * @param charset
+   * @return
+   */
+  public static ContentHandle ofFile(String filePath, Charset charset) {
+    return new ContentHandle(null, fileLoader(filePath, charset));
+  }
+
+  public static Loader fileLoader(String filePath, Charset charset) {
+    return () -> new String(Files.readAllBytes(Paths.get(filePath)), charset);
+  }
+
+  /**
+   * Get the content, load it if released, and keep it until the next release
+   *
+   * @return
+   * @throws UncheckedIOException if failed to load, rather than taking it as an empty file
+   */
+  public synchronized String get() {
+    if (content == null) {
+      try {
+        content = loader.load();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to load the file content", e);
+      }
+    }
+    return content;
+  }
+
+  /**
+   * Keep the content in memory until released
+   *
+   * @return
+   */
+  public synchronized ContentHandle retain() {
+    refCount++;
+    return this;
+  }
+
+  /** Drop the content if no one else retains it and it can be loaded again */
+  public synchronized void release() {
+    if (refCount > 0) {
+      refCount--;
+    }
+    if (refCount == 0 && loader != null) {
+      content = null;
+    }
+  }
+
+  /**
+   * Change where to load the content from, e.g. a copy on disk that is cheaper to read
+   *
+   * @param loader
+   */
+  public synchronized void setLoader(Loader loader) {
+    this.loader = loader;
+    if (refCount == 0) {
+      content = null;
+    }
+  }
+
+  public synchronized boolean isLoaded() {
+    return content != null;
+  }
+
+  public synchronized int getRefCount() {
+    return refCount;
+  }
+
+  /**
+   * Approximate memory held by the content in bytes (UTF-16 chars)
+   *
+   * @return 0 if not loaded
+   */
+  public synchronized long getLoadedSize() {
+    return content == null ? 0L : content.length() * 2L;
+  }
+}
@@ -14,14 +14,15 @@ public class DiffFile {
   private String repoID;
   private String repoName;
   private String fileID;
-  private Charset charset;
+  private transient Charset charset; // not serialized, null in the clones anyway
   private Integer index; // the index of the diff file in the current repo, start from 0
   private FileStatus status;
   private FileType fileType;
   private String baseRelativePath;
   private String currentRelativePath;
-  private String baseContent;
-  private String currentContent;
+  // contents are loaded on demand and released after use, not serialized
+  private transient ContentHandle baseContent;
+  private transient ContentHandle currentContent;
   private String description;
   private Map<String, DiffHunk> diffHunksMap;
   private transient List<DiffHunk> diffHunks;
@@ -37,14 +38,36 @@ public class DiffFile {
       String currentRelativePath,
       String baseContent,
       String currentContent) {
+    this(
+        index,
+        status,
+        fileType,
+        charset,
+        baseRelativePath,
+        currentRelativePath,
+        new ContentHandle(baseContent),
+        new ContentHandle(currentContent));
+  }
+
+  /** Constructor with contents that can be released and loaded again from their sources */
+  public DiffFile(
+      Integer index,
+      FileStatus status,
+      FileType fileType,
+      Charset charset,
+      String baseRelativePath,
+      String currentRelativePath,
+      ContentHandle baseContent,
+      ContentHandle currentContent) {
     this.index = index;
     this.status = status;
     this.fileType = fileType;
     this.charset = charset;
     this.baseRelativePath = baseRelativePath;
     this.currentRelativePath = currentRelativePath;
-    this.baseContent = baseContent;
-    this.currentContent = currentContent;
+    // retained by the diff file until released
+    this.baseContent = baseContent.retain();
+    this.currentContent = currentContent.retain();
     this.description = status.label;
     this.diffHunks = new ArrayList<>();
     this.diffHunksMap = new HashMap<>();
@@ -72,8 +95,8 @@ public class DiffFile {
     this.fileType = fileType;
     this.baseRelativePath = baseRelativePath;
     this.currentRelativePath = currentRelativePath;
-    this.baseContent = baseContent;
-    this.currentContent = currentContent;
+    this.baseContent = new ContentHandle(baseContent);
+    this.currentContent = new ContentHandle(currentContent);
     this.diffHunksMap = diffHunksMap;
   }
 
@@ -139,13 +162,51 @@ public class DiffFile {
   }
 
   public String getBaseContent() {
-    return baseContent;
+    // null if deserialized from json
+    return baseContent == null ? "" : baseContent.get();
   }
 
   public String getCurrentContent() {
+    return currentContent == null ? "" : currentContent.get();
+  }
+
+  public String getContentOf(Version version) {
+    if (version.equals(Version.BASE)) {
+      return getBaseContent();
+    } else if (version.equals(Version.CURRENT)) {
+      return getCurrentContent();
+    }
+    return "";
+  }
+
+  public ContentHandle getBaseContentHandle() {
+    return baseContent;
+  }
+
+  public ContentHandle getCurrentContentHandle() {
     return currentContent;
   }
 
+  /** Release the contents held by the diff file, they are loaded again if needed */
+  public void releaseContents() {
+    if (baseContent != null) {
+      baseContent.release();
+    }
+    if (currentContent != null) {
+      currentContent.release();
+    }
+  }
+
+  /**
+   * Approximate memory held by the contents in bytes
+   *
+   * @return
+   */
+  public long getLoadedContentSize() {
+    return (baseContent == null ? 0L : baseContent.getLoadedSize())
+        + (currentContent == null ? 0L : currentContent.getLoadedSize());
+  }
+
   public void setIndex(Integer index) {
     this.index = index;
   }
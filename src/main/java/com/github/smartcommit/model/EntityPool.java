@@ -1,6 +1,7 @@
 package com.github.smartcommit.model;
 
 import com.github.smartcommit.model.entity.*;
+import com.github.smartcommit.model.graph.NodeIndex;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -18,6 +19,8 @@ public class EntityPool {
   public Map<String, HunkInfo> hunkInfoMap;
   // fileIndex : importedType : hunkInfo
   public Map<Integer, Map<String, HunkInfo>> importInfoMap;
+  // nodes added into the graph, by names
+  public NodeIndex nodeIndex;
 
   public EntityPool(String srcDir) {
     this.srcDir = srcDir;
@@ -31,5 +34,6 @@ public class EntityPool {
     initBlockInfoMap = new HashMap<>();
     hunkInfoMap = new HashMap<>();
     importInfoMap = new HashMap<>();
+    nodeIndex = new NodeIndex();
   }
 }
@@ -0,0 +1,259 @@
+package com.github.smartcommit.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Lines of text packed in one buffer with an offset array, e.g. all the raw lines in the diff of a
+ * file.
+ *
+ * <p>Code snippets and raw diffs are read-only views of the lines, instead of copies of them in
+ * separate strings. The buffer holds one byte per char if all chars are Latin-1 (as compact strings
+ * do), otherwise two. Strings are only created when a line is read, and the joined text of a view
+ * is created once and cached.
+ */
+public class LineStore {
+  // one of them is null
+  private final byte[] latin1;
+  private final char[] chars;
+  // start of each line, plus the end of the last line
+  private final int[] starts;
+
+  private LineStore(CharSequence text, int[] starts) {
+    this.starts = starts;
+    boolean isLatin1 = true;
+    for (int i = 0; i < text.length() && isLatin1; ++i) {
+      isLatin1 = text.charAt(i) <= 0xff;
+    }
+    if (isLatin1) {
+      latin1 = new byte[text.length()];
+      for (int i = 0; i < latin1.length; ++i) {
+        latin1[i] = (byte) text.charAt(i);
+      }
+      chars = null;
+    } else {
+      chars = new char[text.length()];
+      for (int i = 0; i < chars.length; ++i) {
+        chars[i] = text.charAt(i);
+      }
+      latin1 = null;
+    }
+  }
+
+  /** Collect lines into a store */
+  public static class Builder {
+    private final StringBuilder text = new StringBuilder();
+    private int[] starts = new int[16];
+    private int size = 0;
+
+    public Builder add(CharSequence line) {
+      text.append(line);
+      return endLine();
+    }
+
+    /**
+     * Add a line with a leading char, e.g. "-" or "+" of a diff line
+     *
+     * @param prefix
+     * @param line
+     * @return
+     */
+    public Builder add(char prefix, CharSequence line) {
+      text.append(prefix).append(line);
+      return endLine();
+    }
+
+    private Builder endLine() {
+      if (size + 2 > starts.length) {
+        starts = Arrays.copyOf(starts, starts.length * 2);
+      }
+      starts[++size] = text.length();
+      return this;
+    }
+
+    /**
+     * Number of lines added so far, i.e. the index of the next line
+     *
+     * @return
+     */
+    public int size() {
+      return size;
+    }
+
+    public LineStore build() {
+      return new LineStore(text, Arrays.copyOf(starts, size + 1));
+    }
+  }
+
+  /**
+   * View the lines of a text, the same as Utils.convertStringToList
+   *
+   * @param text
+   * @return
+   */
+  public static Lines split(String text) {
+    LineStore.Builder builder = new LineStore.Builder();
+    int start = 0;
+    for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', start)) {
+      int end = i > start && text.charAt(i - 1) == '\r' ? i - 1 : i;
+      builder.add(text.subSequence(start, end));
+      start = i + 1;
+    }
+    builder.add(text.subSequence(start, text.length()));
+    LineStore store = builder.build();
+    if (text.isEmpty()) {
+      return store.range(0, 1);
+    }
+    // as String.split, trailing empty lines are removed
+    int size = store.size();
+    while (size > 0 && store.length(size - 1) == 0) {
+      size--;
+    }
+    return store.range(0, size);
+  }
+
+  public int size() {
+    return starts.length - 1;
+  }
+
+  public String get(int index) {
+    return get(index, 0);
+  }
+
+  private String get(int index, int skip) {
+    int start = Math.min(starts[index] + skip, starts[index + 1]);
+    int length = starts[index + 1] - start;
+    return latin1 != null
+        ? new String(latin1, start, length, StandardCharsets.ISO_8859_1)
+        : new String(chars, start, length);
+  }
+
+  private int length(int index) {
+    return starts[index + 1] - starts[index];
+  }
+
+  private char charAt(int offset) {
+    return latin1 != null ? (char) (latin1[offset] & 0xff) : chars[offset];
+  }
+
+  /**
+   * View the lines in [from, to)
+   *
+   * @param from
+   * @param to
+   * @return
+   */
+  public Lines range(int from, int to) {
+    return new Lines(this, null, from, to - from, 0);
+  }
+
+  /**
+   * View the lines at the given indices, without their first chars
+   *
+   * @param indices
+   * @param skip number of chars to cut from each line, e.g. 1 for the "-" or "+" of diff lines
+   * @return
+   */
+  public Lines select(int[] indices, int skip) {
+    return new Lines(this, indices, 0, indices.length, skip);
+  }
+
+  /**
+   * Approximate memory held by the buffer in bytes
+   *
+   * @return
+   */
+  public long getBufferSize() {
+    return (latin1 != null ? latin1.length : chars.length * 2L) + starts.length * 4L;
+  }
+
+  /** A read-only list of lines in a store, with the joined text cached */
+  public static class Lines extends AbstractList<String> implements RandomAccess {
+    private final LineStore store;
+    // null for a range from offset
+    private final int[] indices;
+    private final int offset;
+    private final int size;
+    private final int skip;
+    private String joinedText;
+    private String normalizedText;
+
+    private Lines(LineStore store, int[] indices, int offset, int size, int skip) {
+      this.store = store;
+      this.indices = indices;
+      this.offset = offset;
+      this.size = size;
+      this.skip = skip;
+    }
+
+    private int indexInStore(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return indices == null ? offset + index : indices[index];
+    }
+
+    @Override
+    public String get(int index) {
+      return store.get(indexInStore(index), skip);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    /**
+     * The lines joined with the line separator, the same as Utils.convertListLinesToString
+     *
+     * @return
+     */
+    public String getJoinedText() {
+      if (joinedText == null) {
+        String separator = System.lineSeparator();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < size; ++i) {
+          if (i > 0) {
+            builder.append(separator);
+          }
+          appendLine(builder, indexInStore(i));
+        }
+        joinedText = builder.toString();
+      }
+      return joinedText;
+    }
+
+    /**
+     * The lines joined with only word chars kept, the same as Utils.convertListToStringNoFormat
+     *
+     * @return
+     */
+    public String getNormalizedText() {
+      if (normalizedText == null) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < size; ++i) {
+          int line = indexInStore(i);
+          for (int j = store.starts[line] + skip; j < store.starts[line + 1]; ++j) {
+            char c = store.charAt(j);
+            if ((c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9')
+                || c == '_') {
+              builder.append(c);
+            }
+          }
+        }
+        normalizedText = builder.toString();
+      }
+      return normalizedText;
+    }
+
+    private void appendLine(StringBuilder builder, int line) {
+      for (int j = store.starts[line] + skip; j < store.starts[line + 1]; ++j) {
+        builder.append(store.charAt(j));
+      }
+    }
+  }
+}
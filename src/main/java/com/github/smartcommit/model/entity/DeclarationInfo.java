@@ -4,6 +4,7 @@ import com.github.smartcommit.model.graph.Node;
 import org.eclipse.jdt.core.dom.IMethodBinding;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 /**
@@ -23,7 +24,8 @@ public class DeclarationInfo {
 
   // use internal
   public Set<String> typeUses = new HashSet<>(); // AbstractType, including Type, Enum, Annotation
-  public Set<IMethodBinding> methodCalls = new HashSet<>();
+  // bindings are hashed by identity, keep the order of visiting to create the edges in
+  public Set<IMethodBinding> methodCalls = new LinkedHashSet<>();
   public Set<String> fieldUses = new HashSet<>();
   public Set<String> paraUses = new HashSet<>();
   public Set<String> localVarUses = new HashSet<>();
@@ -0,0 +1,105 @@
+package com.github.smartcommit.model.graph;
+
+import com.github.smartcommit.util.LongIntHashMap;
+import org.apache.log4j.Logger;
+import org.jgrapht.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Count the references between nodes as the weights of typed edges, then add the edges into the
+ * graph at once
+ *
+ * <p>Each (source, target, type) is packed into a long key, which is mapped to the index of the
+ * edge in the order it is first referenced. Counting a reference neither looks up the edges in the
+ * graph nor allocates, and the edges are added in that order with sequential ids, i.e. the same
+ * graph as adding each edge when first referenced and increasing its weight later.
+ */
+public class EdgeAggregator {
+  private static final Logger logger = Logger.getLogger(EdgeAggregator.class);
+
+  private static final int TYPE_BITS = 6;
+  private static final int ID_BITS = (Long.SIZE - TYPE_BITS) / 2;
+  private static final long MAX_ID = (1L << ID_BITS) - 1;
+
+  // packed key : index of the edge
+  private final LongIntHashMap indexMap = new LongIntHashMap();
+  private Node[] sources = new Node[16];
+  private Node[] targets = new Node[16];
+  private EdgeType[] types = new EdgeType[16];
+  private int[] weights = new int[16];
+  private int size = 0;
+
+  /**
+   * Count one reference from the source to the target
+   *
+   * @param source
+   * @param target
+   * @param edgeType
+   */
+  public void add(Node source, Node target, EdgeType edgeType) {
+    long key = pack(source.getId(), target.getId(), edgeType);
+    int index = indexMap.get(key, -1);
+    if (index >= 0) {
+      weights[index]++;
+      return;
+    }
+    if (size == weights.length) {
+      int capacity = size << 1;
+      sources = Arrays.copyOf(sources, capacity);
+      targets = Arrays.copyOf(targets, capacity);
+      types = Arrays.copyOf(types, capacity);
+      weights = Arrays.copyOf(weights, capacity);
+    }
+    sources[size] = source;
+    targets[size] = target;
+    types[size] = edgeType;
+    weights[size] = 1;
+    indexMap.put(key, size);
+    size++;
+  }
+
+  /** @return number of distinct edges counted */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Add the counted edges into the graph, with ids following the edges already in it
+   *
+   * <p>Only reference edges are counted here, which never have the same types as the nesting
+   * edges already in the graph, so they are always added as new edges.
+   *
+   * @param graph
+   * @return number of edges added
+   */
+  public int materialize(Graph<Node, Edge> graph) {
+    int edgeID = graph.edgeSet().size();
+    int count = 0;
+    for (int i = 0; i < size; ++i) {
+      Edge edge = new Edge(edgeID++, types[i]);
+      edge.setWeight(weights[i]);
+      if (graph.addEdge(sources[i], targets[i], edge)) {
+        count++;
+      } else {
+        logger.warn("Unsuccessful edge creation: " + types[i]);
+      }
+    }
+    indexMap.clear();
+    Arrays.fill(sources, 0, size, null);
+    Arrays.fill(targets, 0, size, null);
+    Arrays.fill(types, 0, size, null);
+    size = 0;
+    return count;
+  }
+
+  private static long pack(int sourceID, int targetID, EdgeType edgeType) {
+    if (sourceID < 0 || sourceID > MAX_ID || targetID < 0 || targetID > MAX_ID) {
+      throw new IllegalArgumentException(
+          "Node id out of range: " + sourceID + " -> " + targetID);
+    }
+    return ((long) sourceID << (ID_BITS + TYPE_BITS))
+        | ((long) targetID << TYPE_BITS)
+        | edgeType.ordinal();
+  }
+}
@@ -0,0 +1,75 @@
+package com.github.smartcommit.model.graph;
+
+import com.github.smartcommit.util.SuffixTrie;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Index of the nodes in a graph by their names, to find them without scanning the vertex set
+ *
+ * <p>Nodes are added to the index right after they are added to the graph, so that lookups return
+ * the first added one among the matched, the same as a findAny over the vertex set.
+ */
+public class NodeIndex {
+  // type : qualified name : node
+  private final Map<NodeType, Map<String, Node>> qualifiedNameMap = new EnumMap<>(NodeType.class);
+  // type : nodes by the suffixes of their identifiers
+  private final Map<NodeType, SuffixTrie<Node>> identifierTries = new EnumMap<>(NodeType.class);
+  // identifier : node of any type
+  private final Map<String, Node> identifierMap = new HashMap<>();
+
+  public void add(Node node) {
+    qualifiedNameMap
+        .computeIfAbsent(node.getType(), type -> new HashMap<>())
+        .putIfAbsent(node.getQualifiedName(), node);
+    identifierTries
+        .computeIfAbsent(node.getType(), type -> new SuffixTrie<>())
+        .put(node.getIdentifier(), node);
+    identifierMap.putIfAbsent(node.getIdentifier(), node);
+  }
+
+  /**
+   * Find the node with the qualified name in one of the types
+   *
+   * @param qualifiedName
+   * @param types
+   * @return the first added if more than one are found
+   */
+  public Optional<Node> findByQualifiedName(String qualifiedName, NodeType... types) {
+    Node result = null;
+    for (NodeType type : types) {
+      Map<String, Node> nodes = qualifiedNameMap.get(type);
+      Node node = nodes == null ? null : nodes.get(qualifiedName);
+      // ids are given in the order nodes are added
+      if (node != null && (result == null || node.getId() < result.getId())) {
+        result = node;
+      }
+    }
+    return Optional.ofNullable(result);
+  }
+
+  /**
+   * Find the node of the type whose identifier ends with the name
+   *
+   * @param type
+   * @param name
+   * @return
+   */
+  public Optional<Node> findByIdentifierSuffix(NodeType type, String name) {
+    SuffixTrie<Node> trie = identifierTries.get(type);
+    return trie == null ? Optional.empty() : Optional.ofNullable(trie.getFirstEndingWith(name));
+  }
+
+  /**
+   * Find the node of any type with the identifier
+   *
+   * @param identifier
+   * @return
+   */
+  public Optional<Node> findByIdentifier(String identifier) {
+    return Optional.ofNullable(identifierMap.get(identifier));
+  }
+}
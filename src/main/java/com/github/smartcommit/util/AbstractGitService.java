@@ -0,0 +1,531 @@
+package com.github.smartcommit.util;
+
+import com.github.smartcommit.model.Action;
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.model.LineStore;
+import com.github.smartcommit.model.constant.*;
+import com.github.smartcommit.util.diffparser.api.ByteBufferDiffParser;
+import com.github.smartcommit.util.diffparser.api.DiffParser;
+import com.github.smartcommit.util.diffparser.api.model.Diff;
+import com.github.smartcommit.util.diffparser.api.model.Hunk;
+import com.github.smartcommit.util.diffparser.api.model.Line;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Common part of the git backends: turn the unified diff (-U0) of the changed files into diff
+ * hunks, no matter the diff is printed by the git command or by jGit.
+ */
+public abstract class AbstractGitService implements GitService {
+  protected static final byte[] DIFF_HEADER = "diff --git ".getBytes(StandardCharsets.UTF_8);
+  // parse the sections of different files in parallel, for large diffs
+  private boolean parallelDiffParsing = false;
+
+  /**
+   * Parse the diff of different files in parallel, which only pays off for large diffs
+   *
+   * @param parallelDiffParsing
+   */
+  public void setParallelDiffParsing(boolean parallelDiffParsing) {
+    this.parallelDiffParsing = parallelDiffParsing;
+  }
+
+  /** @return a parser of the diff output, which is decoded in UTF-8 */
+  protected ByteBufferDiffParser newDiffParser() {
+    ByteBufferDiffParser parser = new ByteBufferDiffParser(StandardCharsets.UTF_8);
+    parser.setParallelEnabled(parallelDiffParsing);
+    return parser;
+  }
+
+  /**
+   * Parse the unified diff text into diffs
+   *
+   * @param diffOutput
+   * @return empty if no diff
+   */
+  protected List<Diff> parseDiffs(String diffOutput) {
+    List<Diff> diffs = new ArrayList<>();
+    if (!diffOutput.trim().isEmpty()) {
+      // with -U0 (no context lines), the generated patch cannot be applied successfully
+      DiffParser parser = newDiffParser();
+      diffs = parser.parse(diffOutput.getBytes(StandardCharsets.UTF_8));
+    }
+    return diffs;
+  }
+
+  /**
+   * Split the raw git-diff output into per-file sections (at each "diff --git" line), and decode
+   * each section with the charset of its file. Sections of files not in the map are dropped.
+   *
+   * @param output raw bytes of git-diff
+   * @param charsets basePath : charset
+   * @return the decoded diff of the given files
+   */
+  protected String decodeDiffPerFile(byte[] output, Map<String, Charset> charsets) {
+    StringBuilder builder = new StringBuilder();
+    List<Integer> starts = new ArrayList<>();
+    for (int i = 0; i < output.length; i = nextLineStart(output, i)) {
+      if (startsWith(output, i, DIFF_HEADER)) {
+        starts.add(i);
+      }
+    }
+    for (int k = 0; k < starts.size(); ++k) {
+      int start = starts.get(k);
+      int end = k + 1 < starts.size() ? starts.get(k + 1) : output.length;
+      int headerEnd = nextLineStart(output, start);
+      // paths are printed in UTF-8 by git
+      String header =
+          new String(output, start, headerEnd - start, StandardCharsets.UTF_8).trim();
+      String path = parseBasePathFromHeader(header);
+      if (charsets.containsKey(path)) {
+        builder.append(new String(output, start, end - start, charsets.get(path)));
+      }
+    }
+    return builder.toString();
+  }
+
+  private static int nextLineStart(byte[] bytes, int from) {
+    int i = from;
+    while (i < bytes.length && bytes[i] != '\n') {
+      i++;
+    }
+    return i + 1;
+  }
+
+  private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+    if (offset + prefix.length > bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; ++i) {
+      if (bytes[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the base path from "diff --git a/path b/path" (without renames, the two paths are the same)
+   *
+   * @param header
+   * @return
+   */
+  private String parseBasePathFromHeader(String header) {
+    String paths = header.substring(DIFF_HEADER.length);
+    if (paths.startsWith("\"")) {
+      // "a/path" "b/path", quoted if the path has special chars (e.g. non-ASCII, tabs, quotes)
+      int end = 1;
+      while (end < paths.length() && paths.charAt(end) != '"') {
+        end += paths.charAt(end) == '\\' ? 2 : 1;
+      }
+      String path = unquotePath(paths.substring(0, Math.min(end + 1, paths.length())));
+      return path.startsWith("a/") ? path.substring(2) : path;
+    }
+    if (paths.startsWith("a/") && paths.length() > 5) {
+      // "a/" + path + " b/" + path
+      return paths.substring(2, 2 + (paths.length() - 5) / 2);
+    }
+    return paths;
+  }
+
+  /**
+   * Unquote a path quoted by git in the C style, e.g. "a/\344\270\255.java" or "a/x\ty"
+   *
+   * @param path
+   * @return the path itself if not quoted
+   */
+  protected static String unquotePath(String path) {
+    if (path.length() < 2 || !path.startsWith("\"") || !path.endsWith("\"")) {
+      return path;
+    }
+    // octal escapes are the bytes of the path in UTF-8
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int end = path.length() - 1;
+    int i = 1;
+    while (i < end) {
+      int c = path.codePointAt(i);
+      if (c != '\\' || i + 1 >= end) {
+        byte[] chars = new String(Character.toChars(c)).getBytes(StandardCharsets.UTF_8);
+        bytes.write(chars, 0, chars.length);
+        i += Character.charCount(c);
+        continue;
+      }
+      char next = path.charAt(i + 1);
+      i += 2;
+      switch (next) {
+        case 'a':
+          bytes.write(7);
+          break;
+        case 'b':
+          bytes.write('\b');
+          break;
+        case 't':
+          bytes.write('\t');
+          break;
+        case 'n':
+          bytes.write('\n');
+          break;
+        case 'v':
+          bytes.write(11);
+          break;
+        case 'f':
+          bytes.write('\f');
+          break;
+        case 'r':
+          bytes.write('\r');
+          break;
+        default:
+          if (isOctalDigit(next)) {
+            int value = next - '0';
+            // at most 3 digits
+            for (int k = 0; k < 2 && i < end && isOctalDigit(path.charAt(i)); ++k) {
+              value = value * 8 + (path.charAt(i++) - '0');
+            }
+            bytes.write(value);
+          } else {
+            // \" and \\
+            bytes.write(next);
+          }
+      }
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static boolean isOctalDigit(char c) {
+    return c >= '0' && c <= '7';
+  }
+
+  /**
+   * Generate diff hunks for modified or deleted binary files (that cannot be parsed), and collect
+   * the charsets of the files existing in base to decode their diffs
+   *
+   * @param diffFiles
+   * @return basePath : charset
+   */
+  protected Map<String, Charset> prepareBaseFiles(List<DiffFile> diffFiles) {
+    Map<String, Charset> charsets = new HashMap<>();
+    for (DiffFile diffFile : diffFiles) {
+      if (null != diffFile.getBaseRelativePath() && !"".equals(diffFile.getBaseRelativePath())) {
+        if (diffFile.getFileType().equals(FileType.BIN)) {
+          DiffHunk diffHunk = createDiffHunkForBinaryFile(diffFile);
+          // bidirectional binding
+          diffHunk.setFileIndex(diffFile.getIndex());
+          List<DiffHunk> diffHunksInFile = new ArrayList<>();
+          diffHunksInFile.add(diffHunk);
+          diffFile.setDiffHunks(diffHunksInFile);
+        }
+        charsets.put(diffFile.getBaseRelativePath(), diffFile.getCharset());
+      }
+    }
+    return charsets;
+  }
+
+  private DiffHunk createDiffHunkForBinaryFile(DiffFile diffFile) {
+    ChangeType changeType =
+        diffFile.getStatus().equals(FileStatus.DELETED) ? ChangeType.DELETED : ChangeType.MODIFIED;
+    DiffHunk diffHunk =
+        new DiffHunk(
+            0,
+            diffFile.getFileType(),
+            changeType,
+            new com.github.smartcommit.model.Hunk(
+                Version.BASE,
+                diffFile.getBaseRelativePath(),
+                0,
+                0,
+                ContentType.BINARY,
+                new ArrayList<>()),
+            new com.github.smartcommit.model.Hunk(
+                Version.CURRENT,
+                diffFile.getCurrentRelativePath(),
+                0,
+                0,
+                ContentType.BINARY,
+                new ArrayList<>()),
+            changeType.label
+                + " "
+                + diffFile.getFileType().label
+                + " File:"
+                + diffFile.getBaseRelativePath());
+    diffHunk.addASTAction(
+        new Action(
+            (changeType.equals(ChangeType.DELETED) ? Operation.DEL : Operation.UPD),
+            "Binary",
+            "",
+            "File",
+            diffFile.getCurrentRelativePath()));
+    return diffHunk;
+  }
+
+  /**
+   * Generate diff hunks from diffs parsed from git-diff output
+   *
+   * @param diffs
+   * @return
+   */
+  protected List<DiffHunk> generateDiffHunks(
+      String repoPath, List<Diff> diffs, List<DiffFile> diffFiles) {
+    List<DiffHunk> allDiffHunks = generateDiffHunksForAddedFiles(diffFiles);
+    for (Diff diff : diffs) {
+      allDiffHunks.addAll(generateDiffHunks(repoPath, diff, diffFiles));
+    }
+    return allDiffHunks;
+  }
+
+  /**
+   * Generate one diff hunk of the whole file for each added or untracked file
+   *
+   * @param diffFiles
+   * @return
+   */
+  protected List<DiffHunk> generateDiffHunksForAddedFiles(List<DiffFile> diffFiles) {
+    List<DiffHunk> allDiffHunks = new ArrayList<>();
+    // one file, one diff
+    // UNTRACKED/ADDED files won't be shown in the diff
+    for (DiffFile diffFile : diffFiles) {
+      if (diffFile.getStatus().equals(FileStatus.ADDED)
+          || diffFile.getStatus().equals(FileStatus.UNTRACKED)) {
+        List<String> lines = LineStore.split(diffFile.getCurrentContent());
+        DiffHunk diffHunk =
+            new DiffHunk(
+                0,
+                diffFile.getFileType(),
+                ChangeType.ADDED,
+                new com.github.smartcommit.model.Hunk(
+                    Version.BASE, "", 0, -1, ContentType.EMPTY, new ArrayList<>()),
+                new com.github.smartcommit.model.Hunk(
+                    Version.CURRENT,
+                    diffFile.getCurrentRelativePath(),
+                    1,
+                    lines.size(),
+                    Utils.checkContentType(lines),
+                    lines),
+                "Add "
+                    + diffFile.getFileType().label
+                    + " File:"
+                    + diffFile.getCurrentRelativePath());
+        diffHunk.addASTAction(
+            new Action(Operation.ADD, "", "", "File", diffFile.getCurrentRelativePath()));
+
+        // bidirectional binding
+        diffHunk.setFileIndex(diffFile.getIndex());
+        List<DiffHunk> diffHunksInFile = new ArrayList<>();
+        diffHunksInFile.add(diffHunk);
+        allDiffHunks.add(diffHunk);
+        diffFile.setDiffHunks(diffHunksInFile);
+      }
+    }
+    return allDiffHunks;
+  }
+
+  /**
+   * Generate diff hunks from the diff of one file, and bind them to the diff file
+   *
+   * @param diff
+   * @return the diff hunks in the file
+   */
+  protected List<DiffHunk> generateDiffHunks(
+      String repoPath, Diff diff, List<DiffFile> diffFiles) {
+    // the hunkIndex of the diff hunk in the current file diff, start from 0
+    Integer hunkIndex = 0;
+
+    String baseFilePath = diff.getFromFileName();
+    String currentFilePath = diff.getToFileName();
+
+    List<String> headers = diff.getHeaderLines();
+    headers.add("--- " + baseFilePath);
+    headers.add("+++ " + currentFilePath);
+
+    DiffFile diffFile = null;
+    for (DiffFile file : diffFiles) {
+      if (removeVersionLabel(baseFilePath).equals(file.getBaseRelativePath())
+          && removeVersionLabel(currentFilePath).equals(file.getCurrentRelativePath())) {
+        diffFile = file;
+        break;
+      }
+    }
+
+    // currently we only process Java files
+    // reuse the type detected when collecting the diff file, instead of checking again
+    FileType fileType =
+        diffFile != null
+            ? diffFile.getFileType()
+            : baseFilePath.contains("/dev/null")
+                ? Utils.checkFileType(repoPath, currentFilePath) // ADDED/UNTRACKED
+                : Utils.checkFileType(repoPath, baseFilePath);
+
+    // raw lines of all hunks in one store, the code snippets and raw diffs are views of it
+    LineStore.Builder builder = new LineStore.Builder();
+    List<HunkLines> hunkLinesList = new ArrayList<>();
+    for (Hunk hunk : diff.getHunks()) {
+      hunkLinesList.add(splitHunkLines(hunk, builder));
+    }
+    LineStore store = builder.build();
+
+    // collect and save diff hunks into diff files
+    List<DiffHunk> diffHunksInFile = new ArrayList<>();
+    for (int i = 0; i < diff.getHunks().size(); ++i) {
+      Hunk hunk = diff.getHunks().get(i);
+      HunkLines hunkLines = hunkLinesList.get(i);
+      List<String> baseCodeLines = store.select(hunkLines.fromLines, 1);
+      List<String> currentCodeLines = store.select(hunkLines.toLines, 1);
+      int leadingNeutral = hunkLines.leadingNeutral;
+      int trailingNeutral = hunkLines.trailingNeutral;
+      com.github.smartcommit.model.Hunk baseHunk =
+          new com.github.smartcommit.model.Hunk(
+              Version.BASE,
+              removeVersionLabel(baseFilePath),
+              // with -U0, leadingNeutral = 0 = trailingNeutral
+              hunk.getFromFileRange().getLineStart() + leadingNeutral,
+              hunk.getFromFileRange().getLineStart()
+                  + leadingNeutral
+                  + hunk.getFromFileRange().getLineCount()
+                  - leadingNeutral
+                  - trailingNeutral
+                  - 1,
+              Utils.checkContentType(baseCodeLines),
+              baseCodeLines);
+      com.github.smartcommit.model.Hunk currentHunk =
+          new com.github.smartcommit.model.Hunk(
+              Version.CURRENT,
+              removeVersionLabel(currentFilePath),
+              hunk.getToFileRange().getLineStart() + leadingNeutral,
+              hunk.getToFileRange().getLineStart()
+                  + leadingNeutral
+                  + hunk.getToFileRange().getLineCount()
+                  - leadingNeutral
+                  - trailingNeutral
+                  - 1,
+              Utils.checkContentType(currentCodeLines),
+              currentCodeLines);
+      ChangeType changeType = ChangeType.MODIFIED;
+      if (baseCodeLines.isEmpty()) {
+        changeType = ChangeType.ADDED;
+      }
+      if (currentCodeLines.isEmpty()) {
+        changeType = ChangeType.DELETED;
+      }
+      DiffHunk diffHunk = new DiffHunk(hunkIndex, fileType, changeType, baseHunk, currentHunk);
+      diffHunk.setRawDiffs(store.range(hunkLines.start, hunkLines.end));
+      diffHunksInFile.add(diffHunk);
+      hunkIndex++;
+    }
+
+    // bidirectional binding
+    if (diffFile != null) {
+      int fileIndex = diffFile.getIndex();
+      diffHunksInFile.forEach(diffHunk -> diffHunk.setFileIndex(fileIndex));
+      diffFile.setDiffHunks(diffHunksInFile);
+      diffFile.setRawHeaders(headers);
+    }
+    return diffHunksInFile;
+  }
+
+  /** Lines of a hunk in the line store of the file */
+  private static class HunkLines {
+    // range of the raw lines, including the hunk header
+    private int start;
+    private int end;
+    private int leadingNeutral = 0;
+    private int trailingNeutral = 0;
+    private int[] fromLines;
+    private int[] toLines;
+  }
+
+  /**
+   * Add the raw lines of a hunk to the store, and split them into leading neutral, from, to and
+   * trailing neutral lines
+   *
+   * @param hunk
+   * @param builder
+   * @return
+   */
+  private HunkLines splitHunkLines(Hunk hunk, LineStore.Builder builder) {
+    HunkLines result = new HunkLines();
+    result.start = builder.size();
+    List<String> rawLines = hunk.getRawLines();
+    builder.add(rawLines.isEmpty() ? "" : rawLines.get(0));
+
+    List<Line> lines = hunk.getLines();
+    int[] fromLines = new int[lines.size()];
+    int[] toLines = new int[lines.size()];
+    int fromCount = 0;
+    int toCount = 0;
+    boolean trailing = false;
+    // to handle case where two neighboring diff hunks are merged if the lines between them are less
+    // than the -Ux
+    boolean isLastLineNeutral = true;
+    for (int i = 0; i < lines.size(); ++i) {
+      Line line = lines.get(i);
+      // the raw line, which is the content of a neutral line, or the content after "-" or "+"
+      int index = builder.size();
+      switch (line.getLineType()) {
+        case NEUTRAL:
+          builder.add(line.getContent());
+          boolean isNextLineNeutral = true;
+          if (!isLastLineNeutral) {
+            // check if the neutral lies between two non-netural lines
+            if (i + 1 < lines.size()) {
+              Line nextLine = lines.get(i + 1);
+              isNextLineNeutral = nextLine.getLineType().equals(Line.LineType.NEUTRAL);
+            }
+          }
+          if (!isLastLineNeutral && !isNextLineNeutral) {
+            isLastLineNeutral = true;
+            continue;
+          } else {
+            if (!line.getContent().trim().equals("\\ No newline at end of file")) {
+              if (trailing) {
+                result.trailingNeutral++;
+              } else {
+                result.leadingNeutral++;
+              }
+              isLastLineNeutral = true;
+            }
+          }
+          break;
+        case FROM:
+          builder.add('-', line.getContent());
+          fromLines[fromCount++] = index;
+          trailing = true;
+          isLastLineNeutral = false;
+          break;
+        case TO:
+          builder.add('+', line.getContent());
+          toLines[toCount++] = index;
+          trailing = true;
+          isLastLineNeutral = false;
+          break;
+      }
+    }
+    result.end = builder.size();
+    result.fromLines = Arrays.copyOf(fromLines, fromCount);
+    result.toLines = Arrays.copyOf(toLines, toCount);
+    return result;
+  }
+
+  /**
+   * Remove the "a/" or "b/" at the beginning of the path printed in Git
+   *
+   * @return
+   */
+  protected String removeVersionLabel(String gitFilePath) {
+    // quoted by git if the path has special chars
+    String trimmedPath = unquotePath(gitFilePath.trim());
+    if (trimmedPath.startsWith("a/") || trimmedPath.startsWith("b/")) {
+      return trimmedPath.substring(2);
+    }
+    if (trimmedPath.equals("/dev/null")) {
+      return "";
+    }
+    return trimmedPath;
+  }
+}
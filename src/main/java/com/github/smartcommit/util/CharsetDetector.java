@@ -0,0 +1,203 @@
+package com.github.smartcommit.util;
+
+import org.apache.log4j.Logger;
+import org.mozilla.universalchardet.UniversalDetector;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Detect the charset of text files (only UTF-8 and GBK are distinguished).
+ *
+ * <p>The content is read in chunks: pure ASCII or valid UTF-8 is recognized without running the
+ * detector, otherwise the detector is fed from the first non-UTF-8 chunk until it is confident. At
+ * most MAX_SAMPLE_BYTES are read per file. Results are cached by (path, size, mtime), and the cache
+ * is saved under ~/.smartcommit to be reused by later runs.
+ */
+public class CharsetDetector {
+  private static final Logger logger = Logger.getLogger(CharsetDetector.class);
+  private static final int CHUNK_SIZE = 8192;
+  // a file valid in UTF-8 in the first MiB is considered as UTF-8
+  private static final int MAX_SAMPLE_BYTES = 1 << 20;
+  private static final int MAX_CACHE_SIZE = 100000;
+  private static final String CACHE_PATH =
+      System.getProperty("user.home")
+          + File.separator
+          + ".smartcommit"
+          + File.separator
+          + "cache"
+          + File.separator
+          + "charsets.tsv";
+
+  // size \t mtime \t absolute path : charset, in access order to evict the least recently used
+  private static final Map<String, Charset> cache =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, Charset>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Charset> eldest) {
+              return size() > MAX_CACHE_SIZE;
+            }
+          });
+  private static boolean cacheLoaded = false;
+  private static volatile boolean cacheChanged = false;
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(CharsetDetector::saveCache));
+  }
+
+  /**
+   * Detect the charset of a file on disk, with the cache
+   *
+   * @param filePath
+   * @return UTF-8 if not detected
+   */
+  public static Charset detect(String filePath) {
+    try {
+      Path path = Paths.get(filePath).toAbsolutePath();
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      String key =
+          attributes.size() + "\t" + attributes.lastModifiedTime().toMillis() + "\t" + path;
+      loadCache();
+      Charset charset = cache.get(key);
+      if (charset == null) {
+        try (InputStream in = Files.newInputStream(path)) {
+          charset = detect(in);
+        }
+        if (key.indexOf('\n') < 0) {
+          cache.put(key, charset);
+          cacheChanged = true;
+        }
+      }
+      return charset;
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return StandardCharsets.UTF_8;
+  }
+
+  /**
+   * Detect the charset of the content in memory
+   *
+   * @param content
+   * @return UTF-8 if not detected
+   */
+  public static Charset detect(byte[] content) {
+    try {
+      return detect(new ByteArrayInputStream(content));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return StandardCharsets.UTF_8;
+  }
+
+  private static Charset detect(InputStream in) throws IOException {
+    byte[] buffer = new byte[CHUNK_SIZE];
+    Utf8Validator validator = new Utf8Validator();
+    UniversalDetector detector = null;
+    int read = 0;
+    int n;
+    while (read < MAX_SAMPLE_BYTES && (n = in.read(buffer)) != -1) {
+      read += n;
+      if (detector == null) {
+        if (validator.accept(buffer, n)) {
+          continue;
+        }
+        detector = new UniversalDetector(null);
+      }
+      detector.handleData(buffer, 0, n);
+      if (detector.isDone()) {
+        break;
+      }
+    }
+    if (detector == null) {
+      // pure ASCII or valid UTF-8
+      return StandardCharsets.UTF_8;
+    }
+    detector.dataEnd();
+    String detectorCode = detector.getDetectedCharset();
+    if (detectorCode != null && detectorCode.startsWith("GB")) {
+      return Charset.forName("GBK");
+    }
+    return StandardCharsets.UTF_8;
+  }
+
+  /** Check if the bytes are valid UTF-8 chunk by chunk, sequences may span two chunks */
+  private static class Utf8Validator {
+    // number of continuation bytes expected
+    private int pending = 0;
+
+    boolean accept(byte[] bytes, int length) {
+      for (int i = 0; i < length; ++i) {
+        int b = bytes[i] & 0xFF;
+        if (pending > 0) {
+          if ((b & 0xC0) != 0x80) {
+            return false;
+          }
+          pending--;
+        } else if (b >= 0x80) {
+          if (b >= 0xC2 && b <= 0xDF) {
+            pending = 1;
+          } else if (b >= 0xE0 && b <= 0xEF) {
+            pending = 2;
+          } else if (b >= 0xF0 && b <= 0xF4) {
+            pending = 3;
+          } else {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  private static synchronized void loadCache() {
+    if (cacheLoaded) {
+      return;
+    }
+    cacheLoaded = true;
+    File file = new File(CACHE_PATH);
+    if (!file.exists()) {
+      return;
+    }
+    try (BufferedReader reader =
+        Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        // charset \t size \t mtime \t path
+        int split = line.indexOf('\t');
+        if (split > 0) {
+          cache.put(line.substring(split + 1), Charset.forName(line.substring(0, split)));
+        }
+      }
+    } catch (Exception e) {
+      logger.warn("Failed to load the charset cache: " + e.getMessage());
+    }
+  }
+
+  /** Save the cache to disk if anything new is detected */
+  public static synchronized void saveCache() {
+    if (!cacheChanged) {
+      return;
+    }
+    File file = new File(CACHE_PATH);
+    file.getParentFile().mkdirs();
+    try (BufferedWriter writer =
+        Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      synchronized (cache) {
+        for (Map.Entry<String, Charset> entry : cache.entrySet()) {
+          writer.write(entry.getValue().name() + "\t" + entry.getKey());
+          writer.newLine();
+        }
+      }
+      cacheChanged = false;
+    } catch (IOException e) {
+      logger.warn("Failed to save the charset cache: " + e.getMessage());
+    }
+  }
+}
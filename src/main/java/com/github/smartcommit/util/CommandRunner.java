@@ -0,0 +1,224 @@
+package com.github.smartcommit.util;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+
+/**
+ * Run external commands (mainly git) safely:
+ *
+ * <ul>
+ *   <li>stdout and stderr are drained concurrently, so the process never blocks on a full pipe
+ *   <li>stdout is kept as raw bytes (decoded by the caller with the right charset), or streamed to
+ *       a reader without being buffered at all
+ *   <li>the process is waited for with a timeout and always reaped (killed if still running)
+ * </ul>
+ */
+public class CommandRunner {
+  private static final Logger logger = Logger.getLogger(CommandRunner.class);
+  public static final long DEFAULT_TIMEOUT_SECONDS = 300L;
+
+  // daemon threads to drain the streams
+  private static final ExecutorService drainers =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "command-drainer");
+            thread.setDaemon(true);
+            return thread;
+          });
+  // daemon thread to kill the streamed processes on timeout
+  private static final ScheduledExecutorService watchdog =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "command-watchdog");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** Read the stdout of a running process */
+  public interface OutputReader<T> {
+    T read(InputStream stdout) throws IOException;
+  }
+
+  /** Exit code and outputs of a finished command */
+  public static class Result {
+    private final int exitCode;
+    private final byte[] stdout;
+    private final String stderr;
+    private final boolean timedOut;
+
+    Result(int exitCode, byte[] stdout, String stderr, boolean timedOut) {
+      this.exitCode = exitCode;
+      this.stdout = stdout;
+      this.stderr = stderr;
+      this.timedOut = timedOut;
+    }
+
+    public int getExitCode() {
+      return exitCode;
+    }
+
+    public byte[] getStdout() {
+      return stdout;
+    }
+
+    public String getStderr() {
+      return stderr;
+    }
+
+    public boolean isTimedOut() {
+      return timedOut;
+    }
+
+    public boolean isSuccess() {
+      return !timedOut && exitCode == 0;
+    }
+
+    /**
+     * Decode the stdout with the given charset
+     *
+     * @param charset
+     * @return
+     */
+    public String getOutput(Charset charset) {
+      return new String(stdout, charset);
+    }
+  }
+
+  /**
+   * Run the command under the given dir with the default timeout
+   *
+   * @param dir
+   * @param commands
+   * @return the result, with exit code -1 if the command cannot be started
+   */
+  public static Result run(String dir, String... commands) {
+    return run(dir, DEFAULT_TIMEOUT_SECONDS, commands);
+  }
+
+  /**
+   * Run the command under the given dir, collect the stdout as bytes
+   *
+   * @param dir
+   * @param timeoutSeconds kill the process after that
+   * @param commands
+   * @return the result, with exit code -1 if the command cannot be started
+   */
+  public static Result run(String dir, long timeoutSeconds, String... commands) {
+    Process process;
+    try {
+      process = new ProcessBuilder(commands).directory(new File(dir)).start();
+    } catch (IOException e) {
+      e.printStackTrace();
+      return new Result(-1, new byte[0], e.getMessage(), false);
+    }
+    closeStdin(process);
+    Future<byte[]> stdout = drain(process.getInputStream());
+    Future<byte[]> stderr = drain(process.getErrorStream());
+    boolean timedOut = !waitFor(process, timeoutSeconds);
+    Result result =
+        new Result(
+            timedOut ? -1 : process.exitValue(),
+            getQuietly(stdout),
+            new String(getQuietly(stderr), StandardCharsets.UTF_8),
+            timedOut);
+    if (timedOut) {
+      logger.warn("Timeout after " + timeoutSeconds + "s: " + String.join(" ", commands));
+    }
+    return result;
+  }
+
+  /**
+   * Run the command under the given dir and pass its stdout to the reader as a stream, e.g. to
+   * parse a large diff without buffering it in memory
+   *
+   * @param dir
+   * @param timeoutSeconds kill the process after that
+   * @param reader consumes the stdout in the calling thread
+   * @param commands
+   * @return the value returned by the reader
+   * @throws IOException if the command cannot be started, fails or times out
+   */
+  public static <T> T runAndRead(
+      String dir, long timeoutSeconds, OutputReader<T> reader, String... commands)
+      throws IOException {
+    Process process = new ProcessBuilder(commands).directory(new File(dir)).start();
+    closeStdin(process);
+    Future<byte[]> stderr = drain(process.getErrorStream());
+    // the reader may block on the stream forever if the process hangs, so kill it on timeout
+    ScheduledFuture<?> killer =
+        watchdog.schedule(process::destroyForcibly, timeoutSeconds, TimeUnit.SECONDS);
+    try (InputStream stdout = process.getInputStream()) {
+      T value = reader.read(stdout);
+      // consume what the reader left, so that the process can exit
+      IOUtils.skip(stdout, Long.MAX_VALUE);
+      if (!waitFor(process, timeoutSeconds) || killer.isDone()) {
+        throw new IOException(
+            "Timeout after " + timeoutSeconds + "s: " + String.join(" ", commands));
+      }
+      if (process.exitValue() != 0) {
+        throw new IOException(
+            String.join(" ", commands)
+                + " exited with "
+                + process.exitValue()
+                + ": "
+                + new String(getQuietly(stderr), StandardCharsets.UTF_8).trim());
+      }
+      return value;
+    } finally {
+      killer.cancel(false);
+      process.destroyForcibly();
+    }
+  }
+
+  private static void closeStdin(Process process) {
+    try {
+      process.getOutputStream().close();
+    } catch (IOException ignored) {
+    }
+  }
+
+  private static Future<byte[]> drain(InputStream stream) {
+    return drainers.submit(
+        () -> {
+          try (InputStream in = stream) {
+            return IOUtils.toByteArray(in);
+          }
+        });
+  }
+
+  /**
+   * Wait for the process to exit, kill it on timeout
+   *
+   * @return false if timeout
+   */
+  private static boolean waitFor(Process process, long timeoutSeconds) {
+    try {
+      if (process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    process.destroyForcibly();
+    return false;
+  }
+
+  private static byte[] getQuietly(Future<byte[]> future) {
+    try {
+      // the streams are closed once the process is dead
+      return future.get(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      logger.warn("Failed to read the output: " + e.getMessage());
+    }
+    return new byte[0];
+  }
+}
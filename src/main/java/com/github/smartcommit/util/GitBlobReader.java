@@ -0,0 +1,222 @@
+package com.github.smartcommit.util;
+
+import org.apache.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read blob contents through one long-lived `git cat-file --batch` process per repository, instead
+ * of forking `git show <rev>:<path>` for every file.
+ *
+ * <p>Requests are written in a pipeline (by a separate thread, so that neither side blocks on a
+ * full pipe), and the framed replies "<sha> <type> <size>\n<content>\n" are read back as raw bytes.
+ */
+public class GitBlobReader implements Closeable {
+  private static final Logger logger = Logger.getLogger(GitBlobReader.class);
+  // repoPath : reader
+  private static final Map<String, GitBlobReader> readers = new ConcurrentHashMap<>();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(GitBlobReader::closeAll));
+  }
+
+  private final String repoPath;
+  private final Process process;
+  private final OutputStream stdin;
+  private final InputStream stdout;
+
+  public GitBlobReader(String repoPath) throws IOException {
+    this.repoPath = repoPath;
+    this.process =
+        new ProcessBuilder("git", "--no-optional-locks", "cat-file", "--batch")
+            .directory(new File(repoPath))
+            .start();
+    this.stdin = new BufferedOutputStream(process.getOutputStream());
+    this.stdout = new BufferedInputStream(process.getInputStream());
+    // drain stderr to avoid blocking the process
+    Thread errorDrainer =
+        new Thread(
+            () -> {
+              try (BufferedReader reader =
+                  new BufferedReader(
+                      new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                  logger.warn("git cat-file: " + line);
+                }
+              } catch (IOException ignored) {
+              }
+            });
+    errorDrainer.setDaemon(true);
+    errorDrainer.start();
+  }
+
+  /**
+   * Get the shared reader of the given repository, (re)start the process if necessary
+   *
+   * @param repoPath
+   * @return null if the process cannot be started
+   */
+  public static GitBlobReader of(String repoPath) {
+    GitBlobReader reader = readers.get(repoPath);
+    if (reader != null && reader.isAlive()) {
+      return reader;
+    }
+    try {
+      reader = new GitBlobReader(repoPath);
+      readers.put(repoPath, reader);
+      return reader;
+    } catch (IOException e) {
+      logger.error("Failed to start git cat-file in: " + repoPath, e);
+      return null;
+    }
+  }
+
+  /** Close all the shared readers */
+  public static void closeAll() {
+    for (GitBlobReader reader : readers.values()) {
+      reader.close();
+    }
+    readers.clear();
+  }
+
+  public boolean isAlive() {
+    try {
+      process.exitValue();
+      return false;
+    } catch (IllegalThreadStateException e) {
+      return true;
+    }
+  }
+
+  /**
+   * Read a batch of objects in one pipeline
+   *
+   * @param objectNames object names like "HEAD:path/to/File.java" or blob ids
+   * @return objectName : content, missing objects are absent from the map
+   */
+  public synchronized Map<String, byte[]> readBlobs(List<String> objectNames) throws IOException {
+    Map<String, byte[]> results = new HashMap<>();
+    if (objectNames.isEmpty()) {
+      return results;
+    }
+    // write requests in another thread, since git may fill up stdout before reading all of them
+    IOException[] writeError = new IOException[1];
+    Thread writer =
+        new Thread(
+            () -> {
+              try {
+                for (String name : objectNames) {
+                  stdin.write((name + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+                stdin.flush();
+              } catch (IOException e) {
+                writeError[0] = e;
+              }
+            });
+    writer.setDaemon(true);
+    writer.start();
+
+    // replies come back in the same order as requests
+    try {
+      for (String name : objectNames) {
+        String header = readHeader();
+        if (header == null) {
+          throw new EOFException("git cat-file exited unexpectedly in: " + repoPath);
+        }
+        // <object> missing / <object> ambiguous
+        if (header.endsWith(" missing") || header.endsWith(" ambiguous")) {
+          continue;
+        }
+        byte[] content = new byte[parseSize(header)];
+        readFully(content);
+        // skip the LF after the content
+        if (stdout.read() != '\n') {
+          throw new IOException("Unterminated object from git cat-file in: " + repoPath);
+        }
+        results.put(name, content);
+      }
+    } catch (IOException e) {
+      // the replies left in the pipe would be taken for the ones of the next requests
+      close();
+      throw e;
+    }
+
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (writeError[0] != null) {
+      throw writeError[0];
+    }
+    return results;
+  }
+
+  /**
+   * Read one object
+   *
+   * @param objectName
+   * @return null if missing
+   */
+  public byte[] readBlob(String objectName) throws IOException {
+    return readBlobs(Collections.singletonList(objectName)).get(objectName);
+  }
+
+  /**
+   * Parse the size from the header of an object reply
+   *
+   * @param header "<oid> <type> <size>"
+   * @return
+   * @throws IOException if the header is malformed, i.e. the stream is out of sync
+   */
+  private int parseSize(String header) throws IOException {
+    String[] fields = header.split(" ");
+    if (fields.length == 3
+        && fields[0].matches("[0-9a-f]{40,64}")
+        && fields[2].matches("\\d{1,10}")) {
+      long size = Long.parseLong(fields[2]);
+      if (size <= Integer.MAX_VALUE) {
+        return (int) size;
+      }
+    }
+    throw new IOException("Unexpected reply from git cat-file in " + repoPath + ": " + header);
+  }
+
+  private String readHeader() throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+    int b;
+    while ((b = stdout.read()) != -1) {
+      if (b == '\n') {
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+      }
+      buffer.write(b);
+    }
+    return null;
+  }
+
+  private void readFully(byte[] content) throws IOException {
+    int offset = 0;
+    while (offset < content.length) {
+      int n = stdout.read(content, offset, content.length - offset);
+      if (n < 0) {
+        throw new EOFException("Truncated object from git cat-file in: " + repoPath);
+      }
+      offset += n;
+    }
+  }
+
+  /** Stop the process, the next {@link #of(String)} starts a new one */
+  @Override
+  public void close() {
+    readers.remove(repoPath, this);
+    try {
+      stdin.close();
+    } catch (IOException ignored) {
+    }
+    process.destroy();
+  }
+}
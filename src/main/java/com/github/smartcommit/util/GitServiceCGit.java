@@ -1,153 +1,380 @@
 package com.github.smartcommit.util;
 
-import com.github.smartcommit.model.Action;
+import com.github.smartcommit.model.ContentHandle;
 import com.github.smartcommit.model.DiffFile;
 import com.github.smartcommit.model.DiffHunk;
 import com.github.smartcommit.model.constant.*;
-import com.github.smartcommit.util.diffparser.api.DiffParser;
-import com.github.smartcommit.util.diffparser.api.UnifiedDiffParser;
-import com.github.smartcommit.util.diffparser.api.model.Diff;
-import com.github.smartcommit.util.diffparser.api.model.Hunk;
-import com.github.smartcommit.util.diffparser.api.model.Line;
+import com.google.common.base.Stopwatch;
+import org.apache.log4j.Logger;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
 /** Implementation of helper functions based on the output of git commands. */
-public class GitServiceCGit implements GitService {
+public class GitServiceCGit extends AbstractGitService {
+  private static final Logger logger = Logger.getLogger(GitServiceCGit.class);
+  // max number of paths in one `git hash-object`
+  private static final int HASH_BATCH_SIZE = 256;
+
+  // read contents with one `git cat-file --batch` process, fall back to `git show` per file
+  private boolean catFileBatchEnabled = true;
+
+  // diff the working tree with one git-diff invocation, instead of one per file
+  private boolean singleDiffEnabled = true;
+
+  // parse `git status --porcelain=v2 -z` and leave the index untouched,
+  // instead of resetting the index and parsing `git status --porcelain`
+  private boolean porcelainV2Enabled = true;
+
+  // number of threads to classify and read the changed files, 1 to run sequentially
+  private int threadNum = Runtime.getRuntime().availableProcessors();
+
+  public void setCatFileBatchEnabled(boolean catFileBatchEnabled) {
+    this.catFileBatchEnabled = catFileBatchEnabled;
+  }
+
+  public void setPorcelainV2Enabled(boolean porcelainV2Enabled) {
+    this.porcelainV2Enabled = porcelainV2Enabled;
+  }
+
+  public void setSingleDiffEnabled(boolean singleDiffEnabled) {
+    this.singleDiffEnabled = singleDiffEnabled;
+  }
+
+  public void setThreadNum(int threadNum) {
+    this.threadNum = threadNum;
+  }
+
+  /** One changed file parsed from the git output, before its contents are read */
+  private static class ChangeEntry {
+    FileStatus status;
+    FileType fileType;
+    String oldPath; // empty if not exists in base
+    String newPath; // empty if not exists in current
+
+    ChangeEntry(FileStatus status, String oldPath, String newPath) {
+      this.status = status;
+      this.oldPath = oldPath;
+      this.newPath = newPath;
+    }
+  }
+
   /**
-   * Get the diff files in the current working tree
+   * Parse one line of `git status --porcelain` or `git diff --name-status`
    *
-   * @return
+   * @param line
+   * @return null if the status is not considered
    */
-  @Override
-  public ArrayList<DiffFile> getChangedFilesInWorkingTree(String repoPath) {
+  private ChangeEntry parseStatusLine(String line) {
+    String[] temp = line.trim().split("\\s+");
+    // paths with special chars (e.g. non-ASCII, tabs, quotes) are quoted with core.quotePath
+    for (int i = 1; i < temp.length; ++i) {
+      temp[i] = unquotePath(temp[i]);
+    }
+    FileStatus status = Utils.convertSymbolToStatus(temp[0]);
+    switch (status) {
+      case MODIFIED:
+        return new ChangeEntry(status, temp[1], temp[1]);
+      case ADDED:
+      case UNTRACKED:
+        return new ChangeEntry(status, "", temp[1]);
+      case DELETED:
+        return new ChangeEntry(status, temp[1], "");
+      case RENAMED:
+      case COPIED:
+        if (temp.length == 4) {
+          // C/R aaa -> bbb
+          return new ChangeEntry(status, temp[1], temp[3]);
+        } else if (temp.length == 3) {
+          // CXX/RXX aaa bbb
+          return new ChangeEntry(status, temp[1], temp[2]);
+        }
+        return null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Unstage all the changes and parse `git status --porcelain`, which is split by whitespaces
+   *
+   * @return changes between HEAD and the working tree
+   */
+  private List<ChangeEntry> getChangesByStatus(String repoPath) {
     // unstage the staged files first
-    //    Utils.runSystemCommand(repoPath, "git", "restore", "--staged", ".");
-    Utils.runSystemCommand(repoPath, StandardCharsets.UTF_8, "git", "reset", "HEAD", ".");
+    //    runGit(repoPath, "restore", "--staged", ".");
+    runGit(repoPath, StandardCharsets.UTF_8, "reset", "HEAD", ".");
 
-    ArrayList<DiffFile> diffFileList = new ArrayList<>();
     // run git status --porcelain to get changeset
     String output =
-        Utils.runSystemCommand(
-            repoPath, StandardCharsets.UTF_8, "git", "status", "--porcelain", "-uall");
-    // early return
-    if (output.isEmpty()) {
-      // working tree clean
-      return new ArrayList<>();
+        runGit(
+            repoPath,
+            StandardCharsets.UTF_8,
+            "--no-optional-locks",
+            "-c",
+            "core.quotePath=true",
+            "status",
+            "--porcelain",
+            "-uall");
+    List<ChangeEntry> entries = new ArrayList<>();
+    String[] lines = output.split("\\r?\\n");
+    for (String line : lines) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      ChangeEntry entry = parseStatusLine(line);
+      if (entry != null) {
+        entries.add(entry);
+      }
     }
-    // ! use an independent incremental index to avoid index jump in case of invalid status output
-    // only increment index when creating new diff file
-    int fileIndex = 0;
+    return entries;
+  }
 
-    String[] lines = output.split("\\r?\\n");
-    for (int i = 0; i < lines.length; i++) {
-      String[] temp = lines[i].trim().split("\\s+");
-      String symbol = temp[0];
-      String relativePath = temp[1];
-      FileType fileType = Utils.checkFileType(repoPath, relativePath);
-      String absolutePath = repoPath + File.separator + relativePath;
-      FileStatus status = Utils.convertSymbolToStatus(symbol);
-      DiffFile DiffFile = null;
-      Charset charset = StandardCharsets.UTF_8;
-      switch (status) {
-        case MODIFIED:
-          charset = Utils.detectCharset(absolutePath);
-          DiffFile =
-              new DiffFile(
-                  fileIndex++,
-                  status,
-                  fileType,
-                  charset,
-                  relativePath,
-                  relativePath,
-                  (fileType == FileType.BIN
-                      ? ""
-                      : getContentAtHEAD(charset, repoPath, relativePath)),
-                  (fileType == FileType.BIN ? "" : Utils.readFileToString(absolutePath)));
-          break;
-        case ADDED:
-        case UNTRACKED:
-          charset = Utils.detectCharset(absolutePath);
-          DiffFile =
-              new DiffFile(
-                  fileIndex++,
-                  status,
-                  fileType,
-                  charset,
-                  "",
-                  relativePath,
-                  "",
-                  (fileType == FileType.BIN ? "" : Utils.readFileToString(absolutePath)));
-          break;
-        case DELETED:
-          // charset and filetype of the deleted is hard to detect
-          if (checkBinaryFileByDiff(repoPath, relativePath, charset)) {
-            fileType = FileType.BIN;
+  /**
+   * Parse `git status --porcelain=v2 -z` without touching the index (no reset, no index refresh).
+   * The X (staged) and Y (unstaged) states are combined to compare HEAD with the working tree
+   * directly, as if nothing is staged.
+   *
+   * @return changes between HEAD and the working tree, in the order of git status
+   */
+  private List<ChangeEntry> getChangesByStatusV2(String repoPath) {
+    String output =
+        runGit(
+            repoPath,
+            StandardCharsets.UTF_8,
+            "--no-optional-locks",
+            "status",
+            "--porcelain=v2",
+            "-z",
+            "-uall");
+    // path : whether it exists in HEAD
+    Map<String, Boolean> inHead = new LinkedHashMap<>();
+    // paths only added to the index
+    Set<String> staged = new HashSet<>();
+    // path : blob id in HEAD, for paths changed both in the index and the working tree, which may
+    // be the same as HEAD in the end (e.g. a staged change reverted, or `git rm --cached`)
+    Map<String, String> headIds = new HashMap<>();
+    String[] records = output.split("\0");
+    for (int i = 0; i < records.length; ++i) {
+      String record = records[i];
+      if (record.length() < 2) {
+        continue;
+      }
+      switch (record.charAt(0)) {
+        case '1':
+          {
+            // 1 <XY> <sub> <mH> <mI> <mW> <hH> <hI> <path>
+            String[] fields = record.split(" ", 9);
+            if (fields.length < 9 || !fields[2].equals("N...")) {
+              // submodules are not considered
+              continue;
+            }
+            boolean existsInHead = !fields[3].equals("000000");
+            inHead.put(fields[8], existsInHead);
+            if (!existsInHead) {
+              staged.add(fields[8]);
+            } else if (fields[1].charAt(0) != '.' && fields[1].charAt(1) != '.'
+                || fields[1].charAt(0) == 'D') {
+              headIds.put(fields[8], fields[6]);
+            }
+            break;
           }
-          DiffFile =
-              new DiffFile(
-                  fileIndex++,
-                  status,
-                  fileType,
-                  StandardCharsets.UTF_8,
-                  relativePath,
-                  "",
-                  (fileType == FileType.BIN
-                      ? ""
-                      : getContentAtHEAD(charset, repoPath, relativePath)),
-                  "");
-          break;
-        case RENAMED:
-        case COPIED:
-          if (temp.length == 4) {
-            // C/R aaa -> bbb
-            String oldPath = temp[1];
-            String newPath = temp[3];
-            fileType = Utils.checkFileType(repoPath, newPath);
-            String newAbsPath = repoPath + File.separator + newPath;
-            charset = Utils.detectCharset(absolutePath);
-            DiffFile =
-                new DiffFile(
-                    fileIndex++,
-                    status,
-                    fileType,
-                    charset,
-                    oldPath,
-                    newPath,
-                    (fileType == FileType.BIN ? "" : getContentAtHEAD(charset, repoPath, oldPath)),
-                    (fileType == FileType.BIN ? "" : Utils.readFileToString(newAbsPath)));
-          } else if (temp.length == 3) {
-            // CXX/RXX aaa bbb
-            String oldPath = temp[1];
-            String newPath = temp[2];
-            fileType = Utils.checkFileType(repoPath, newPath);
-            String newAbsPath = repoPath + File.separator + newPath;
-            charset = Utils.detectCharset(absolutePath);
-            DiffFile =
-                new DiffFile(
-                    fileIndex++,
-                    status,
-                    fileType,
-                    charset,
-                    oldPath,
-                    newPath,
-                    (fileType == FileType.BIN ? "" : getContentAtHEAD(charset, repoPath, oldPath)),
-                    (fileType == FileType.BIN ? "" : Utils.readFileToString(newAbsPath)));
+        case '2':
+          {
+            // 2 <XY> <sub> <mH> <mI> <mW> <hH> <hI> <X><score> <path>\0<origPath>
+            String[] fields = record.split(" ", 10);
+            String origPath = i + 1 < records.length ? records[++i] : "";
+            if (fields.length < 10 || !fields[2].equals("N...")) {
+              continue;
+            }
+            // staged renames/copies are not considered, compare the two paths separately
+            if (!origPath.isEmpty()) {
+              inHead.put(origPath, true);
+            }
+            inHead.putIfAbsent(fields[9], false);
+            staged.add(fields[9]);
+            break;
           }
+        case 'u':
+          {
+            // u <XY> <sub> <m1> <m2> <m3> <mW> <h1> <h2> <h3> <path>
+            String[] fields = record.split(" ", 11);
+            if (fields.length < 11 || !fields[2].equals("N...")) {
+              continue;
+            }
+            // stage 2 is the HEAD version, compared with the working tree as a modification
+            boolean existsInHead = !fields[4].equals("000000");
+            inHead.put(fields[10], existsInHead);
+            if (!existsInHead) {
+              staged.add(fields[10]);
+            }
+            break;
+          }
+        case '?':
+          // ? <path>, may also be deleted from the index (exists in HEAD) with `git rm --cached`
+          inHead.putIfAbsent(record.substring(2), false);
           break;
         default:
+          // ! (ignored) is not considered
           break;
       }
-      if (DiffFile != null) {
-        diffFileList.add(DiffFile);
+    }
+
+    // hash the files that may be the same as HEAD in one batch
+    List<String> hashedPaths = new ArrayList<>();
+    for (String path : headIds.keySet()) {
+      if (new File(repoPath, path).isFile()) {
+        hashedPaths.add(path);
+      }
+    }
+    Map<String, String> workingTreeIds = hashObjects(repoPath, hashedPaths);
+
+    List<ChangeEntry> entries = new ArrayList<>();
+    for (Map.Entry<String, Boolean> entry : inHead.entrySet()) {
+      String path = entry.getKey();
+      boolean existsInHead = entry.getValue();
+      boolean existsInWorkingTree = new File(repoPath, path).isFile();
+      if (existsInHead && existsInWorkingTree) {
+        if (headIds.containsKey(path) && headIds.get(path).equals(workingTreeIds.get(path))) {
+          // unchanged since HEAD
+          continue;
+        }
+        entries.add(new ChangeEntry(FileStatus.MODIFIED, path, path));
+      } else if (existsInHead) {
+        entries.add(new ChangeEntry(FileStatus.DELETED, path, ""));
+      } else if (existsInWorkingTree) {
+        entries.add(
+            new ChangeEntry(
+                staged.contains(path) ? FileStatus.ADDED : FileStatus.UNTRACKED, "", path));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Compute the git blob ids of files in the working tree with `git hash-object`, which applies
+   * the filters of each path (e.g. autocrlf, LFS) as `git add` does
+   *
+   * @param paths relative paths of existing files
+   * @return path : SHA-1 in hex, without the paths failed to hash
+   */
+  private Map<String, String> hashObjects(String repoPath, List<String> paths) {
+    Map<String, String> ids = new HashMap<>();
+    // in batches to keep the command line short
+    for (int from = 0; from < paths.size(); from += HASH_BATCH_SIZE) {
+      List<String> batch = paths.subList(from, Math.min(from + HASH_BATCH_SIZE, paths.size()));
+      String[] args = new String[batch.size() + 3];
+      args[0] = "--no-optional-locks";
+      args[1] = "hash-object";
+      args[2] = "--";
+      for (int i = 0; i < batch.size(); ++i) {
+        args[i + 3] = batch.get(i);
+      }
+      // one id per line, in the order of the paths
+      String[] lines = runGit(repoPath, StandardCharsets.UTF_8, args).split("\\r?\\n");
+      if (lines.length != batch.size()) {
+        continue;
+      }
+      for (int i = 0; i < batch.size(); ++i) {
+        ids.put(batch.get(i), lines[i].trim());
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Get the diff files in the current working tree
+   *
+   * @return
+   */
+  @Override
+  public ArrayList<DiffFile> getChangedFilesInWorkingTree(String repoPath) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    List<ChangeEntry> entries =
+        porcelainV2Enabled ? getChangesByStatusV2(repoPath) : getChangesByStatus(repoPath);
+    // early return
+    if (entries.isEmpty()) {
+      // working tree clean
+      return new ArrayList<>();
+    }
+    long statusTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+    // classify all the tracked files in one pass
+    Map<String, FileType> fileTypes = classifyChangedFiles(repoPath, "HEAD");
+    for (ChangeEntry entry : entries) {
+      entry.fileType = getFileType(fileTypes, repoPath, entry);
+    }
+    long classifyTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+    // read the HEAD version of all text files in one batch
+    List<String> objectNames = new ArrayList<>();
+    for (ChangeEntry entry : entries) {
+      if (!entry.oldPath.isEmpty() && entry.fileType != FileType.BIN) {
+        objectNames.add("HEAD:" + entry.oldPath);
       }
     }
+    Map<String, byte[]> blobs = readBlobsInBatch(repoPath, objectNames);
+    long readTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+    // ! use an independent incremental index to avoid index jump in case of invalid status output
+    // the index is the position in the (ordered) entries, no matter which thread creates the file
+    List<Integer> indices = new ArrayList<>();
+    for (int i = 0; i < entries.size(); ++i) {
+      indices.add(i);
+    }
+    List<DiffFile> diffFiles =
+        mapInParallel(
+            indices,
+            fileIndex -> {
+              ChangeEntry entry = entries.get(fileIndex);
+              boolean isBinary = entry.fileType == FileType.BIN;
+              Charset charset = StandardCharsets.UTF_8;
+              if (!entry.newPath.isEmpty()) {
+                charset = Utils.detectCharset(repoPath + File.separator + entry.newPath);
+              }
+              ContentHandle baseContent =
+                  isBinary || entry.oldPath.isEmpty()
+                      ? new ContentHandle("")
+                      : getContentHandle(blobs, charset, repoPath, "HEAD", entry.oldPath);
+              String currentPath = repoPath + File.separator + entry.newPath;
+              ContentHandle currentContent =
+                  isBinary || entry.newPath.isEmpty()
+                      ? new ContentHandle("")
+                      : new ContentHandle(
+                          Utils.readFileToString(currentPath),
+                          ContentHandle.fileLoader(currentPath, StandardCharsets.UTF_8));
+              return new DiffFile(
+                  fileIndex,
+                  entry.status,
+                  entry.fileType,
+                  charset,
+                  entry.oldPath,
+                  entry.newPath,
+                  baseContent,
+                  currentContent);
+            });
     // assert: diffFileList.size() == fileIndex + 1
+    ArrayList<DiffFile> diffFileList = new ArrayList<>(diffFiles);
+
+    logger.info(
+        "Collected "
+            + diffFileList.size()
+            + " changed files with "
+            + threadNum
+            + " threads, status: "
+            + statusTime
+            + "ms, classify: "
+            + (classifyTime - statusTime)
+            + "ms, read HEAD: "
+            + (readTime - classifyTime)
+            + "ms, materialize: "
+            + (stopwatch.elapsed(TimeUnit.MILLISECONDS) - readTime)
+            + "ms");
     return diffFileList;
   }
 
@@ -161,10 +388,12 @@ public class GitServiceCGit implements GitService {
     // git diff <start_commit> <end_commit>
     // on Windows the ~ character must be used instead of ^
     String output =
-        Utils.runSystemCommand(
+        runGit(
             repoPath,
             StandardCharsets.UTF_8,
-            "git",
+            "--no-optional-locks",
+            "-c",
+            "core.quotePath=true",
             "diff",
             "--name-status",
             commitID + "~",
@@ -173,379 +402,204 @@ public class GitServiceCGit implements GitService {
     if (output.trim().isEmpty()) {
       return new ArrayList<>();
     }
-    ArrayList<DiffFile> diffFileList = new ArrayList<>();
+
+    List<ChangeEntry> entries = new ArrayList<>();
     String[] lines = output.split("\\r?\\n");
+    for (String line : lines) {
+      ChangeEntry entry = parseStatusLine(line);
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }
+    Map<String, FileType> fileTypes = classifyChangedFiles(repoPath, commitID + "~", commitID);
+    for (ChangeEntry entry : entries) {
+      entry.fileType = getFileType(fileTypes, repoPath, entry);
+    }
+
+    // read both versions of all text files in one batch
+    List<String> objectNames = new ArrayList<>();
+    for (ChangeEntry entry : entries) {
+      if (entry.fileType == FileType.BIN) {
+        continue;
+      }
+      if (!entry.oldPath.isEmpty()) {
+        objectNames.add(commitID + "~:" + entry.oldPath);
+      }
+      if (!entry.newPath.isEmpty()) {
+        objectNames.add(commitID + ":" + entry.newPath);
+      }
+    }
+    Map<String, byte[]> blobs = readBlobsInBatch(repoPath, objectNames);
+
+    ArrayList<DiffFile> diffFileList = new ArrayList<>();
     // ! use an independent incremental index to avoid index jump in case of invalid status output
     // only increment index when creating new diff file
     int fileIndex = 0;
-    for (int i = 0; i < lines.length; i++) {
-      String[] temp = lines[i].trim().split("\\s+");
-      String symbol = temp[0];
-      String relativePath = temp[1];
-      FileType fileType = Utils.checkFileType(repoPath, relativePath);
-      //                        String absolutePath = repoDir + File.separator + relativePath;
-      FileStatus status = Utils.convertSymbolToStatus(symbol);
-      DiffFile diffFile = null;
-      Charset charset = StandardCharsets.UTF_8;
-      switch (status) {
-        case MODIFIED:
-          diffFile =
-              new DiffFile(
-                  fileIndex++,
-                  status,
-                  fileType,
-                  charset,
-                  relativePath,
-                  relativePath,
-                  (fileType == FileType.BIN
-                      ? ""
-                      : getContentAtCommit(charset, repoPath, relativePath, commitID + "~")),
-                  (fileType == FileType.BIN
-                      ? ""
-                      : getContentAtCommit(charset, repoPath, relativePath, commitID)));
-          break;
-        case ADDED:
-        case UNTRACKED:
-          diffFile =
-              new DiffFile(
-                  fileIndex++,
-                  status,
-                  fileType,
-                  charset,
-                  "",
-                  relativePath,
-                  "",
-                  (fileType == FileType.BIN
-                      ? ""
-                      : getContentAtCommit(charset, repoPath, relativePath, commitID)));
-          break;
-        case DELETED:
-          diffFile =
-              new DiffFile(
-                  fileIndex++,
-                  status,
-                  fileType,
-                  charset,
-                  relativePath,
-                  "",
-                  (fileType == FileType.BIN
-                      ? ""
-                      : getContentAtCommit(charset, repoPath, relativePath, commitID + "~")),
-                  "");
-          break;
-        case RENAMED:
-        case COPIED:
-          if (temp.length == 4) {
-            // C/R aaa -> bbb
-            String oldPath = temp[1];
-            String newPath = temp[3];
-            fileType = Utils.checkFileType(repoPath, newPath);
-            diffFile =
-                new DiffFile(
-                    fileIndex++,
-                    status,
-                    fileType,
-                    charset,
-                    oldPath,
-                    newPath,
-                    (fileType == FileType.BIN
-                        ? ""
-                        : getContentAtCommit(charset, repoPath, oldPath, commitID + "~")),
-                    (fileType == FileType.BIN
-                        ? ""
-                        : getContentAtCommit(charset, repoPath, newPath, commitID)));
-          } else if (temp.length == 3) {
-            // CXX/RXX aaa bbb
-            String oldPath = temp[1];
-            String newPath = temp[2];
-            fileType = Utils.checkFileType(repoPath, newPath);
-            diffFile =
-                new DiffFile(
-                    fileIndex++,
-                    status,
-                    fileType,
-                    charset,
-                    oldPath,
-                    newPath,
-                    (fileType == FileType.BIN
-                        ? ""
-                        : getContentAtCommit(charset, repoPath, oldPath, commitID + "~")),
-                    (fileType == FileType.BIN
-                        ? ""
-                        : getContentAtCommit(charset, repoPath, newPath, commitID)));
-          }
-          break;
-        default:
-          break;
-      }
-      if (diffFile != null) {
-        diffFileList.add(diffFile);
-      }
+    Charset charset = StandardCharsets.UTF_8;
+    for (ChangeEntry entry : entries) {
+      boolean isBinary = entry.fileType == FileType.BIN;
+      diffFileList.add(
+          new DiffFile(
+              fileIndex++,
+              entry.status,
+              entry.fileType,
+              charset,
+              entry.oldPath,
+              entry.newPath,
+              (isBinary || entry.oldPath.isEmpty()
+                  ? new ContentHandle("")
+                  : getContentHandle(blobs, charset, repoPath, commitID + "~", entry.oldPath)),
+              (isBinary || entry.newPath.isEmpty()
+                  ? new ContentHandle("")
+                  : getContentHandle(blobs, charset, repoPath, commitID, entry.newPath))));
     }
     // assert: diffFileList.size() == fileIndex + 1
     return diffFileList;
   }
 
-  @Override
-  public List<DiffHunk> getDiffHunksInWorkingTree(String repoPath, List<DiffFile> diffFiles) {
-    // unstage the staged files first
-    //    Utils.runSystemCommand(repoPath, "git", "reset", "--mixed");
-    Utils.runSystemCommand(repoPath, StandardCharsets.UTF_8, "git", "reset", "HEAD", ".");
-    // diff once for all
-    // git diff + git diff --cached/staged == git diff HEAD (show all the changes since last commit
-    // String diffOutput = Utils.runSystemCommand(repoPath, "git", "diff", "HEAD", "-U0");
-
-    // diff per file
-    List<DiffHunk> binaryDiffHunks = new ArrayList<>();
-    StringBuilder diffOutput = new StringBuilder();
-    for (DiffFile diffFile : diffFiles) {
-      if (null != diffFile.getBaseRelativePath() && !"".equals(diffFile.getBaseRelativePath())) {
-        // generate diff hunks for modified or deleted binary files (that cannot be parsed)
-        if (diffFile.getFileType().equals(FileType.BIN)) {
-          DiffHunk diffHunk = createDiffHunkForBinaryFile(diffFile);
-          // bidirectional binding
-          diffHunk.setFileIndex(diffFile.getIndex());
-          List<DiffHunk> diffHunksInFile = new ArrayList<>();
-          diffHunksInFile.add(diffHunk);
-          diffFile.setDiffHunks(diffHunksInFile);
-        }
-        diffOutput.append(
-            Utils.runSystemCommand(
-                repoPath,
-                diffFile.getCharset(),
-                "git",
-                "diff",
-                "-U0",
-                "--",
-                diffFile.getBaseRelativePath()));
+  /**
+   * Apply the function to each item with at most threadNum threads
+   *
+   * @return results in the same order as the items
+   */
+  private <E, T> List<T> mapInParallel(List<E> items, Function<E, T> function) {
+    List<T> results = new ArrayList<>(items.size());
+    int poolSize = Math.min(threadNum, items.size());
+    if (poolSize <= 1) {
+      for (E item : items) {
+        results.add(function.apply(item));
       }
+      return results;
     }
-    List<Diff> diffs = new ArrayList<>();
-    if (!diffOutput.toString().trim().isEmpty()) {
-      // with -U0 (no context lines), the generated patch cannot be applied successfully
-      DiffParser parser = new UnifiedDiffParser();
-      diffs = parser.parse(new ByteArrayInputStream(diffOutput.toString().getBytes()));
+    ExecutorService executorService = Executors.newFixedThreadPool(poolSize);
+    try {
+      List<Future<T>> futures = new ArrayList<>(items.size());
+      for (E item : items) {
+        futures.add(executorService.submit(() -> function.apply(item)));
+      }
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executorService.shutdownNow();
     }
-
-    return generateDiffHunks(repoPath, diffs, diffFiles);
-  }
-
-  private DiffHunk createDiffHunkForBinaryFile(DiffFile diffFile) {
-    ChangeType changeType =
-        diffFile.getStatus().equals(FileStatus.DELETED) ? ChangeType.DELETED : ChangeType.MODIFIED;
-    DiffHunk diffHunk =
-        new DiffHunk(
-            0,
-            diffFile.getFileType(),
-            changeType,
-            new com.github.smartcommit.model.Hunk(
-                Version.BASE,
-                diffFile.getBaseRelativePath(),
-                0,
-                0,
-                ContentType.BINARY,
-                new ArrayList<>()),
-            new com.github.smartcommit.model.Hunk(
-                Version.CURRENT,
-                diffFile.getCurrentRelativePath(),
-                0,
-                0,
-                ContentType.BINARY,
-                new ArrayList<>()),
-            changeType.label
-                + " "
-                + diffFile.getFileType().label
-                + " File:"
-                + diffFile.getBaseRelativePath());
-    diffHunk.addASTAction(
-        new Action(
-            (changeType.equals(ChangeType.DELETED) ? Operation.DEL : Operation.UPD),
-            "Binary",
-            "",
-            "File",
-            diffFile.getCurrentRelativePath()));
-    return diffHunk;
+    return results;
   }
 
   /**
-   * Generate diff hunks from diffs parsed from git-diff output
+   * Read the given objects with `git cat-file --batch`
    *
-   * @param diffs
-   * @return
+   * @param objectNames <rev>:<path>
+   * @return objectName : bytes, empty if the batch mode is disabled or failed
    */
-  private List<DiffHunk> generateDiffHunks(
-      String repoPath, List<Diff> diffs, List<DiffFile> diffFiles) {
-    List<DiffHunk> allDiffHunks = new ArrayList<>();
-    // one file, one diff
-    // UNTRACKED/ADDED files won't be shown in the diff
-    for (DiffFile diffFile : diffFiles) {
-      if (diffFile.getStatus().equals(FileStatus.ADDED)
-          || diffFile.getStatus().equals(FileStatus.UNTRACKED)) {
-        List<String> lines = Utils.convertStringToList(diffFile.getCurrentContent());
-        DiffHunk diffHunk =
-            new DiffHunk(
-                0,
-                Utils.checkFileType(repoPath, diffFile.getCurrentRelativePath()),
-                ChangeType.ADDED,
-                new com.github.smartcommit.model.Hunk(
-                    Version.BASE, "", 0, -1, ContentType.EMPTY, new ArrayList<>()),
-                new com.github.smartcommit.model.Hunk(
-                    Version.CURRENT,
-                    diffFile.getCurrentRelativePath(),
-                    1,
-                    lines.size(),
-                    Utils.checkContentType(lines),
-                    lines),
-                "Add "
-                    + diffFile.getFileType().label
-                    + " File:"
-                    + diffFile.getCurrentRelativePath());
-        diffHunk.addASTAction(
-            new Action(Operation.ADD, "", "", "File", diffFile.getCurrentRelativePath()));
-
-        // bidirectional binding
-        diffHunk.setFileIndex(diffFile.getIndex());
-        List<DiffHunk> diffHunksInFile = new ArrayList<>();
-        diffHunksInFile.add(diffHunk);
-        allDiffHunks.add(diffHunk);
-        diffFile.setDiffHunks(diffHunksInFile);
-      }
+  private Map<String, byte[]> readBlobsInBatch(String repoPath, List<String> objectNames) {
+    if (!catFileBatchEnabled || objectNames.isEmpty()) {
+      return new HashMap<>();
     }
-
-    for (Diff diff : diffs) {
-      // the hunkIndex of the diff hunk in the current file diff, start from 0
-      Integer hunkIndex = 0;
-
-      String baseFilePath = diff.getFromFileName();
-      String currentFilePath = diff.getToFileName();
-
-      List<String> headers = diff.getHeaderLines();
-      headers.add("--- " + baseFilePath);
-      headers.add("+++ " + currentFilePath);
-
-      // currently we only process Java files
-      FileType fileType =
-          baseFilePath.contains("/dev/null")
-              ? Utils.checkFileType(repoPath, currentFilePath) // ADDED/UNTRACKED
-              : Utils.checkFileType(repoPath, baseFilePath);
-
-      // collect and save diff hunks into diff files
-      List<DiffHunk> diffHunksInFile = new ArrayList<>();
-      for (Hunk hunk : diff.getHunks()) {
-        List<List<String>> hunkLines = splitHunkLines(hunk.getLines());
-        List<String> baseCodeLines = hunkLines.get(1);
-        List<String> currentCodeLines = hunkLines.get(2);
-        int leadingNeutral = hunkLines.get(0).size();
-        int trailingNeutral = hunkLines.get(3).size();
-        com.github.smartcommit.model.Hunk baseHunk =
-            new com.github.smartcommit.model.Hunk(
-                Version.BASE,
-                removeVersionLabel(baseFilePath),
-                // with -U0, leadingNeutral = 0 = trailingNeutral
-                hunk.getFromFileRange().getLineStart() + leadingNeutral,
-                hunk.getFromFileRange().getLineStart()
-                    + leadingNeutral
-                    + hunk.getFromFileRange().getLineCount()
-                    - leadingNeutral
-                    - trailingNeutral
-                    - 1,
-                Utils.checkContentType(baseCodeLines),
-                baseCodeLines);
-        com.github.smartcommit.model.Hunk currentHunk =
-            new com.github.smartcommit.model.Hunk(
-                Version.CURRENT,
-                removeVersionLabel(currentFilePath),
-                hunk.getToFileRange().getLineStart() + leadingNeutral,
-                hunk.getToFileRange().getLineStart()
-                    + leadingNeutral
-                    + hunk.getToFileRange().getLineCount()
-                    - leadingNeutral
-                    - trailingNeutral
-                    - 1,
-                Utils.checkContentType(currentCodeLines),
-                currentCodeLines);
-        ChangeType changeType = ChangeType.MODIFIED;
-        if (baseCodeLines.isEmpty()) {
-          changeType = ChangeType.ADDED;
-        }
-        if (currentCodeLines.isEmpty()) {
-          changeType = ChangeType.DELETED;
-        }
-        DiffHunk diffHunk = new DiffHunk(hunkIndex, fileType, changeType, baseHunk, currentHunk);
-        diffHunk.setRawDiffs(hunk.getRawLines());
-        diffHunksInFile.add(diffHunk);
-        allDiffHunks.add(diffHunk);
-        hunkIndex++;
-      }
-
-      // bidirectional binding
-      for (DiffFile diffFile : diffFiles) {
-        if (removeVersionLabel(baseFilePath).equals(diffFile.getBaseRelativePath())
-            && removeVersionLabel(currentFilePath).equals(diffFile.getCurrentRelativePath())) {
-          diffHunksInFile.forEach(diffHunk -> diffHunk.setFileIndex(diffFile.getIndex()));
-          diffFile.setDiffHunks(diffHunksInFile);
-          diffFile.setRawHeaders(headers);
-        }
+    GitBlobReader reader = GitBlobReader.of(repoPath);
+    if (reader != null) {
+      try {
+        return reader.readBlobs(objectNames);
+      } catch (IOException e) {
+        logger.warn("Failed to read blobs in batch, fall back to git show: " + e.getMessage());
+        reader.close();
       }
     }
-    return allDiffHunks;
+    return new HashMap<>();
   }
 
   /**
-   * Split the raw hunk lines into 0 (leading neutral), 1 (from), 2 (to), 3 (trailing neural)
+   * Get the file content at a revision, which can be released and read again from the git object
    *
-   * @param lines
+   * @param blobs results of the batch, the content is loaded on demand if not found
    * @return
    */
-  private List<List<String>> splitHunkLines(List<Line> lines) {
-    List<List<String>> result = new ArrayList<>();
-    for (int i = 0; i < 4; ++i) {
-      result.add(new ArrayList<>());
+  private ContentHandle getContentHandle(
+      Map<String, byte[]> blobs, Charset charset, String repoPath, String rev, String path) {
+    byte[] bytes = blobs.get(rev + ":" + path);
+    return new ContentHandle(
+        bytes == null ? null : new String(bytes, charset),
+        () -> loadContent(charset, repoPath, rev, path));
+  }
+
+  /**
+   * Read the file content at a revision with `git cat-file --batch`, or by git show if not found
+   *
+   * @return
+   * @throws IOException if neither can read it
+   */
+  private String loadContent(Charset charset, String repoPath, String rev, String path)
+      throws IOException {
+    String objectName = rev + ":" + path;
+    byte[] bytes =
+        readBlobsInBatch(repoPath, Collections.singletonList(objectName)).get(objectName);
+    if (bytes == null) {
+      CommandRunner.Result result = CommandRunner.run(repoPath, "git", "show", objectName);
+      if (!result.isSuccess()) {
+        throw new IOException("git show " + objectName + " failed: " + result.getStderr().trim());
+      }
+      bytes = result.getStdout();
     }
+    return new String(bytes, charset);
+  }
 
-    boolean trailing = false;
-    // to handle case where two neighboring diff hunks are merged if the lines between them are less
-    // than the -Ux
-    boolean isLastLineNeutral = true;
-    for (int i = 0; i < lines.size(); ++i) {
-      Line line = lines.get(i);
-      switch (line.getLineType()) {
-        case NEUTRAL:
-          boolean isNextLineNeutral = true;
-          if (!isLastLineNeutral) {
-            // check if the neutral lies between two non-netural lines
-            if (i + 1 < lines.size()) {
-              Line nextLine = lines.get(i + 1);
-              isNextLineNeutral = nextLine.getLineType().equals(Line.LineType.NEUTRAL);
-            }
-          }
-          if (!isLastLineNeutral && !isNextLineNeutral) {
-            isLastLineNeutral = true;
-            continue;
-          } else {
-            if (!line.getContent().trim().equals("\\ No newline at end of file")) {
-              if (trailing) {
-                result.get(3).add(line.getContent());
-              } else {
-                result.get(0).add(line.getContent());
-              }
-              isLastLineNeutral = true;
-            }
-          }
-          break;
-        case FROM:
-          result.get(1).add(line.getContent());
-          trailing = true;
-          isLastLineNeutral = false;
-          break;
-        case TO:
-          result.get(2).add(line.getContent());
-          trailing = true;
-          isLastLineNeutral = false;
-          break;
+  @Override
+  public List<DiffHunk> getDiffHunksInWorkingTree(String repoPath, List<DiffFile> diffFiles) {
+    if (!porcelainV2Enabled) {
+      // unstage the staged files first
+      //    runGit(repoPath, "reset", "--mixed");
+      runGit(repoPath, StandardCharsets.UTF_8, "reset", "HEAD", ".");
+    }
+
+    // basePath : charset, for files existing in HEAD
+    Map<String, Charset> charsets = prepareBaseFiles(diffFiles);
+
+    String diffOutput;
+    if (singleDiffEnabled) {
+      // diff once for all
+      // git diff + git diff --cached/staged == git diff HEAD (show all the changes since last commit)
+      // paths with special chars are always quoted in ASCII (even if configured not to), so that
+      // they are kept when a section is decoded with the charset of its file, and unquoted later
+      CommandRunner.Result result =
+          CommandRunner.run(
+              repoPath,
+              "git",
+              "--no-optional-locks",
+              "-c",
+              "core.quotePath=true",
+              "diff",
+              "-U0",
+              "--no-renames",
+              "HEAD",
+              "--");
+      checkResult(result, "diff HEAD");
+      diffOutput = decodeDiffPerFile(result.getStdout(), charsets);
+    } else {
+      // diff per file
+      StringBuilder builder = new StringBuilder();
+      for (Map.Entry<String, Charset> entry : charsets.entrySet()) {
+        builder.append(
+            runGit(
+                repoPath,
+                entry.getValue(),
+                "--no-optional-locks",
+                "-c",
+                "core.quotePath=true",
+                "diff",
+                "-U0",
+                "HEAD",
+                "--",
+                entry.getKey()));
       }
+      diffOutput = builder.toString();
     }
-    return result;
+
+    return generateDiffHunks(repoPath, parseDiffs(diffOutput), diffFiles);
   }
 
   /**
@@ -560,17 +614,32 @@ public class GitServiceCGit implements GitService {
       String repoPath, String commitID, List<DiffFile> diffFiles) {
     // git diff <start_commit> <end_commit>
     // on Windows the ~ character must be used instead of ^
-    String diffOutput =
-        Utils.runSystemCommand(
-            repoPath, StandardCharsets.UTF_8, "git", "diff", "-U0", commitID + "~", commitID);
-    List<Diff> diffs = new ArrayList<>();
-    if (!diffOutput.trim().isEmpty()) {
-      // with -U0 (no context lines), the generated patch cannot be applied successfully
-      DiffParser parser = new UnifiedDiffParser();
-      diffs = parser.parse(new ByteArrayInputStream(diffOutput.getBytes()));
+    // parse the diff while git prints it, and build hunks of each file as soon as it is parsed
+    List<DiffHunk> allDiffHunks = generateDiffHunksForAddedFiles(diffFiles);
+    try {
+      CommandRunner.runAndRead(
+          repoPath,
+          CommandRunner.DEFAULT_TIMEOUT_SECONDS,
+          stdout -> {
+            // decoded in UTF-8 as the whole output was, not the platform default charset
+            newDiffParser()
+                .parse(
+                    stdout,
+                    diff -> allDiffHunks.addAll(generateDiffHunks(repoPath, diff, diffFiles)));
+            return null;
+          },
+          "git",
+          "--no-optional-locks",
+          "-c",
+          "core.quotePath=true",
+          "diff",
+          "-U0",
+          commitID + "~",
+          commitID);
+    } catch (IOException e) {
+      e.printStackTrace();
     }
-
-    return generateDiffHunks(repoPath, diffs, diffFiles);
+    return allDiffHunks;
   }
 
   /**
@@ -581,7 +650,7 @@ public class GitServiceCGit implements GitService {
    */
   @Override
   public String getContentAtHEAD(Charset charset, String repoDir, String relativePath) {
-    return Utils.runSystemCommand(repoDir, charset, "git", "show", "HEAD:" + relativePath);
+    return runGit(repoDir, charset, "show", "HEAD:" + relativePath);
   }
 
   /**
@@ -593,26 +662,7 @@ public class GitServiceCGit implements GitService {
   @Override
   public String getContentAtCommit(
       Charset charset, String repoDir, String relativePath, String commitID) {
-    return Utils.runSystemCommand(repoDir, charset, "git", "show", commitID + ":" + relativePath);
-  }
-
-  /**
-   * Remove the "a/" or "b/" at the beginning of the path printed in Git
-   *
-   * @return
-   */
-  private String removeVersionLabel(String gitFilePath) {
-    String trimmedPath = gitFilePath.trim();
-    if (trimmedPath.startsWith("a/")) {
-      return gitFilePath.replaceFirst("a/", "");
-    }
-    if (trimmedPath.startsWith("b/")) {
-      return gitFilePath.replaceFirst("b/", "");
-    }
-    if (trimmedPath.equals("/dev/null")) {
-      return "";
-    }
-    return gitFilePath;
+    return runGit(repoDir, charset, "show", commitID + ":" + relativePath);
   }
 
   /**
@@ -621,10 +671,8 @@ public class GitServiceCGit implements GitService {
    * @param repoPath
    */
   public boolean clearWorkingTree(String repoPath) {
-    Utils.runSystemCommand(repoPath, StandardCharsets.UTF_8, "git", "reset", "--hard");
-    String status =
-        Utils.runSystemCommand(
-            repoPath, StandardCharsets.UTF_8, "git", "status", "--porcelain", "-uall");
+    runGit(repoPath, StandardCharsets.UTF_8, "reset", "--hard");
+    String status = runGit(repoPath, StandardCharsets.UTF_8, "status", "--porcelain", "-uall");
     // working tree clean if empty
     return status.isEmpty();
   }
@@ -634,8 +682,7 @@ public class GitServiceCGit implements GitService {
     // git show HEAD | grep Author
     // git log -1 --format='%an' HASH
     // git show -s --format='%an' HASH
-    return Utils.runSystemCommand(
-            repoDir, StandardCharsets.UTF_8, "git", "show", "-s", "--format='%an'", commitID)
+    return runGit(repoDir, StandardCharsets.UTF_8, "show", "-s", "--format='%an'", commitID)
         .trim()
         .replaceAll("'", "");
   }
@@ -644,19 +691,86 @@ public class GitServiceCGit implements GitService {
   public String getCommitterEmail(String repoDir, String commitID) {
     // git log -1 --format='%ae' HASH
     // git show -s --format='%ae' HASH
-    return Utils.runSystemCommand(
-            repoDir, StandardCharsets.UTF_8, "git", "show", "-s", "--format='%ae'", commitID)
+    return runGit(repoDir, StandardCharsets.UTF_8, "show", "-s", "--format='%ae'", commitID)
         .trim()
         .replaceAll("'", "");
   }
 
-  private boolean checkBinaryFileByDiff(String repoPath, String filePath, Charset charset) {
-    String output = Utils.runSystemCommand(repoPath, charset, "git", "diff", "-U0", "--", filePath);
-    // e.g. Binary files a/11.png and /dev/null differ
-    if (output.trim().contains("Binary files")) {
-      return true;
-    } else {
-      return false;
+  /**
+   * Run a git command in the repo
+   *
+   * @param charset to decode the output
+   * @param args arguments after "git"
+   * @return stdout of the command (without stderr)
+   */
+  private String runGit(String repoPath, Charset charset, String... args) {
+    String[] commands = new String[args.length + 1];
+    commands[0] = "git";
+    System.arraycopy(args, 0, commands, 1, args.length);
+    CommandRunner.Result result = CommandRunner.run(repoPath, commands);
+    checkResult(result, String.join(" ", args));
+    return result.getOutput(charset);
+  }
+
+  private void checkResult(CommandRunner.Result result, String command) {
+    if (!result.isSuccess()) {
+      logger.warn(
+          "git "
+              + command
+              + " failed with exit code "
+              + result.getExitCode()
+              + ": "
+              + result.getStderr().trim());
+    }
+  }
+
+  /**
+   * Classify the changed files with one `git diff --numstat -z`, where binary files (by content or
+   * by .gitattributes) are reported with "-" as the numbers of added and deleted lines
+   *
+   * @param revisions the base (and the current) revision, untracked files are not included
+   * @return path (old or new) : file type
+   */
+  private Map<String, FileType> classifyChangedFiles(String repoPath, String... revisions) {
+    String[] args = new String[revisions.length + 5];
+    args[0] = "--no-optional-locks";
+    args[1] = "diff";
+    args[2] = "--numstat";
+    args[3] = "-z";
+    // one record per path, a rename is reported as a deletion and an addition
+    args[4] = "--no-renames";
+    System.arraycopy(revisions, 0, args, 5, revisions.length);
+    String output = runGit(repoPath, StandardCharsets.UTF_8, args);
+
+    Map<String, FileType> fileTypes = new HashMap<>();
+    // added \t deleted \t path \0
+    for (String record : output.split("\0")) {
+      String[] fields = record.split("\t", 3);
+      if (fields.length < 3) {
+        continue;
+      }
+      fileTypes.put(
+          fields[2],
+          fields[0].equals("-") ? FileType.BIN : Utils.checkFileTypeByExtension(fields[2]));
+    }
+    return fileTypes;
+  }
+
+  /**
+   * Get the type of the changed file from the classified ones, or by its content on disk
+   *
+   * @return
+   */
+  private FileType getFileType(Map<String, FileType> fileTypes, String repoPath, ChangeEntry entry) {
+    String path = entry.newPath.isEmpty() ? entry.oldPath : entry.newPath;
+    FileType fileType = fileTypes.get(path);
+    if (fileType == null && !entry.oldPath.isEmpty()) {
+      fileType = fileTypes.get(entry.oldPath);
+    }
+    if (fileType == null) {
+      // untracked files
+      fileType = Utils.checkFileType(repoPath, path);
     }
+    return fileType;
   }
 }
@@ -2,52 +2,668 @@ package com.github.smartcommit.util;
 
 import com.github.smartcommit.model.DiffFile;
 import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.model.constant.FileStatus;
+import com.github.smartcommit.model.constant.FileType;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.BiConsumer;
 
-/** Implementation of helper functions based on jGit (the java implementation of Git). */
-public class GitServiceJGit implements GitService {
+/**
+ * Implementation of helper functions based on jGit (the java implementation of Git).
+ *
+ * <p>Everything is done in-process: no git command is forked. The repository and the object reader
+ * of each repo are opened once and shared by all calls, so close the service after use. Not
+ * thread-safe.
+ */
+public class GitServiceJGit extends AbstractGitService implements Closeable {
+  // repoPath : repository
+  private final Map<String, Repository> repositories = new HashMap<>();
+  // repoPath : reader, shared to reuse the inflater and the pack caches
+  private final Map<String, ObjectReader> readers = new HashMap<>();
+  // max total size of the cached blobs
+  private static final long BLOB_CACHE_BYTES = 64L << 20;
+  // blob id : content, in access order, so that a file changed in adjacent commits is read once
+  private final LinkedHashMap<ObjectId, byte[]> blobCache = new LinkedHashMap<>(256, 0.75f, true);
+  private long blobCacheBytes = 0L;
+
+  private Repository getRepository(String repoPath) throws IOException {
+    Repository repository = repositories.get(repoPath);
+    if (repository == null) {
+      repository =
+          new FileRepositoryBuilder()
+              .findGitDir(new File(repoPath))
+              .readEnvironment()
+              .setMustExist(true)
+              .build();
+      repositories.put(repoPath, repository);
+    }
+    return repository;
+  }
+
+  private ObjectReader getReader(String repoPath) throws IOException {
+    ObjectReader reader = readers.get(repoPath);
+    if (reader == null) {
+      reader = getRepository(repoPath).newObjectReader();
+      readers.put(repoPath, reader);
+    }
+    return reader;
+  }
+
+  /**
+   * Get the diff files in the current working tree
+   *
+   * <p>HEAD is compared with the working tree directly (staged or not), so the index is left as it
+   * is.
+   *
+   * @return
+   */
   @Override
   public ArrayList<DiffFile> getChangedFilesInWorkingTree(String repoPath) {
-    return null;
+    ArrayList<DiffFile> diffFileList = new ArrayList<>();
+    try {
+      Repository repository = getRepository(repoPath);
+      ObjectReader reader = getReader(repoPath);
+
+      // status (with the index stat cache) narrows down the paths to compare
+      Status status = new Git(repository).status().call();
+      Set<String> paths = new TreeSet<>();
+      paths.addAll(status.getAdded());
+      paths.addAll(status.getChanged());
+      paths.addAll(status.getModified());
+      paths.addAll(status.getMissing());
+      paths.addAll(status.getRemoved());
+      paths.addAll(status.getUntracked());
+      paths.addAll(status.getConflicting());
+      // early return
+      if (paths.isEmpty()) {
+        // working tree clean
+        return diffFileList;
+      }
+
+      List<DiffEntry> entries;
+      try (DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+        formatter.setRepository(repository);
+        formatter.setPathFilter(PathFilterGroup.createFromStrings(paths));
+        entries = formatter.scan(getHeadTree(repository, reader), new FileTreeIterator(repository));
+      }
+      // list untracked files after the tracked ones, as git status does
+      Set<String> untracked = status.getUntracked();
+      entries.sort(
+          Comparator.comparing(
+              entry ->
+                  entry.getChangeType() == DiffEntry.ChangeType.ADD
+                      && untracked.contains(entry.getNewPath())));
+
+      // ! use an independent incremental index to avoid index jump in case of skipped entries
+      // only increment index when creating new diff file
+      int fileIndex = 0;
+      for (DiffEntry entry : entries) {
+        FileStatus fileStatus;
+        String oldPath = "";
+        String newPath = "";
+        switch (entry.getChangeType()) {
+          case ADD:
+            fileStatus =
+                untracked.contains(entry.getNewPath()) ? FileStatus.UNTRACKED : FileStatus.ADDED;
+            newPath = entry.getNewPath();
+            break;
+          case DELETE:
+            fileStatus = FileStatus.DELETED;
+            oldPath = entry.getOldPath();
+            break;
+          case MODIFY:
+            fileStatus = FileStatus.MODIFIED;
+            oldPath = entry.getOldPath();
+            newPath = entry.getNewPath();
+            break;
+          default:
+            continue;
+        }
+        if (isGitLink(entry)) {
+          continue;
+        }
+
+        byte[] baseBytes = oldPath.isEmpty() ? null : readBlob(reader, entry.getOldId());
+        byte[] currentBytes =
+            newPath.isEmpty()
+                ? null
+                : Files.readAllBytes(Paths.get(repoPath + File.separator + newPath));
+        FileType fileType =
+            newPath.isEmpty()
+                ? checkFileType(oldPath, baseBytes)
+                : checkFileType(newPath, currentBytes);
+        boolean isBinary = fileType == FileType.BIN;
+        Charset charset = StandardCharsets.UTF_8;
+        if (!newPath.isEmpty()) {
+          charset = Utils.detectCharset(repoPath + File.separator + newPath);
+        }
+        diffFileList.add(
+            new DiffFile(
+                fileIndex++,
+                fileStatus,
+                fileType,
+                charset,
+                oldPath,
+                newPath,
+                isBinary || baseBytes == null ? "" : new String(baseBytes, charset),
+                // read in UTF-8 as the CGit backend does
+                isBinary || currentBytes == null
+                    ? ""
+                    : new String(currentBytes, StandardCharsets.UTF_8)));
+      }
+    } catch (IOException | GitAPIException e) {
+      e.printStackTrace();
+    }
+    return diffFileList;
   }
 
+  /**
+   * Get the diff files between one commit and its previous commit
+   *
+   * @return
+   */
   @Override
   public ArrayList<DiffFile> getChangedFilesAtCommit(String repoPath, String commitID) {
-    return null;
+    try {
+      Repository repository = getRepository(repoPath);
+      ObjectReader reader = getReader(repoPath);
+      List<DiffEntry> entries;
+      try (DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+          RevWalk revWalk = new RevWalk(reader)) {
+        formatter.setReader(new CachedBlobReader(reader), repository.getConfig());
+        formatter.setDetectRenames(true);
+        entries = scanCommit(formatter, reader, revWalk, parseCommit(revWalk, repository, commitID));
+      }
+      return createDiffFiles(reader, entries);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Create diff files from the diff entries of a commit
+   *
+   * @return
+   */
+  private ArrayList<DiffFile> createDiffFiles(ObjectReader reader, List<DiffEntry> entries)
+      throws IOException {
+    ArrayList<DiffFile> diffFileList = new ArrayList<>();
+    // ! use an independent incremental index to avoid index jump in case of skipped entries
+    // only increment index when creating new diff file
+    int fileIndex = 0;
+    Charset charset = StandardCharsets.UTF_8;
+    for (DiffEntry entry : entries) {
+      FileStatus fileStatus;
+      String oldPath = entry.getOldPath();
+      String newPath = entry.getNewPath();
+      switch (entry.getChangeType()) {
+        case ADD:
+          fileStatus = FileStatus.ADDED;
+          oldPath = "";
+          break;
+        case DELETE:
+          fileStatus = FileStatus.DELETED;
+          newPath = "";
+          break;
+        case MODIFY:
+          fileStatus = FileStatus.MODIFIED;
+          break;
+        case RENAME:
+          fileStatus = FileStatus.RENAMED;
+          break;
+        case COPY:
+          fileStatus = FileStatus.COPIED;
+          break;
+        default:
+          continue;
+      }
+      if (isGitLink(entry)) {
+        continue;
+      }
+
+      byte[] baseBytes = oldPath.isEmpty() ? null : readBlob(reader, entry.getOldId());
+      byte[] currentBytes = newPath.isEmpty() ? null : readBlob(reader, entry.getNewId());
+      FileType fileType =
+          newPath.isEmpty()
+              ? checkFileType(oldPath, baseBytes)
+              : checkFileType(newPath, currentBytes);
+      boolean isBinary = fileType == FileType.BIN;
+      diffFileList.add(
+          new DiffFile(
+              fileIndex++,
+              fileStatus,
+              fileType,
+              charset,
+              oldPath,
+              newPath,
+              isBinary || baseBytes == null ? "" : new String(baseBytes, charset),
+              isBinary || currentBytes == null ? "" : new String(currentBytes, charset)));
+    }
+    return diffFileList;
   }
 
   @Override
   public List<DiffHunk> getDiffHunksInWorkingTree(String repoPath, List<DiffFile> diffFiles) {
-    return null;
+    // basePath : charset, for files existing in HEAD
+    Map<String, Charset> charsets = prepareBaseFiles(diffFiles);
+
+    // jGit prints "---/+++" before "Binary files differ", so leave the binary files out
+    Set<String> textPaths = new HashSet<>(charsets.keySet());
+    textPaths.removeAll(getBinaryPaths(diffFiles));
+
+    String diffOutput = "";
+    if (!textPaths.isEmpty()) {
+      try {
+        Repository repository = getRepository(repoPath);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (DiffFormatter formatter = new DiffFormatter(output)) {
+          formatter.setRepository(repository);
+          // the base blobs have been read for the diff files
+          formatter.setReader(new CachedBlobReader(getReader(repoPath)), repository.getConfig());
+          formatter.setContext(0);
+          formatter.setDiffAlgorithm(getDiffAlgorithm(repository));
+          formatter.setPathFilter(PathFilterGroup.createFromStrings(textPaths));
+          formatter.format(
+              getHeadTree(repository, getReader(repoPath)), new FileTreeIterator(repository));
+          formatter.flush();
+        }
+        diffOutput = decodeDiffPerFile(output.toByteArray(), charsets);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+
+    return generateDiffHunks(repoPath, parseDiffs(diffOutput), diffFiles);
   }
 
+  /**
+   * Get the diff hunks between one commit and its previous commit
+   *
+   * @param repoPath
+   * @param commitID
+   * @return
+   */
   @Override
   public List<DiffHunk> getDiffHunksAtCommit(
       String repoPath, String commitID, List<DiffFile> diffFiles) {
-    return null;
+    String diffOutput = "";
+    try {
+      Repository repository = getRepository(repoPath);
+      ObjectReader reader = getReader(repoPath);
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try (DiffFormatter formatter = new DiffFormatter(output);
+          RevWalk revWalk = new RevWalk(reader)) {
+        formatter.setReader(new CachedBlobReader(reader), repository.getConfig());
+        formatter.setContext(0);
+        formatter.setDiffAlgorithm(getDiffAlgorithm(repository));
+        formatter.setDetectRenames(true);
+        List<DiffEntry> entries =
+            scanCommit(formatter, reader, revWalk, parseCommit(revWalk, repository, commitID));
+        diffOutput = formatDiffs(formatter, output, entries, diffFiles);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return generateDiffHunks(repoPath, parseDiffs(diffOutput), diffFiles);
+  }
+
+  /**
+   * Format the diff entries of a commit into unified diffs
+   *
+   * @param output where the formatter writes to, reset before formatting
+   * @return
+   */
+  private String formatDiffs(
+      DiffFormatter formatter,
+      ByteArrayOutputStream output,
+      List<DiffEntry> entries,
+      List<DiffFile> diffFiles)
+      throws IOException {
+    // jGit prints "---/+++" before "Binary files differ", so leave the binary files out
+    Set<String> binaryPaths = getBinaryPaths(diffFiles);
+    List<DiffEntry> textEntries = new ArrayList<>();
+    for (DiffEntry entry : entries) {
+      if (!binaryPaths.contains(entry.getOldPath()) && !binaryPaths.contains(entry.getNewPath())) {
+        textEntries.add(entry);
+      }
+    }
+    output.reset();
+    formatter.format(textEntries);
+    formatter.flush();
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Collect the diff files and diff hunks of the given commits one by one, sharing one walk, one
+   * reader and the blob cache, and pass them to the consumer instead of keeping them all
+   *
+   * @param commitIDs in the order to visit, parents before children to reuse more blobs
+   * @param consumer accepts the commit id and its diff files (with diff hunks)
+   */
+  public void walkCommits(
+      String repoPath, List<String> commitIDs, BiConsumer<String, ArrayList<DiffFile>> consumer) {
+    try (RevWalk revWalk = new RevWalk(getReader(repoPath))) {
+      Repository repository = getRepository(repoPath);
+      for (String commitID : commitIDs) {
+        walkCommit(repoPath, revWalk, parseCommit(revWalk, repository, commitID), consumer);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Collect the diff files and diff hunks of the non-merge commits in (from, to], from the oldest
+   * to the newest, in one walk of the history
+   *
+   * @param fromCommitID excluded, null to walk to the root commit
+   * @param toCommitID included
+   * @param consumer accepts the commit id and its diff files (with diff hunks)
+   */
+  public void walkRange(
+      String repoPath,
+      String fromCommitID,
+      String toCommitID,
+      BiConsumer<String, ArrayList<DiffFile>> consumer) {
+    try (RevWalk revWalk = new RevWalk(getReader(repoPath))) {
+      Repository repository = getRepository(repoPath);
+      revWalk.setRevFilter(RevFilter.NO_MERGES);
+      revWalk.sort(RevSort.TOPO, true);
+      revWalk.sort(RevSort.REVERSE, true);
+      revWalk.markStart(parseCommit(revWalk, repository, toCommitID));
+      if (fromCommitID != null) {
+        revWalk.markUninteresting(parseCommit(revWalk, repository, fromCommitID));
+      }
+      // collect first, the walk is reused to parse the parents
+      List<RevCommit> commits = new ArrayList<>();
+      revWalk.forEach(commits::add);
+      for (RevCommit commit : commits) {
+        walkCommit(repoPath, revWalk, commit, consumer);
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
   }
 
+  private void walkCommit(
+      String repoPath,
+      RevWalk revWalk,
+      RevCommit commit,
+      BiConsumer<String, ArrayList<DiffFile>> consumer)
+      throws IOException {
+    Repository repository = getRepository(repoPath);
+    ObjectReader reader = getReader(repoPath);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ArrayList<DiffFile> diffFiles;
+    String diffOutput;
+    try (DiffFormatter formatter = new DiffFormatter(output)) {
+      formatter.setReader(new CachedBlobReader(reader), repository.getConfig());
+      formatter.setContext(0);
+      formatter.setDiffAlgorithm(getDiffAlgorithm(repository));
+      formatter.setDetectRenames(true);
+      // scan once for both the diff files and the diff hunks
+      List<DiffEntry> entries = scanCommit(formatter, reader, revWalk, commit);
+      diffFiles = createDiffFiles(reader, entries);
+      diffOutput = formatDiffs(formatter, output, entries, diffFiles);
+    }
+    generateDiffHunks(repoPath, parseDiffs(diffOutput), diffFiles);
+    consumer.accept(commit.getName(), diffFiles);
+  }
+
+  /**
+   * Get the file content at HEAD
+   *
+   * @param relativePath
+   * @return
+   */
   @Override
   public String getContentAtHEAD(Charset charset, String repoDir, String relativePath) {
-    return null;
+    return getContentAtCommit(charset, repoDir, relativePath, Constants.HEAD);
   }
 
+  /**
+   * Get the file content at one specific commit
+   *
+   * @param relativePath
+   * @return empty if the file does not exist
+   */
   @Override
   public String getContentAtCommit(
       Charset charset, String repoDir, String relativePath, String commitID) {
-    return null;
+    try {
+      ObjectReader reader = getReader(repoDir);
+      RevCommit commit = parseCommit(reader, getRepository(repoDir), commitID);
+      try (TreeWalk treeWalk = TreeWalk.forPath(reader, relativePath, commit.getTree())) {
+        if (treeWalk != null) {
+          return new String(readBlob(reader, treeWalk.getObjectId(0)), charset);
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return "";
   }
 
   @Override
   public String getCommitterName(String repoDir, String commitID) {
-    return null;
+    try {
+      return parseCommit(getReader(repoDir), getRepository(repoDir), commitID)
+          .getAuthorIdent()
+          .getName();
+    } catch (IOException e) {
+      e.printStackTrace();
+      return "";
+    }
   }
 
   @Override
   public String getCommitterEmail(String repoDir, String commitID) {
-    return null;
+    try {
+      return parseCommit(getReader(repoDir), getRepository(repoDir), commitID)
+          .getAuthorIdent()
+          .getEmailAddress();
+    } catch (IOException e) {
+      e.printStackTrace();
+      return "";
+    }
+  }
+
+  /**
+   * Compare the commit with its first parent (or the empty tree for the root commit)
+   *
+   * @return
+   */
+  private List<DiffEntry> scanCommit(
+      DiffFormatter formatter, ObjectReader reader, RevWalk revWalk, RevCommit commit)
+      throws IOException {
+    AbstractTreeIterator baseTree = new EmptyTreeIterator();
+    if (commit.getParentCount() > 0) {
+      RevCommit parent = commit.getParent(0);
+      revWalk.parseHeaders(parent);
+      baseTree = new CanonicalTreeParser(null, reader, parent.getTree());
+    }
+    return formatter.scan(baseTree, new CanonicalTreeParser(null, reader, commit.getTree()));
+  }
+
+  private RevCommit parseCommit(RevWalk revWalk, Repository repository, String commitID)
+      throws IOException {
+    ObjectId commitId = repository.resolve(commitID);
+    if (commitId == null) {
+      throw new IOException("Cannot resolve commit: " + commitID);
+    }
+    return revWalk.parseCommit(commitId);
+  }
+
+  private RevCommit parseCommit(ObjectReader reader, Repository repository, String commitID)
+      throws IOException {
+    // the walk does not close the shared reader
+    try (RevWalk revWalk = new RevWalk(reader)) {
+      return parseCommit(revWalk, repository, commitID);
+    }
+  }
+
+  private AbstractTreeIterator getHeadTree(Repository repository, ObjectReader reader)
+      throws IOException {
+    ObjectId headTree = repository.resolve(Constants.HEAD + "^{tree}");
+    if (headTree == null) {
+      // no commit yet
+      return new EmptyTreeIterator();
+    }
+    return new CanonicalTreeParser(null, reader, headTree);
+  }
+
+  private byte[] readBlob(ObjectReader reader, AbbreviatedObjectId id) throws IOException {
+    return readBlob(reader, id.toObjectId());
+  }
+
+  private byte[] readBlob(ObjectReader reader, AnyObjectId id) throws IOException {
+    byte[] content = blobCache.get(id);
+    if (content == null) {
+      content = reader.open(id, Constants.OBJ_BLOB).getBytes(Integer.MAX_VALUE);
+      cacheBlob(id, content);
+    }
+    return content;
+  }
+
+  private void cacheBlob(AnyObjectId id, byte[] content) {
+    if (content.length <= BLOB_CACHE_BYTES / 16) {
+      blobCache.put(id.copy(), content);
+      blobCacheBytes += content.length;
+      // evict the least recently used
+      Iterator<byte[]> iterator = blobCache.values().iterator();
+      while (blobCacheBytes > BLOB_CACHE_BYTES && iterator.hasNext()) {
+        blobCacheBytes -= iterator.next().length;
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Reader for the diff formatter, which loads the blobs from the blob cache (and fills it), so
+   * that formatting does not inflate the blobs read for the diff files again
+   */
+  private class CachedBlobReader extends ObjectReader.Filter {
+    private final ObjectReader reader;
+
+    CachedBlobReader(ObjectReader reader) {
+      this.reader = reader;
+    }
+
+    @Override
+    protected ObjectReader delegate() {
+      return reader;
+    }
+
+    @Override
+    public ObjectLoader open(AnyObjectId objectId, int typeHint) throws IOException {
+      if (typeHint != Constants.OBJ_BLOB) {
+        return reader.open(objectId, typeHint);
+      }
+      byte[] content = blobCache.get(objectId);
+      if (content != null) {
+        return new ObjectLoader.SmallObject(Constants.OBJ_BLOB, content);
+      }
+      ObjectLoader loader = reader.open(objectId, typeHint);
+      if (!loader.isLarge()) {
+        cacheBlob(objectId, loader.getCachedBytes());
+      }
+      return loader;
+    }
+
+    @Override
+    public long getObjectSize(AnyObjectId objectId, int typeHint) throws IOException {
+      byte[] content = typeHint == Constants.OBJ_BLOB ? blobCache.get(objectId) : null;
+      return content != null ? content.length : reader.getObjectSize(objectId, typeHint);
+    }
+
+    @Override
+    public void close() {
+      // the shared reader is closed by the service
+    }
+  }
+
+  /**
+   * Use the same algorithm as git (myers by default, while jGit defaults to histogram)
+   *
+   * @return
+   */
+  private DiffAlgorithm getDiffAlgorithm(Repository repository) {
+    return DiffAlgorithm.getAlgorithm(
+        repository
+            .getConfig()
+            .getEnum(
+                ConfigConstants.CONFIG_DIFF_SECTION,
+                null,
+                ConfigConstants.CONFIG_KEY_ALGORITHM,
+                DiffAlgorithm.SupportedAlgorithm.MYERS));
+  }
+
+  private Set<String> getBinaryPaths(List<DiffFile> diffFiles) {
+    Set<String> binaryPaths = new HashSet<>();
+    for (DiffFile diffFile : diffFiles) {
+      if (diffFile.getFileType().equals(FileType.BIN)) {
+        binaryPaths.add(diffFile.getBaseRelativePath());
+        binaryPaths.add(diffFile.getCurrentRelativePath());
+      }
+    }
+    binaryPaths.remove("");
+    return binaryPaths;
+  }
+
+  private boolean isGitLink(DiffEntry entry) {
+    // submodules are not considered
+    return entry.getOldMode() == FileMode.GITLINK || entry.getNewMode() == FileMode.GITLINK;
+  }
+
+  /**
+   * Check the file type by the content (the same heuristic of git) and the extension
+   *
+   * @return
+   */
+  private FileType checkFileType(String filePath, byte[] content) {
+    if (content != null && RawText.isBinary(content)) {
+      return FileType.BIN;
+    }
+    return Utils.checkFileTypeByExtension(filePath);
+  }
+
+  /** Release the repositories and readers opened by this service */
+  @Override
+  public void close() {
+    blobCache.clear();
+    blobCacheBytes = 0L;
+    readers.values().forEach(ObjectReader::close);
+    readers.clear();
+    repositories.values().forEach(Repository::close);
+    repositories.clear();
   }
 }
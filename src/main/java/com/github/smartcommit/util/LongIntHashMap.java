@@ -0,0 +1,117 @@
+package com.github.smartcommit.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive long keys to int values with open addressing (linear probing), which
+ * neither boxes the keys and values nor allocates an entry for each mapping.
+ */
+public class LongIntHashMap {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private long[] keys;
+  private int[] values;
+  private boolean[] used;
+  private int size = 0;
+  // resized when the size reaches it, i.e. the load factor is at most 1/2
+  private int threshold;
+
+  public LongIntHashMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /** @param expectedSize number of mappings to hold without resizing */
+  public LongIntHashMap(int expectedSize) {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity / 2 < expectedSize) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+
+  /**
+   * @param key
+   * @param defaultValue
+   * @return the value of the key, or the default value if not mapped
+   */
+  public int get(long key, int defaultValue) {
+    int slot = findSlot(key);
+    return used[slot] ? values[slot] : defaultValue;
+  }
+
+  public boolean containsKey(long key) {
+    return used[findSlot(key)];
+  }
+
+  /**
+   * @param key
+   * @param value
+   * @return the previous value of the key, or the value itself if not mapped before
+   */
+  public int put(long key, int value) {
+    int slot = findSlot(key);
+    if (used[slot]) {
+      int previous = values[slot];
+      values[slot] = value;
+      return previous;
+    }
+    used[slot] = true;
+    keys[slot] = key;
+    values[slot] = value;
+    if (++size >= threshold) {
+      resize(keys.length << 1);
+    }
+    return value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(used, false);
+    size = 0;
+  }
+
+  /** @return the slot of the key, or the empty slot to put it in */
+  private int findSlot(long key) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (used[slot] && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    boolean[] oldUsed = used;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldUsed[i]) {
+        int slot = findSlot(oldKeys[i]);
+        used[slot] = true;
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    used = new boolean[capacity];
+    threshold = capacity / 2;
+  }
+
+  /** Mix the bits (the finalizer of MurmurHash3), since packed keys differ in a few bits only */
+  private static int hash(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
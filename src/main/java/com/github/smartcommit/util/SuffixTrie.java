@@ -0,0 +1,124 @@
+package com.github.smartcommit.util;
+
+import java.util.Arrays;
+
+/**
+ * A trie of reversed string keys, to find the values by the suffixes of their keys without
+ * scanning all of them with endsWith.
+ *
+ * <p>Lookups return the first value put among the matched ones, i.e. the same as a findAny over
+ * the values in the order they were put.
+ *
+ * @param <V>
+ */
+public class SuffixTrie<V> {
+  private final TrieNode<V> root = new TrieNode<>();
+  private int size = 0;
+
+  /**
+   * Put a value with the key, the values put earlier are kept for the same key and suffixes
+   *
+   * @param key
+   * @param value not null
+   */
+  public void put(String key, V value) {
+    int order = size++;
+    TrieNode<V> node = root;
+    node.keepFirst(value);
+    for (int i = key.length() - 1; i >= 0; --i) {
+      node = node.getOrCreateChild(key.charAt(i));
+      node.keepFirst(value);
+    }
+    if (node.value == null) {
+      node.value = value;
+      node.valueOrder = order;
+    }
+  }
+
+  /**
+   * Find the first value whose key ends with the suffix
+   *
+   * @param suffix
+   * @return null if not found
+   */
+  public V getFirstEndingWith(String suffix) {
+    TrieNode<V> node = root;
+    for (int i = suffix.length() - 1; i >= 0 && node != null; --i) {
+      node = node.getChild(suffix.charAt(i));
+    }
+    return node == null ? null : node.first;
+  }
+
+  /**
+   * Find the first value whose key is a suffix of the text
+   *
+   * @param text
+   * @return null if not found
+   */
+  public V getFirstSuffixOf(String text) {
+    V result = null;
+    int resultOrder = Integer.MAX_VALUE;
+    TrieNode<V> node = root;
+    for (int i = text.length(); node != null; --i) {
+      if (node.value != null && node.valueOrder < resultOrder) {
+        result = node.value;
+        resultOrder = node.valueOrder;
+      }
+      node = i > 0 ? node.getChild(text.charAt(i - 1)) : null;
+    }
+    return result;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private static class TrieNode<V> {
+    private static final char[] NO_CHARS = new char[0];
+
+    // sorted chars of the children, to find them by binary search
+    private char[] chars = NO_CHARS;
+    private TrieNode<V>[] children = newArray(0);
+    // the first value whose key has the suffix from the root to this node
+    private V first;
+    // the first value whose key is exactly the suffix from the root to this node
+    private V value;
+    private int valueOrder;
+
+    private void keepFirst(V value) {
+      if (first == null) {
+        first = value;
+      }
+    }
+
+    private TrieNode<V> getChild(char c) {
+      int index = Arrays.binarySearch(chars, c);
+      return index >= 0 ? children[index] : null;
+    }
+
+    private TrieNode<V> getOrCreateChild(char c) {
+      int index = Arrays.binarySearch(chars, c);
+      if (index >= 0) {
+        return children[index];
+      }
+      index = -index - 1;
+      TrieNode<V> child = new TrieNode<>();
+      char[] newChars = new char[chars.length + 1];
+      TrieNode<V>[] newChildren = newArray(children.length + 1);
+      System.arraycopy(chars, 0, newChars, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      newChars[index] = c;
+      newChildren[index] = child;
+      System.arraycopy(chars, index, newChars, index + 1, chars.length - index);
+      System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+      chars = newChars;
+      children = newChildren;
+      return child;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <V> TrieNode<V>[] newArray(int length) {
+      return (TrieNode<V>[]) new TrieNode[length];
+    }
+  }
+}
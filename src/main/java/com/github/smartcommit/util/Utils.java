@@ -1,6 +1,7 @@
 package com.github.smartcommit.util;
 
 import com.github.smartcommit.model.Action;
+import com.github.smartcommit.model.LineStore;
 import com.github.smartcommit.model.constant.ContentType;
 import com.github.smartcommit.model.constant.FileStatus;
 import com.github.smartcommit.model.constant.FileType;
@@ -10,7 +11,6 @@ import info.debatty.java.stringsimilarity.Cosine;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.text.similarity.JaccardSimilarity;
-import org.mozilla.universalchardet.UniversalDetector;
 import org.refactoringminer.api.Refactoring;
 import org.refactoringminer.api.RefactoringType;
 
@@ -21,6 +21,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -33,36 +35,14 @@ public class Utils {
    *
    * @param dir
    * @param commands
-   * @return
+   * @return stdout followed by stderr
+   * @deprecated use {@link CommandRunner} to get the raw output, the exit code and the stderr
+   *     separately
    */
+  @Deprecated
   public static String runSystemCommand(String dir, Charset charSet, String... commands) {
-    StringBuilder builder = new StringBuilder();
-    try {
-      Runtime rt = Runtime.getRuntime();
-      Process proc = rt.exec(commands, null, new File(dir));
-
-      BufferedReader stdInput =
-          new BufferedReader(new InputStreamReader(proc.getInputStream(), charSet));
-
-      BufferedReader stdError =
-          new BufferedReader(new InputStreamReader(proc.getErrorStream(), charSet));
-
-      String s = null;
-      while ((s = stdInput.readLine()) != null) {
-        builder.append(s);
-        builder.append("\n");
-        //                if (verbose) log(s);
-      }
-
-      while ((s = stdError.readLine()) != null) {
-        builder.append(s);
-        builder.append("\n");
-        //                if (verbose) log(s);
-      }
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-    return builder.toString();
+    CommandRunner.Result result = CommandRunner.run(dir, commands);
+    return result.getOutput(charSet) + result.getStderr();
   }
 
   /**
@@ -320,36 +300,41 @@ public class Utils {
   }
 
   /**
-   * Check the file type by file path. Two ways to determine whether a file is binary: by git diff
-   * or by file -bI, the file must accessible on disk.
+   * Check the file type of a file on disk. Like git, a file is considered as binary if there is a
+   * NUL byte in the first 8000 bytes.
    *
    * @return
    */
   public static FileType checkFileType(String repoPath, String filePath) {
-    //    String output = Utils.runSystemCommand(repoPath, StandardCharsets.UTF_8, "file", "-bI",
-    // filePath);
-    //    if(output.trim().endsWith("binary")){
-    //      return FileType.BIN;
-    //    }
-    String output =
-        Utils.runSystemCommand(
-            repoPath,
-            StandardCharsets.UTF_8,
-            "git",
-            "diff",
-            "--no-index",
-            "--numstat",
-            "/dev/null",
-            filePath);
-    if (output.trim().replaceAll("\\s+", "").startsWith("--")) {
-      return FileType.BIN;
-    } else {
-      // match type by extension
-      return Arrays.stream(FileType.values())
-          .filter(fileType -> filePath.endsWith(fileType.extension))
-          .findFirst()
-          .orElse(FileType.OTHER);
+    byte[] buffer = new byte[8000];
+    try (InputStream in = new FileInputStream(new File(repoPath, filePath))) {
+      int length = 0;
+      int n;
+      while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0) {
+        length += n;
+      }
+      for (int i = 0; i < length; ++i) {
+        if (buffer[i] == 0) {
+          return FileType.BIN;
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
     }
+    return checkFileTypeByExtension(filePath);
+  }
+
+  /**
+   * Match the file type by the extension of the file path (for text files)
+   *
+   * @param filePath
+   * @return
+   */
+  public static FileType checkFileTypeByExtension(String filePath) {
+    return Arrays.stream(FileType.values())
+        .filter(fileType -> filePath.endsWith(fileType.extension))
+        .findFirst()
+        .orElse(FileType.OTHER);
   }
 
   /**
@@ -425,6 +410,32 @@ public class Utils {
     return UUID.randomUUID().toString().replaceAll("-", "");
   }
 
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * Compute the git blob id of a content, i.e. the same as git hash-object
+   *
+   * @param content
+   * @return the SHA-1 in hex
+   */
+  public static String hashBlob(byte[] content) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+      digest.update(content);
+      byte[] hash = digest.digest();
+      char[] hex = new char[hash.length * 2];
+      for (int i = 0; i < hash.length; ++i) {
+        hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+        hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+      }
+      return new String(hex);
+    } catch (NoSuchAlgorithmException e) {
+      // SHA-1 is supported by every JVM
+      throw new IllegalStateException(e);
+    }
+  }
+
   /**
    * Convert string to a list of lines
    *
@@ -442,6 +453,9 @@ public class Utils {
    * @return
    */
   public static String convertListLinesToString(List<String> list) {
+    if (list instanceof LineStore.Lines) {
+      return ((LineStore.Lines) list).getJoinedText();
+    }
     return String.join(System.lineSeparator(), list);
   }
 
@@ -452,6 +466,9 @@ public class Utils {
    * @return
    */
   public static String convertListToStringNoFormat(List<String> list) {
+    if (list instanceof LineStore.Lines) {
+      return ((LineStore.Lines) list).getNormalizedText();
+    }
     return list.stream()
         .map(str -> str.replaceAll("\\W|[\\t\\r?\\n]+", ""))
         //        .map(str -> str.replaceAll("\\\\t|[\\\\r?\\\\n]+|\\s+", ""))
@@ -737,20 +754,7 @@ public class Utils {
   }
 
   public static Charset detectCharset(String filePath) {
-    try {
-      Path fileLocation = Paths.get(filePath);
-      byte[] content = Files.readAllBytes(fileLocation);
-      UniversalDetector detector = new UniversalDetector(null);
-      detector.handleData(content, 0, content.length);
-      detector.dataEnd();
-      String detectorCode = detector.getDetectedCharset();
-      if (detectorCode != null && detectorCode.startsWith("GB")) {
-        return Charset.forName("GBK");
-      }
-    } catch (Exception ex) {
-      ex.printStackTrace();
-    }
-    return StandardCharsets.UTF_8;
+    return CharsetDetector.detect(filePath);
   }
 
   /**
@@ -0,0 +1,553 @@
+package com.github.smartcommit.util.diffparser.api;
+
+import com.github.smartcommit.util.diffparser.api.model.Diff;
+import com.github.smartcommit.util.diffparser.api.model.Hunk;
+import com.github.smartcommit.util.diffparser.api.model.Line;
+import com.github.smartcommit.util.diffparser.api.model.Range;
+import com.github.smartcommit.util.diffparser.unified.HunkHeaderScanner;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * A parser that scans a unified diff as bytes, producing the same {@link Diff}s as {@link
+ * UnifiedDiffParser} for the output of git diff.
+ *
+ * <p>Only the file names and the header lines are decoded while scanning. Each hunk keeps the
+ * offsets of its lines into the buffer, and its lines are decoded the first time {@link
+ * Hunk#getLines()} or {@link Hunk#getRawLines()} is called, so the memory used by the diffs is
+ * bounded by what is actually read. {@link #parse(File)} maps the file into memory instead of
+ * reading it onto the heap.
+ *
+ * <p>With {@link #parse(InputStream, Consumer)}, each diff is passed on once parsed, while the
+ * rest of the input is still being read.
+ *
+ * <p>In parallel mode, the input is split into sections at "diff --git" lines, which are parsed on
+ * the common fork-join pool and joined in their original order.
+ *
+ * <p>The end of a hunk is determined by the line counts in its header, so changed lines that look
+ * like file headers (e.g. "--- ") are parsed correctly.
+ */
+public class ByteBufferDiffParser implements DiffParser {
+  private static final int CHUNK_SIZE = 64 * 1024;
+  // sections are joined until they reach this size, so that each task is worth forking
+  private static final int MIN_SECTION_BYTES = 256 * 1024;
+  private final Charset charset;
+  private boolean parallelEnabled = false;
+
+  /**
+   * @param charset to decode the lines
+   */
+  public ByteBufferDiffParser(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Parse the sections of different files in parallel, which only pays off for large diffs. The
+   * whole input is read before parsing, also by {@link #parse(InputStream, Consumer)}.
+   *
+   * @param parallelEnabled
+   */
+  public void setParallelEnabled(boolean parallelEnabled) {
+    this.parallelEnabled = parallelEnabled;
+  }
+
+  @Override
+  public List<Diff> parse(InputStream in) {
+    try {
+      return parse(IOUtils.toByteArray(in));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public List<Diff> parse(byte[] bytes) {
+    return parse(ByteBuffer.wrap(bytes));
+  }
+
+  @Override
+  public List<Diff> parse(File file) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        FileChannel channel = randomAccessFile.getChannel()) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Diff larger than 2GiB: " + file);
+      }
+      // the mapping stays valid after the channel is closed
+      return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Constructs a list of Diffs from the bytes between the position and the limit of the buffer.
+   * The buffer must not be modified while the diffs are in use.
+   *
+   * @param buffer
+   * @return
+   */
+  public List<Diff> parse(ByteBuffer buffer) {
+    if (parallelEnabled) {
+      return parseInParallel(buffer);
+    }
+    return parseSequentially(buffer);
+  }
+
+  private List<Diff> parseInParallel(ByteBuffer buffer) {
+    List<Integer> boundaries = findBoundaries(buffer, MIN_SECTION_BYTES);
+    boundaries.add(buffer.limit());
+    List<ByteBuffer> sections = new ArrayList<>();
+    int start = buffer.position();
+    for (int end : boundaries) {
+      // offsets in the sections are the same as in the buffer
+      ByteBuffer section = buffer.duplicate();
+      section.limit(end).position(start);
+      sections.add(section);
+      start = end;
+    }
+    // the stream is ordered, so the diffs are collected in the order of sections
+    return sections.parallelStream()
+        .map(this::parseSequentially)
+        .flatMap(List::stream)
+        .collect(Collectors.toList());
+  }
+
+  private List<Diff> parseSequentially(ByteBuffer buffer) {
+    List<Diff> parsedDiffs = new ArrayList<>();
+    Scanner scanner = new Scanner(buffer, parsedDiffs::add);
+    int limit = buffer.limit();
+    int start = buffer.position();
+    while (start < limit) {
+      int next = nextLineStart(buffer, start, limit);
+      scanner.scanLine(start, lineEnd(buffer, start, Math.min(next - 1, limit)));
+      start = next;
+    }
+    scanner.finish();
+    return parsedDiffs;
+  }
+
+  /**
+   * Parse the diff while reading it, and pass each Diff to the consumer as soon as the line after
+   * its last hunk is read, so that the diffs can be processed (and dropped) while the rest is still
+   * being produced. Only the bytes of the diff being parsed are buffered, besides what the emitted
+   * diffs reference until their lines are read.
+   *
+   * @param in the input stream to parse
+   * @param consumer called in the reading thread
+   */
+  @Override
+  public void parse(InputStream in, Consumer<Diff> consumer) {
+    if (parallelEnabled) {
+      parse(in).forEach(consumer);
+      return;
+    }
+    byte[] bytes = new byte[CHUNK_SIZE];
+    Scanner scanner = new Scanner(ByteBuffer.wrap(bytes), consumer);
+    int filled = 0;
+    // start of the line being read
+    int scanned = 0;
+    try {
+      while (true) {
+        if (filled == bytes.length) {
+          // move the diff being parsed to a new array, the emitted diffs keep the old one
+          int keep = scanner.diffStart;
+          byte[] moved = new byte[Math.max(CHUNK_SIZE, (filled - keep) * 2)];
+          System.arraycopy(bytes, keep, moved, 0, filled - keep);
+          bytes = moved;
+          scanner.rebase(ByteBuffer.wrap(bytes), keep);
+          filled -= keep;
+          scanned -= keep;
+        }
+        int n = in.read(bytes, filled, bytes.length - filled);
+        if (n < 0) {
+          break;
+        }
+        // scan the complete lines
+        for (int i = filled; i < filled + n; ++i) {
+          if (bytes[i] == '\n') {
+            scanner.scanLine(scanned, lineEnd(scanner.buffer, scanned, i));
+            scanned = i + 1;
+          }
+        }
+        filled += n;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    if (scanned < filled) {
+      // the last line without a line break
+      scanner.scanLine(scanned, lineEnd(scanner.buffer, scanned, filled));
+    }
+    scanner.finish();
+  }
+
+  /** Scan the lines one by one, and emit each diff when the line after its last hunk comes */
+  private class Scanner {
+    private final Consumer<Diff> consumer;
+    private ByteBuffer buffer;
+    private Diff currentDiff = new Diff();
+    private LazyHunk currentHunk = null;
+    // lines left in the current hunk, by the counts in its header
+    private int fromRemaining = 0;
+    private int toRemaining = 0;
+    // the "---" line waiting for the next line to tell if it is the from file, -1 if none
+    private int pendingStart = -1;
+    private int pendingEnd = -1;
+    // offset of the first line of the current diff, bytes before it are no longer needed
+    private int diffStart;
+    // reused for each hunk header
+    private final HunkHeaderScanner.ByteLine headerLine = new HunkHeaderScanner.ByteLine();
+    private final int[] ranges = new int[4];
+
+    Scanner(ByteBuffer buffer, Consumer<Diff> consumer) {
+      this.buffer = buffer;
+      this.consumer = consumer;
+      this.diffStart = buffer.position();
+    }
+
+    void scanLine(int start, int end) {
+      if (pendingStart >= 0) {
+        int fromStart = pendingStart;
+        int fromEnd = pendingEnd;
+        pendingStart = -1;
+        if (startsWith(buffer, start, end, "+++")) {
+          startDiff(fromStart);
+          currentDiff.setFromFileName(cutAfterTab(decode(buffer, fromStart + 4, fromEnd)));
+          currentDiff.setToFileName(cutAfterTab(decode(buffer, start + 4, end)));
+          return;
+        }
+        scanOtherLine(fromStart, fromEnd);
+      }
+
+      byte first = end > start ? buffer.get(start) : 0;
+      if (currentHunk != null && (fromRemaining > 0 || toRemaining > 0)) {
+        // inside a hunk
+        if (first == '-') {
+          fromRemaining--;
+        } else if (first == '+') {
+          toRemaining--;
+        } else if (first != '\\') {
+          // context line, or an empty line if the trailing spaces are stripped
+          fromRemaining--;
+          toRemaining--;
+        }
+        currentHunk.addLine(start, end);
+      } else if (first == '\\') {
+        // "\ No newline at end of file" after the last line of the hunk
+        if (currentHunk != null) {
+          currentHunk.addLine(start, end);
+        }
+      } else if (startsWith(buffer, start, end, "@@ -")) {
+        parseHunkRanges(buffer, start, end, headerLine, ranges);
+        currentHunk = new LazyHunk(buffer, charset, start, end);
+        currentHunk.setFromFileRange(new Range(ranges[0], ranges[1]));
+        currentHunk.setToFileRange(new Range(ranges[2], ranges[3]));
+        currentDiff.getHunks().add(currentHunk);
+        fromRemaining = ranges[1];
+        toRemaining = ranges[3];
+      } else if (startsWith(buffer, start, end, "---")) {
+        // the from file if followed by "+++"
+        pendingStart = start;
+        pendingEnd = end;
+      } else {
+        scanOtherLine(start, end);
+      }
+    }
+
+    private void scanOtherLine(int start, int end) {
+      byte first = end > start ? buffer.get(start) : 0;
+      if (currentHunk != null && (first == '-' || first == '+' || first == ' ')) {
+        // more lines than the header tells, keep them in the hunk as UnifiedDiffParser does
+        currentHunk.addLine(start, end);
+      } else {
+        // header line of the next diff
+        startDiff(start);
+        currentDiff.getHeaderLines().add(decode(buffer, start, end));
+      }
+    }
+
+    /** Emit the current diff if it has hunks, the following lines belong to the next diff */
+    private void startDiff(int start) {
+      currentHunk = null;
+      if (!currentDiff.getHunks().isEmpty()) {
+        consumer.accept(currentDiff);
+        currentDiff = new Diff();
+        diffStart = start;
+      }
+    }
+
+    /**
+     * Continue in a new buffer, where the bytes of the current diff start at 0
+     *
+     * @param shift the offset of the current diff in the old buffer
+     */
+    void rebase(ByteBuffer newBuffer, int shift) {
+      buffer = newBuffer;
+      for (Hunk hunk : currentDiff.getHunks()) {
+        ((LazyHunk) hunk).rebase(newBuffer, shift);
+      }
+      if (pendingStart >= 0) {
+        pendingStart -= shift;
+        pendingEnd -= shift;
+      }
+      diffStart = 0;
+    }
+
+    void finish() {
+      if (pendingStart >= 0) {
+        int fromStart = pendingStart;
+        pendingStart = -1;
+        scanOtherLine(fromStart, pendingEnd);
+      }
+      startDiff(0);
+    }
+  }
+
+  /**
+   * Find the offsets of "diff --git" lines where the input can be cut, so that parsing the sections
+   * one by one gives the same diffs as parsing the whole.
+   *
+   * <p>This follows the {@link Scanner} as far as needed: the input is cut before a "diff --git"
+   * line only if the scanner emits the current diff there and starts over, i.e. the line is out of
+   * hunks (by their line counts) and the current diff has hunks. The headers of a diff without
+   * hunks (e.g. a binary one) are carried to the next diff, so the two are kept in one section.
+   *
+   * @param buffer
+   * @param minSectionBytes
+   * @return offsets of the line starts, in ascending order
+   */
+  private List<Integer> findBoundaries(ByteBuffer buffer, int minSectionBytes) {
+    List<Integer> boundaries = new ArrayList<>();
+    HunkHeaderScanner.ByteLine headerLine = new HunkHeaderScanner.ByteLine();
+    int[] ranges = new int[4];
+    int limit = buffer.limit();
+    int sectionStart = buffer.position();
+    // the states of the scanner: whether the current diff has hunks, whether a hunk has started,
+    // the lines left in it, and whether the previous line is a "---" line waiting for "+++"
+    boolean diffHasHunks = false;
+    boolean inHunk = false;
+    int fromRemaining = 0;
+    int toRemaining = 0;
+    boolean pending = false;
+    int start = buffer.position();
+    while (start < limit) {
+      int next = nextLineStart(buffer, start, limit);
+      int end = lineEnd(buffer, start, Math.min(next - 1, limit));
+      if (pending) {
+        pending = false;
+        if (startsWith(buffer, start, end, "+++")) {
+          // the file header of a new diff
+          diffHasHunks = false;
+          inHunk = false;
+          start = next;
+          continue;
+        }
+        // the "---" line is kept in the hunk, or starts a new diff as a header line
+        if (!inHunk) {
+          diffHasHunks = false;
+        }
+      }
+
+      byte first = end > start ? buffer.get(start) : 0;
+      if (inHunk && (fromRemaining > 0 || toRemaining > 0)) {
+        if (first == '-') {
+          fromRemaining--;
+        } else if (first == '+') {
+          toRemaining--;
+        } else if (first != '\\') {
+          fromRemaining--;
+          toRemaining--;
+        }
+      } else if (first == '\\') {
+        // "\ No newline at end of file"
+      } else if (startsWith(buffer, start, end, "@@ -")) {
+        parseHunkRanges(buffer, start, end, headerLine, ranges);
+        diffHasHunks = true;
+        inHunk = true;
+        fromRemaining = ranges[1];
+        toRemaining = ranges[3];
+      } else if (startsWith(buffer, start, end, "---")) {
+        pending = true;
+      } else if (!inHunk || (first != '-' && first != '+' && first != ' ')) {
+        // a header line, which emits the current diff if it has hunks
+        if (diffHasHunks
+            && start - sectionStart >= minSectionBytes
+            && startsWith(buffer, start, end, "diff --git ")) {
+          boundaries.add(start);
+          sectionStart = start;
+        }
+        diffHasHunks = false;
+        inHunk = false;
+      }
+      start = next;
+    }
+    return boundaries;
+  }
+
+  /**
+   * Parse "@@ -from[,count] +to[,count] @@"
+   *
+   * @param line reused to scan the header in place
+   * @param ranges output of from, fromCount, to, toCount (counts default to 1)
+   */
+  private void parseHunkRanges(
+      ByteBuffer buffer, int start, int end, HunkHeaderScanner.ByteLine line, int[] ranges) {
+    // skip "@@ -"
+    if (!HunkHeaderScanner.parseAt(line.reset(buffer, start, end), 4, ranges)) {
+      throw new IllegalStateException(
+          String.format(
+              "No line ranges found in the following hunk start line: '%s'. Expected something "
+                  + "like '-1,5 +3,5'.",
+              decode(buffer, start, end)));
+    }
+  }
+
+  private static int nextLineStart(ByteBuffer buffer, int from, int limit) {
+    int i = from;
+    while (i < limit && buffer.get(i) != '\n') {
+      i++;
+    }
+    return i + 1;
+  }
+
+  /**
+   * End of the line content, without "\r" before the line break
+   *
+   * @param end offset of the line break (or the end of input)
+   */
+  private static int lineEnd(ByteBuffer buffer, int start, int end) {
+    if (end > start && buffer.get(end - 1) == '\r') {
+      end--;
+    }
+    return end;
+  }
+
+  private static boolean startsWith(ByteBuffer buffer, int start, int end, String prefix) {
+    if (end - start < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); ++i) {
+      if (buffer.get(start + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String decode(ByteBuffer buffer, int start, int end) {
+    return decode(buffer, charset, start, end);
+  }
+
+  private static String decode(ByteBuffer buffer, Charset charset, int start, int end) {
+    if (end <= start) {
+      return "";
+    }
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + start, end - start, charset);
+    }
+    byte[] bytes = new byte[end - start];
+    ByteBuffer slice = buffer.duplicate();
+    slice.position(start);
+    slice.get(bytes);
+    return new String(bytes, charset);
+  }
+
+  /** Cuts a TAB and all following characters from a String. */
+  private static String cutAfterTab(String line) {
+    int tab = line.indexOf('\t');
+    return tab < 0 ? line : line.substring(0, tab);
+  }
+
+  /** A hunk that decodes its lines from the buffer on first access */
+  private static class LazyHunk extends Hunk {
+    private ByteBuffer buffer;
+    private final Charset charset;
+    // start and end offsets of the lines, the hunk start line first
+    private int[] offsets = new int[16];
+    private int size = 0;
+    private boolean materialized = false;
+
+    LazyHunk(ByteBuffer buffer, Charset charset, int start, int end) {
+      this.buffer = buffer;
+      this.charset = charset;
+      addLine(start, end);
+    }
+
+    void rebase(ByteBuffer newBuffer, int shift) {
+      buffer = newBuffer;
+      for (int i = 0; i < size; ++i) {
+        offsets[i] -= shift;
+      }
+    }
+
+    void addLine(int start, int end) {
+      if (size + 2 > offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[size++] = start;
+      offsets[size++] = end;
+    }
+
+    @Override
+    public List<Line> getLines() {
+      materialize();
+      return super.getLines();
+    }
+
+    @Override
+    public List<String> getRawLines() {
+      materialize();
+      return super.getRawLines();
+    }
+
+    @Override
+    public void setLines(List<Line> lines) {
+      materialize();
+      super.setLines(lines);
+    }
+
+    @Override
+    public void setRawLines(List<String> rawLines) {
+      materialize();
+      super.setRawLines(rawLines);
+    }
+
+    private synchronized void materialize() {
+      if (materialized) {
+        return;
+      }
+      materialized = true;
+      List<String> rawLines = new ArrayList<>(size / 2);
+      List<Line> lines = new ArrayList<>(size / 2);
+      for (int i = 0; i < size; i += 2) {
+        String rawLine = decode(buffer, charset, offsets[i], offsets[i + 1]);
+        rawLines.add(rawLine);
+        if (i == 0) {
+          // the hunk start line
+          continue;
+        }
+        if (rawLine.startsWith("-")) {
+          lines.add(new Line(Line.LineType.FROM, rawLine.substring(1)));
+        } else if (rawLine.startsWith("+")) {
+          lines.add(new Line(Line.LineType.TO, rawLine.substring(1)));
+        } else {
+          lines.add(new Line(Line.LineType.NEUTRAL, rawLine));
+        }
+      }
+      super.setRawLines(rawLines);
+      super.setLines(lines);
+      // the offsets are no longer needed
+      offsets = null;
+    }
+  }
+}
@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface to a parser that parses a textual diff between two text files. See the javadoc of the
@@ -52,4 +53,15 @@ public interface DiffParser {
    * @return list of Diff objects parsed from the File.
    */
   List<Diff> parse(File file) throws IOException;
+
+  /**
+   * Parses the Diffs from a textual InputStream and passes each of them to the consumer. By
+   * default, the Diffs are passed after the whole stream is parsed.
+   *
+   * @param in the input stream to parse
+   * @param consumer accepts the Diffs in order
+   */
+  default void parse(InputStream in, Consumer<Diff> consumer) {
+    parse(in).forEach(consumer);
+  }
 }
@@ -17,13 +17,13 @@ import com.github.smartcommit.util.diffparser.api.model.Diff;
 import com.github.smartcommit.util.diffparser.api.model.Hunk;
 import com.github.smartcommit.util.diffparser.api.model.Line;
 import com.github.smartcommit.util.diffparser.api.model.Range;
+import com.github.smartcommit.util.diffparser.unified.HunkHeaderScanner;
 import com.github.smartcommit.util.diffparser.unified.ParserState;
 import com.github.smartcommit.util.diffparser.unified.ResizingParseWindow;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -53,6 +53,7 @@ import java.util.regex.Pattern;
  * off.
  */
 public class UnifiedDiffParser implements DiffParser {
+  /** Replaced by {@link HunkHeaderScanner} in parsing, kept for reference and comparison */
   public static final Pattern LINE_RANGE_PATTERN =
       Pattern.compile("^.*-([0-9]+)(?:,([0-9]+))? \\+([0-9]+)(?:,([0-9]+))?.*$");
 
@@ -62,6 +63,7 @@ public class UnifiedDiffParser implements DiffParser {
     ParserState state = ParserState.INITIAL;
     List<Diff> parsedDiffs = new ArrayList<>();
     Diff currentDiff = new Diff();
+    int[] ranges = new int[4];
     String currentLine;
     while ((currentLine = window.slideForward()) != null) {
       ParserState lastState = state;
@@ -86,7 +88,7 @@ public class UnifiedDiffParser implements DiffParser {
           parseToFile(currentDiff, currentLine);
           break;
         case HUNK_START:
-          parseHunkStart(currentDiff, currentLine);
+          parseHunkStart(currentDiff, currentLine, ranges);
           break;
         case FROM_LINE:
           parseFromLine(currentDiff, currentLine);
@@ -133,16 +135,13 @@ public class UnifiedDiffParser implements DiffParser {
     currentDiff.getLatestHunk().getLines().add(fromLine);
   }
 
-  private void parseHunkStart(Diff currentDiff, String currentLine) {
-    Matcher matcher = LINE_RANGE_PATTERN.matcher(currentLine);
-    if (matcher.matches()) {
-      String range1Start = matcher.group(1);
-      String range1Count = (matcher.group(2) != null) ? matcher.group(2) : "1";
-      Range fromRange = new Range(Integer.valueOf(range1Start), Integer.valueOf(range1Count));
-
-      String range2Start = matcher.group(3);
-      String range2Count = (matcher.group(4) != null) ? matcher.group(4) : "1";
-      Range toRange = new Range(Integer.valueOf(range2Start), Integer.valueOf(range2Count));
+  /**
+   * @param ranges buffer for the line ranges, reused across hunks
+   */
+  private void parseHunkStart(Diff currentDiff, String currentLine, int[] ranges) {
+    if (HunkHeaderScanner.parse(currentLine, ranges)) {
+      Range fromRange = new Range(ranges[0], ranges[1]);
+      Range toRange = new Range(ranges[2], ranges[3]);
 
       Hunk hunk = new Hunk();
       hunk.setFromFileRange(fromRange);
@@ -166,15 +165,14 @@ public class UnifiedDiffParser implements DiffParser {
     currentDiff.setFromFileName(cutAfterTab(currentLine.substring(4)));
   }
 
-  /** Cuts a TAB and all following characters from a String. */
+  /** Cuts the last TAB and all following characters from a String. */
   private String cutAfterTab(String line) {
-    Pattern p = Pattern.compile("^(.*)\\t.*$");
-    Matcher matcher = p.matcher(line);
-    if (matcher.matches()) {
-      return matcher.group(1);
-    } else {
+    int tab = line.lastIndexOf('\t');
+    if (tab < 0 || HunkHeaderScanner.hasLineTerminator(line)) {
+      // as "^(.*)\\t.*$", which does not match across line terminators
       return line;
     }
+    return line.substring(0, tab);
   }
 
   private void parseHeader(Diff currentDiff, String currentLine) {
@@ -0,0 +1,211 @@
+package com.github.smartcommit.util.diffparser.unified;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Scans the line ranges of a hunk header ("@@ -from[,count] +to[,count] @@") without regular
+ * expressions or allocations.
+ *
+ * <p>{@link #matches} and {@link #parse} give the same result as matching
+ * UnifiedDiffParser.LINE_RANGE_PATTERN: the ranges may be anywhere in the line and the last ones
+ * win, and a line with a line terminator in it never matches. {@link #parseAt} reads the ranges
+ * at a known offset, e.g. right after "@@ -" in the output of git diff, which may be followed by
+ * anything. Lines in a byte buffer are scanned through a {@link ByteLine}, without decoding them.
+ */
+public final class HunkHeaderScanner {
+  private static final int MAX_TENTH = Integer.MAX_VALUE / 10;
+
+  private HunkHeaderScanner() {}
+
+  /**
+   * Whether the line contains line ranges
+   *
+   * @param line
+   * @return
+   */
+  public static boolean matches(CharSequence line) {
+    return find(line, null);
+  }
+
+  /**
+   * Parse the line ranges in the line
+   *
+   * @param line
+   * @param ranges output of from, fromCount, to, toCount (counts default to 1)
+   * @return false if no line ranges found
+   * @throws NumberFormatException if a number overflows int, as Integer.valueOf
+   */
+  public static boolean parse(CharSequence line, int[] ranges) {
+    return find(line, ranges);
+  }
+
+  /**
+   * Parse the line ranges starting at the offset, where the from line number is
+   *
+   * @param line
+   * @param offset e.g. 4 to skip "@@ -"
+   * @param ranges output of from, fromCount, to, toCount (counts default to 1)
+   * @return false if no line ranges at the offset
+   * @throws NumberFormatException if a number overflows int, as Integer.valueOf
+   */
+  public static boolean parseAt(CharSequence line, int offset, int[] ranges) {
+    return matchesAt(line, offset, ranges);
+  }
+
+  /**
+   * Whether the line contains a character that "." in a regular expression does not match
+   *
+   * @param line
+   * @return
+   */
+  public static boolean hasLineTerminator(CharSequence line) {
+    for (int i = 0; i < line.length(); ++i) {
+      if (isLineTerminator(line.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean find(CharSequence line, int[] ranges) {
+    int length = line.length();
+    if (hasLineTerminator(line)) {
+      return false;
+    }
+    // the greedy ".*" before the ranges takes the last match
+    for (int i = length - 1; i >= 0; --i) {
+      if (line.charAt(i) == '-' && matchesAt(line, i + 1, ranges)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Match "from[,count] +to[,count]" at the given offset */
+  private static boolean matchesAt(CharSequence line, int offset, int[] ranges) {
+    int length = line.length();
+    int fromEnd = skipDigits(line, offset);
+    if (fromEnd == offset) {
+      return false;
+    }
+    int fromCountEnd = fromEnd;
+    if (fromEnd < length && line.charAt(fromEnd) == ',') {
+      fromCountEnd = skipDigits(line, fromEnd + 1);
+      if (fromCountEnd == fromEnd + 1) {
+        // "," without digits, " +" is required right after the number instead
+        fromCountEnd = fromEnd;
+      }
+    }
+    if (fromCountEnd + 1 >= length
+        || line.charAt(fromCountEnd) != ' '
+        || line.charAt(fromCountEnd + 1) != '+') {
+      return false;
+    }
+    int toStart = fromCountEnd + 2;
+    int toEnd = skipDigits(line, toStart);
+    if (toEnd == toStart) {
+      return false;
+    }
+    if (ranges != null) {
+      ranges[0] = readInt(line, offset, fromEnd);
+      ranges[1] = fromCountEnd > fromEnd ? readInt(line, fromEnd + 1, fromCountEnd) : 1;
+      ranges[2] = readInt(line, toStart, toEnd);
+      ranges[3] = 1;
+      if (toEnd < length && line.charAt(toEnd) == ',') {
+        int toCountEnd = skipDigits(line, toEnd + 1);
+        if (toCountEnd > toEnd + 1) {
+          ranges[3] = readInt(line, toEnd + 1, toCountEnd);
+        }
+      }
+    }
+    return true;
+  }
+
+  private static int skipDigits(CharSequence line, int offset) {
+    int length = line.length();
+    int i = offset;
+    while (i < length && isDigit(line.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int readInt(CharSequence line, int start, int end) {
+    int value = 0;
+    for (int i = start; i < end; ++i) {
+      int digit = line.charAt(i) - '0';
+      if (value >= MAX_TENTH && (value > MAX_TENTH || digit > Integer.MAX_VALUE % 10)) {
+        throw new NumberFormatException(
+            "For input string: \"" + line.subSequence(start, end) + "\"");
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  /**
+   * A line in a byte buffer seen as chars, one per byte, which can be reused for the next line.
+   * The line ranges are ASCII, so they are read the same as from the decoded line.
+   */
+  public static final class ByteLine implements CharSequence {
+    private ByteBuffer buffer;
+    // the backing array of the buffer if any, read directly as it is much faster
+    private byte[] array;
+    private int start;
+    private int end;
+
+    /**
+     * Point to another line
+     *
+     * @param buffer
+     * @param start offset of the first byte
+     * @param end offset after the last byte
+     * @return
+     */
+    public ByteLine reset(ByteBuffer buffer, int start, int end) {
+      this.buffer = buffer;
+      this.start = start;
+      this.end = end;
+      if (buffer.hasArray()) {
+        this.array = buffer.array();
+        this.start += buffer.arrayOffset();
+        this.end += buffer.arrayOffset();
+      } else {
+        this.array = null;
+      }
+      return this;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) ((array != null ? array[start + index] : buffer.get(start + index)) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+      return toString().substring(from, to);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder(length());
+      for (int i = 0; i < length(); ++i) {
+        builder.append(charAt(i));
+      }
+      return builder.toString();
+    }
+  }
+}
@@ -15,8 +15,6 @@ package com.github.smartcommit.util.diffparser.unified;
 
 import org.apache.log4j.Logger;
 
-import static com.github.smartcommit.util.diffparser.api.UnifiedDiffParser.LINE_RANGE_PATTERN;
-
 /**
  * State machine for a parser parsing a unified diff.
  *
@@ -240,35 +238,58 @@ public enum ParserState {
   public abstract ParserState nextState(ParseWindow window);
 
   protected void logTransition(String currentLine, ParserState fromState, ParserState toState) {
-    logger.debug(String.format("%12s -> %12s: %s", fromState, toState, currentLine));
+    // formatting every line is costly, even if not logged
+    if (logger.isDebugEnabled()) {
+      logger.debug(String.format("%12s -> %12s: %s", fromState, toState, currentLine));
+    }
   }
 
   protected boolean matchesFromFilePattern(String line, String nextLine) {
-    return line.startsWith("---") && nextLine.startsWith("+++");
+    return startsWithThree(line, '-') && startsWithThree(nextLine, '+');
   }
 
   protected boolean matchesToFilePattern(String line) {
-    return line.startsWith("+++");
+    return startsWithThree(line, '+');
   }
 
   protected boolean matchesFromLinePattern(String line) {
-    return line.startsWith("-");
+    return firstChar(line) == '-';
   }
 
   protected boolean matchesNeutralPattern(String line) {
-    return line.startsWith(" ") || line.startsWith("\\");
+    char first = firstChar(line);
+    return first == ' ' || first == '\\';
   }
 
   protected boolean matchesToLinePattern(String line) {
-    return line.startsWith("+");
+    return firstChar(line) == '+';
   }
 
   protected boolean matchesHunkStartPattern(String line) {
-    return LINE_RANGE_PATTERN.matcher(line).matches();
+    return HunkHeaderScanner.matches(line);
+  }
+
+  /** The first char of the line, or 0 for an empty line */
+  private static char firstChar(String line) {
+    return line.isEmpty() ? 0 : line.charAt(0);
+  }
+
+  private static boolean startsWithThree(String line, char c) {
+    return line.length() >= 3 && line.charAt(0) == c && line.charAt(1) == c && line.charAt(2) == c;
+  }
+
+  /** Same as "".equals(line.trim()), without copying the line */
+  private static boolean isBlank(String line) {
+    for (int i = 0; i < line.length(); ++i) {
+      if (line.charAt(i) > ' ') {
+        return false;
+      }
+    }
+    return true;
   }
 
   protected boolean matchesEndPattern(String line, ParseWindow window) {
-    if ("".equals(line.trim())) {
+    if (isBlank(line)) {
       // We have a newline which might be the delimiter between two diffs. It may just be an empty
       // line in the current diff or it
       // may be the delimiter to the next diff. This has to be disambiguated...
@@ -280,7 +301,7 @@ public enum ParserState {
           // current line the delimiter
           // between this diff and the next.
           return true;
-        } else if ("".equals(futureLine.trim())) {
+        } else if (isBlank(futureLine)) {
           // We found another newline after the current newline without a start of a new diff in
           // between. That makes the
           // current line just a newline within the current diff.
@@ -128,11 +128,12 @@ public class ResizingParseWindow implements ParseWindow {
   }
 
   private boolean matchesIgnorePattern(String line) {
-    if (line == null) {
+    // usually there is no pattern to ignore, skip it for every line
+    if (line == null || ignorePatterns.isEmpty()) {
       return false;
     } else {
-      for (Pattern pattern : ignorePatterns) {
-        Matcher matcher = pattern.matcher(line);
+      for (int i = 0; i < ignorePatterns.size(); ++i) {
+        Matcher matcher = ignorePatterns.get(i).matcher(line);
         if (matcher.matches()) {
           return true;
         }
@@ -0,0 +1,38 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.util.CharsetDetector;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestCharsetDetector {
+  private static final String CHINESE = "智能提交：将复合的代码变更分解为原子的提交。";
+
+  @Test
+  public void testASCIIAndUTF8() {
+    assertThat(CharsetDetector.detect("class A {}\n".getBytes(StandardCharsets.US_ASCII)))
+        .isEqualTo(StandardCharsets.UTF_8);
+    assertThat(CharsetDetector.detect(repeat(CHINESE, 100).getBytes(StandardCharsets.UTF_8)))
+        .isEqualTo(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testGBK() {
+    Charset gbk = Charset.forName("GBK");
+    assertThat(CharsetDetector.detect(repeat(CHINESE, 100).getBytes(gbk))).isEqualTo(gbk);
+    // non-UTF-8 bytes after a long ASCII prefix (across chunks)
+    String content = repeat("// ascii only\n", 2000) + repeat(CHINESE, 100);
+    assertThat(CharsetDetector.detect(content.getBytes(gbk))).isEqualTo(gbk);
+  }
+
+  private String repeat(String text, int times) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < times; ++i) {
+      builder.append(text).append("\n");
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,66 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.model.ContentHandle;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestContentHandle {
+  @Test
+  public void testReleaseAndReload() {
+    AtomicInteger loads = new AtomicInteger();
+    ContentHandle handle =
+        new ContentHandle(
+            "class A {}",
+            () -> {
+              loads.incrementAndGet();
+              return "class A {}";
+            });
+    handle.retain().retain();
+    handle.release();
+    // still retained by one holder
+    assertThat(handle.isLoaded()).isTrue();
+    handle.release();
+    assertThat(handle.isLoaded()).isFalse();
+    assertThat(handle.getLoadedSize()).isEqualTo(0L);
+
+    // loaded on demand and kept until the next release
+    assertThat(handle.get()).isEqualTo("class A {}");
+    handle.get();
+    assertThat(handle.isLoaded()).isTrue();
+    assertThat(loads.get()).isEqualTo(1);
+    handle.release();
+    assertThat(handle.isLoaded()).isFalse();
+    handle.get();
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testLoadFailure() {
+    ContentHandle handle =
+        new ContentHandle(
+            null,
+            () -> {
+              throw new IOException("missing object");
+            });
+    // not taken as an empty file
+    assertThatThrownBy(handle::get)
+        .isInstanceOf(UncheckedIOException.class)
+        .hasRootCauseMessage("missing object");
+    assertThat(handle.isLoaded()).isFalse();
+  }
+
+  @Test
+  public void testWithoutSource() {
+    ContentHandle handle = new ContentHandle("class B {}").retain();
+    handle.release();
+    // cannot be loaded again, so never dropped
+    assertThat(handle.isLoaded()).isTrue();
+    assertThat(handle.get()).isEqualTo("class B {}");
+  }
+}
@@ -0,0 +1,152 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.util.diffparser.api.ByteBufferDiffParser;
+import com.github.smartcommit.util.diffparser.api.UnifiedDiffParser;
+import com.github.smartcommit.util.diffparser.api.model.Diff;
+import com.github.smartcommit.util.diffparser.api.model.Hunk;
+import com.github.smartcommit.util.diffparser.api.model.Line;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestDiffParser {
+  private static final String DIFF =
+      String.join(
+          "\n",
+          "diff --git a/A.java b/A.java",
+          "index 1111111..2222222 100644",
+          "--- a/A.java",
+          "+++ b/A.java",
+          "@@ -3,0 +4,2 @@ class A {",
+          "+  int x;",
+          "+  int y;",
+          "@@ -10 +12 @@ class A {",
+          "-  return 0;",
+          "+  return 1;",
+          "diff --git a/b.png b/b.png",
+          "index 3333333..4444444 100644",
+          "Binary files a/b.png and b/b.png differ",
+          "diff --git a/C.txt b/C.txt",
+          "index 5555555..0000000",
+          "--- a/C.txt",
+          "+++ /dev/null",
+          "@@ -1,2 +0,0 @@",
+          "--- not a header",
+          "-+++ not a header either",
+          "\\ No newline at end of file",
+          "");
+
+  @Test
+  public void testSameAsUnifiedDiffParser() {
+    byte[] bytes = DIFF.getBytes(StandardCharsets.UTF_8);
+    List<Diff> expected = new UnifiedDiffParser().parse(bytes);
+    List<Diff> actual = new ByteBufferDiffParser(StandardCharsets.UTF_8).parse(bytes);
+    assertThat(actual).hasSize(expected.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      assertThat(summarize(actual.get(i))).isEqualTo(summarize(expected.get(i)));
+    }
+  }
+
+  @Test
+  public void testHunkEndsByLineCounts() {
+    List<Diff> diffs =
+        new ByteBufferDiffParser(StandardCharsets.UTF_8)
+            .parse(DIFF.getBytes(StandardCharsets.UTF_8));
+    Diff diff = diffs.get(1);
+    // headers of the binary file without hunks are kept before the next diff
+    assertThat(diff.getHeaderLines()).contains("Binary files a/b.png and b/b.png differ");
+    assertThat(diff.getFromFileName()).isEqualTo("a/C.txt");
+    assertThat(diff.getToFileName()).isEqualTo("/dev/null");
+    List<Line> lines = diff.getHunks().get(0).getLines();
+    assertThat(lines).hasSize(3);
+    assertThat(lines.get(0).getLineType()).isEqualTo(Line.LineType.FROM);
+    assertThat(lines.get(0).getContent()).isEqualTo("-- not a header");
+    assertThat(lines.get(1).getContent()).isEqualTo("+++ not a header either");
+    assertThat(lines.get(2).getLineType()).isEqualTo(Line.LineType.NEUTRAL);
+  }
+
+  @Test
+  public void testHunkRangesAfterHunkStart() {
+    // the ranges in the function name are not taken
+    byte[] bytes =
+        String.join(
+                "\n",
+                "--- a/A.java",
+                "+++ b/A.java",
+                "@@ -10 +12,2 @@ int f(int a-1 +2,3) {",
+                "-  return 0;",
+                "+  return 1;",
+                "+  // done",
+                "")
+            .getBytes(StandardCharsets.UTF_8);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    ByteBufferDiffParser parser = new ByteBufferDiffParser(StandardCharsets.UTF_8);
+    for (List<Diff> diffs : Arrays.asList(parser.parse(bytes), parser.parse(direct))) {
+      Hunk hunk = diffs.get(0).getHunks().get(0);
+      assertThat(hunk.getFromFileRange().getLineStart()).isEqualTo(10);
+      assertThat(hunk.getFromFileRange().getLineCount()).isEqualTo(1);
+      assertThat(hunk.getToFileRange().getLineStart()).isEqualTo(12);
+      assertThat(hunk.getToFileRange().getLineCount()).isEqualTo(2);
+      assertThat(hunk.getLines()).hasSize(3);
+    }
+  }
+
+  @Test
+  public void testStreamingSameAsList() {
+    byte[] bytes = DIFF.getBytes(StandardCharsets.UTF_8);
+    ByteBufferDiffParser parser = new ByteBufferDiffParser(StandardCharsets.UTF_8);
+    List<Diff> expected = parser.parse(bytes);
+    List<Diff> actual = new ArrayList<>();
+    parser.parse(new ByteArrayInputStream(bytes), actual::add);
+    assertThat(actual).hasSize(expected.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      assertThat(summarize(actual.get(i))).isEqualTo(summarize(expected.get(i)));
+    }
+  }
+
+  @Test
+  public void testParallelSameAsSequential() {
+    StringBuilder builder = new StringBuilder();
+    // large enough to be split into several sections
+    for (int i = 0; i < 4000; ++i) {
+      builder.append(DIFF);
+    }
+    byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+    ByteBufferDiffParser parser = new ByteBufferDiffParser(StandardCharsets.UTF_8);
+    List<Diff> expected = parser.parse(bytes);
+    parser.setParallelEnabled(true);
+    List<Diff> actual = parser.parse(bytes);
+    assertThat(actual).hasSize(expected.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      assertThat(summarize(actual.get(i))).isEqualTo(summarize(expected.get(i)));
+    }
+  }
+
+  private String summarize(Diff diff) {
+    StringBuilder builder = new StringBuilder();
+    builder
+        .append(diff.getHeaderLines())
+        .append(diff.getFromFileName())
+        .append(diff.getToFileName());
+    for (Hunk hunk : diff.getHunks()) {
+      builder
+          .append(hunk.getFromFileRange().getLineStart())
+          .append(hunk.getFromFileRange().getLineCount())
+          .append(hunk.getToFileRange().getLineStart())
+          .append(hunk.getToFileRange().getLineCount())
+          .append(hunk.getRawLines());
+      for (Line line : hunk.getLines()) {
+        builder.append(line.getLineType()).append(line.getContent());
+      }
+    }
+    return builder.toString();
+  }
+}
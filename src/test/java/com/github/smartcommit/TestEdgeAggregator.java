@@ -0,0 +1,59 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.core.GraphBuilder;
+import com.github.smartcommit.model.graph.Edge;
+import com.github.smartcommit.model.graph.EdgeAggregator;
+import com.github.smartcommit.model.graph.EdgeType;
+import com.github.smartcommit.model.graph.Node;
+import com.github.smartcommit.model.graph.NodeType;
+import com.github.smartcommit.util.LongIntHashMap;
+import org.jgrapht.Graph;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestEdgeAggregator {
+  @Test
+  public void testMaterializeWeightsAndIds() {
+    Graph<Node, Edge> graph = GraphBuilder.initGraph();
+    Node a = new Node(1, NodeType.METHOD, "a", "A:a()");
+    Node b = new Node(2, NodeType.METHOD, "b", "A:b()");
+    Node f = new Node(3, NodeType.FIELD, "f", "A:f");
+    graph.addVertex(a);
+    graph.addVertex(b);
+    graph.addVertex(f);
+    graph.addEdge(a, f, new Edge(1, EdgeType.DEFINE));
+
+    EdgeAggregator aggregator = new EdgeAggregator();
+    aggregator.add(a, b, EdgeType.CALL);
+    aggregator.add(a, f, EdgeType.ACCESS);
+    aggregator.add(a, b, EdgeType.CALL);
+    aggregator.add(b, a, EdgeType.CALL);
+    aggregator.add(a, b, EdgeType.CALL);
+    assertThat(aggregator.size()).isEqualTo(3);
+    assertThat(aggregator.materialize(graph)).isEqualTo(3);
+
+    Edge call = graph.getEdge(a, b);
+    assertThat(call.getId()).isEqualTo(1);
+    assertThat(call.getWeight()).isEqualTo(3);
+    assertThat(graph.getAllEdges(a, f)).hasSize(2);
+    Edge back = graph.getEdge(b, a);
+    assertThat(back.getId()).isEqualTo(3);
+    assertThat(back.getWeight()).isEqualTo(1);
+    assertThat(aggregator.size()).isZero();
+  }
+
+  @Test
+  public void testLongIntHashMap() {
+    LongIntHashMap map = new LongIntHashMap();
+    for (int i = 0; i < 1000; ++i) {
+      map.put((long) i << 35, i);
+    }
+    map.put(0L, -1);
+    assertThat(map.size()).isEqualTo(1000);
+    assertThat(map.get(0L, 7)).isEqualTo(-1);
+    assertThat(map.get(999L << 35, -2)).isEqualTo(999);
+    assertThat(map.get(1000L << 35, -2)).isEqualTo(-2);
+    assertThat(map.containsKey(1L)).isFalse();
+  }
+}
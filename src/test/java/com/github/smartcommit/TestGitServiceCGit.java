@@ -0,0 +1,138 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.util.CommandRunner;
+import com.github.smartcommit.util.GitServiceCGit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TestGitServiceCGit {
+  // quoted by git: non-ASCII, tab and double quote
+  private static final List<String> PATHS =
+      Arrays.asList("src/中文.java", "src/a\tb.java", "src/a\"b.java", "src/Plain.java");
+
+  @Test
+  public void testQuotedPathsInWorkingTree(@TempDir Path dir) throws IOException {
+    String repoPath = initRepo(dir);
+    for (String path : PATHS) {
+      write(dir, path, "class A {\n  int a;\n  int c;\n}\n");
+    }
+
+    GitServiceCGit gitService = new GitServiceCGit();
+    List<DiffFile> diffFiles = gitService.getChangedFilesInWorkingTree(repoPath);
+    assertThat(diffFiles.stream().map(DiffFile::getCurrentRelativePath).collect(Collectors.toList()))
+        .containsExactlyInAnyOrderElementsOf(PATHS);
+    List<DiffHunk> diffHunks = gitService.getDiffHunksInWorkingTree(repoPath, diffFiles);
+    assertThat(diffHunks).hasSize(PATHS.size());
+    for (DiffFile diffFile : diffFiles) {
+      assertThat(diffFile.getDiffHunks()).as(diffFile.getBaseRelativePath()).hasSize(1);
+    }
+  }
+
+  @Test
+  public void testQuotedPathsAtCommit(@TempDir Path dir) throws IOException {
+    String repoPath = initRepo(dir);
+    for (String path : PATHS) {
+      write(dir, path, "class A {\n  int a;\n  int c;\n}\n");
+    }
+    git(repoPath, "commit", "-q", "-am", "change");
+
+    GitServiceCGit gitService = new GitServiceCGit();
+    String commitID = git(repoPath, "rev-parse", "HEAD").trim();
+    List<DiffFile> diffFiles = gitService.getChangedFilesAtCommit(repoPath, commitID);
+    assertThat(diffFiles.stream().map(DiffFile::getBaseRelativePath).collect(Collectors.toList()))
+        .containsExactlyInAnyOrderElementsOf(PATHS);
+    gitService.getDiffHunksAtCommit(repoPath, commitID, diffFiles);
+    for (DiffFile diffFile : diffFiles) {
+      assertThat(diffFile.getDiffHunks()).as(diffFile.getBaseRelativePath()).hasSize(1);
+    }
+  }
+
+  @Test
+  public void testStatusRecords(@TempDir Path dir) throws IOException {
+    String repoPath = initRepo(dir);
+    git(repoPath, "config", "core.autocrlf", "true");
+    write(dir, "src/Crlf.txt", "a\r\nb\r\n");
+    write(dir, "src/Conflict.java", "class C {}\n");
+    git(repoPath, "add", "-A");
+    git(repoPath, "commit", "-q", "-m", "add");
+    // unmerged: u UU
+    git(repoPath, "checkout", "-q", "-b", "other");
+    write(dir, "src/Conflict.java", "class C { int b; }\n");
+    git(repoPath, "commit", "-q", "-am", "other");
+    git(repoPath, "checkout", "-q", "-");
+    write(dir, "src/Conflict.java", "class C { int a; }\n");
+    git(repoPath, "commit", "-q", "-am", "this");
+    assertThat(CommandRunner.run(repoPath, "git", "merge", "-q", "other").isSuccess()).isFalse();
+
+    // renamed in the index: 2 R. <path>\0<origPath>
+    git(repoPath, "mv", "src/Plain.java", "src/Moved.java");
+    // deleted from the index but unchanged: 1 D. and ?, filtered by autocrlf for Crlf.txt
+    git(repoPath, "rm", "-q", "--cached", "src/a\"b.java", "src/Crlf.txt");
+    // added then deleted: 1 AD
+    write(dir, "src/New.java", "class N {}\n");
+    git(repoPath, "add", "src/New.java");
+    Files.delete(dir.resolve("src/New.java"));
+
+    List<String> changes = new ArrayList<>();
+    for (DiffFile diffFile : new GitServiceCGit().getChangedFilesInWorkingTree(repoPath)) {
+      String path =
+          diffFile.getCurrentRelativePath().isEmpty()
+              ? diffFile.getBaseRelativePath()
+              : diffFile.getCurrentRelativePath();
+      changes.add(diffFile.getStatus() + " " + path);
+    }
+    assertThat(changes)
+        .containsExactlyInAnyOrder(
+            "MODIFIED src/Conflict.java", "DELETED src/Plain.java", "ADDED src/Moved.java");
+  }
+
+  private static String initRepo(Path dir) throws IOException {
+    // non-ASCII file names cannot be created under a non-UTF-8 locale
+    assumeTrue(
+        Charset.forName(System.getProperty("sun.jnu.encoding", "UTF-8"))
+            .newEncoder()
+            .canEncode(PATHS.get(0)));
+    String repoPath = dir.toString();
+    git(repoPath, "init", "-q");
+    git(repoPath, "config", "user.name", "test");
+    git(repoPath, "config", "user.email", "test@example.com");
+    // paths must not be printed as is, even if configured to
+    git(repoPath, "config", "core.quotePath", "false");
+    for (String path : PATHS) {
+      write(dir, path, "class A {\n  int a;\n  int b;\n}\n");
+    }
+    git(repoPath, "add", "-A");
+    git(repoPath, "commit", "-q", "-m", "init");
+    return repoPath;
+  }
+
+  private static void write(Path dir, String path, String content) throws IOException {
+    Path file = dir.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String git(String repoPath, String... args) {
+    String[] commands = new String[args.length + 1];
+    commands[0] = "git";
+    System.arraycopy(args, 0, commands, 1, args.length);
+    CommandRunner.Result result = CommandRunner.run(repoPath, commands);
+    assertThat(result.isSuccess()).as(result.getStderr()).isTrue();
+    return result.getOutput(StandardCharsets.UTF_8);
+  }
+}
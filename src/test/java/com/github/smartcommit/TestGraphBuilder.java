@@ -0,0 +1,158 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.core.GraphBuilder;
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.model.Hunk;
+import com.github.smartcommit.model.constant.ChangeType;
+import com.github.smartcommit.model.constant.ContentType;
+import com.github.smartcommit.model.constant.FileStatus;
+import com.github.smartcommit.model.constant.FileType;
+import com.github.smartcommit.model.constant.Version;
+import com.github.smartcommit.model.graph.Edge;
+import com.github.smartcommit.model.graph.EdgeType;
+import com.github.smartcommit.model.graph.Node;
+import com.github.smartcommit.model.graph.NodeType;
+import org.jgrapht.Graph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestGraphBuilder {
+  // files referencing each other, so that edges cross the batches
+  private static final String[][] SOURCES = {
+    {
+      "src/main/java/p/A.java",
+      "package p;\n"
+          + "public class A {\n"
+          + "  B b = new B();\n"
+          + "  int a() {\n"
+          + "    return b.b() + C.c(b);\n"
+          + "  }\n"
+          + "}\n"
+    },
+    {
+      "src/main/java/p/B.java",
+      "package p;\n"
+          + "import q.D;\n"
+          + "public class B {\n"
+          + "  D d;\n"
+          + "  int b() {\n"
+          + "    return d.count + C.c(this);\n"
+          + "  }\n"
+          + "}\n"
+    },
+    {
+      "src/main/java/p/C.java",
+      "package p;\n"
+          + "import q.D;\n"
+          + "public class C {\n"
+          + "  static int c(B b) {\n"
+          + "    return new D().d(new A());\n"
+          + "  }\n"
+          + "}\n"
+    },
+    {
+      "src/main/java/q/D.java",
+      "package q;\n"
+          + "import p.A;\n"
+          + "public class D {\n"
+          + "  public int count;\n"
+          + "  public int d(A a) {\n"
+          + "    return a.a() + count;\n"
+          + "  }\n"
+          + "}\n"
+    }
+  };
+
+  @Test
+  public void testParallelSameAsSequential(@TempDir Path dir) throws IOException {
+    String srcDir = dir.resolve(Version.CURRENT.asString()).toString();
+    List<DiffFile> diffFiles = new ArrayList<>();
+    for (int i = 0; i < SOURCES.length; ++i) {
+      diffFiles.add(createAddedFile(i, SOURCES[i][0], SOURCES[i][1]));
+      Path file = dir.resolve(Version.CURRENT.asString()).resolve(SOURCES[i][0]);
+      Files.createDirectories(file.getParent());
+      Files.write(file, SOURCES[i][1].getBytes(StandardCharsets.UTF_8));
+    }
+
+    Graph<Node, Edge> expected = new GraphBuilder(srcDir, diffFiles).call();
+    GraphBuilder builder = new GraphBuilder(srcDir, diffFiles);
+    builder.setParallelEnabled(true);
+    builder.setBatchNum(2);
+    Graph<Node, Edge> actual = builder.call();
+
+    assertThat(expected.vertexSet()).extracting(Node::getType).contains(NodeType.HUNK);
+    assertThat(expected.edgeSet())
+        .extracting(Edge::getType)
+        .contains(EdgeType.CALL, EdgeType.ACCESS, EdgeType.INITIALIZE);
+    assertThat(describe(actual)).containsExactlyElementsOf(describe(expected));
+  }
+
+  private static DiffFile createAddedFile(int index, String path, String content) {
+    DiffFile diffFile =
+        new DiffFile(
+            index,
+            FileStatus.ADDED,
+            FileType.JAVA,
+            StandardCharsets.UTF_8,
+            "",
+            path,
+            "",
+            content);
+    List<String> lines = Arrays.asList(content.split("\n"));
+    DiffHunk diffHunk =
+        new DiffHunk(
+            0,
+            FileType.JAVA,
+            ChangeType.ADDED,
+            new Hunk(Version.BASE, "", 0, -1, ContentType.EMPTY, new ArrayList<>()),
+            new Hunk(Version.CURRENT, path, 1, lines.size(), ContentType.CODE, lines));
+    diffHunk.setFileIndex(index);
+    diffFile.setDiffHunks(Collections.singletonList(diffHunk));
+    return diffFile;
+  }
+
+  /** Nodes and edges with ids, types and weights, in the order of ids */
+  private static List<String> describe(Graph<Node, Edge> graph) {
+    List<String> lines = new ArrayList<>();
+    graph.vertexSet().stream()
+        .sorted(Comparator.comparing(Node::getId))
+        .forEach(
+            node ->
+                lines.add(
+                    node.getId()
+                        + " "
+                        + node.getType()
+                        + " "
+                        + node.getQualifiedName()
+                        + " "
+                        + node.getDiffHunkIndex()));
+    graph.edgeSet().stream()
+        .sorted(Comparator.comparing(Edge::getId))
+        .forEach(
+            edge ->
+                lines.add(
+                    edge.getId()
+                        + " "
+                        + graph.getEdgeSource(edge).getId()
+                        + " -"
+                        + edge.getType()
+                        + "-> "
+                        + graph.getEdgeTarget(edge).getId()
+                        + " "
+                        + edge.getWeight()));
+    return lines;
+  }
+}
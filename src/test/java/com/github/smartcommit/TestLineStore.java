@@ -0,0 +1,48 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.model.LineStore;
+import com.github.smartcommit.util.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestLineStore {
+  @Test
+  public void testSplitSameAsUtils() {
+    String[] texts = {
+      "", "\n", "a", "a\r\nb\n\n", "\n\nx\r\n", "\u00e9t\u00e9\n\u4e2d\u6587 = 1;"
+    };
+    for (String text : texts) {
+      List<String> expected = Utils.convertStringToList(text);
+      LineStore.Lines lines = LineStore.split(text);
+      assertThat(lines).isEqualTo(expected);
+      assertThat(lines.getJoinedText())
+          .isEqualTo(Utils.convertListLinesToString(new ArrayList<>(expected)));
+      assertThat(lines.getNormalizedText())
+          .isEqualTo(Utils.convertListToStringNoFormat(new ArrayList<>(expected)));
+    }
+  }
+
+  @Test
+  public void testViews() {
+    LineStore.Builder builder = new LineStore.Builder();
+    builder.add("@@ -1,2 +1 @@");
+    builder.add('-', "int a = 0;");
+    builder.add('-', "");
+    builder.add('+', "int b = 1;");
+    LineStore store = builder.build();
+
+    assertThat(store.size()).isEqualTo(4);
+    assertThat(store.range(0, 4))
+        .containsExactly("@@ -1,2 +1 @@", "-int a = 0;", "-", "+int b = 1;");
+    LineStore.Lines from = store.select(new int[] {1, 2}, 1);
+    assertThat(from).containsExactly("int a = 0;", "");
+    assertThat(from.getNormalizedText()).isEqualTo("inta0");
+    assertThat(store.select(new int[] {3}, 1).getJoinedText()).isEqualTo("int b = 1;");
+    assertThat(store.select(new int[0], 1)).isEmpty();
+  }
+}
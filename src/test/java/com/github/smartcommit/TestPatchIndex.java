@@ -0,0 +1,96 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.io.PatchIndex;
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.model.Group;
+import com.github.smartcommit.model.Hunk;
+import com.github.smartcommit.model.constant.ChangeType;
+import com.github.smartcommit.model.constant.ContentType;
+import com.github.smartcommit.model.constant.FileStatus;
+import com.github.smartcommit.model.constant.FileType;
+import com.github.smartcommit.model.constant.GroupLabel;
+import com.github.smartcommit.model.constant.Version;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestPatchIndex {
+  private static final String SEPARATOR = System.lineSeparator();
+
+  @Test
+  public void testGeneratePatches() {
+    PatchIndex index = PatchIndex.of(Arrays.asList(createDiffFile("A"), createDiffFile("B")));
+    // hunks of the same file are put together, files and hunks in the order of the group
+    Group group0 =
+        new Group("r", "repo", "group0", Arrays.asList("B:h1", "A:h0", "B:h0"), GroupLabel.FIX);
+    // the missing file and hunk are skipped
+    Group group1 =
+        new Group("r", "repo", "group1", Arrays.asList("C:h0", "A:h1", "A:h2"), GroupLabel.FIX);
+
+    Map<String, String> patches = index.generatePatches(Arrays.asList(group1, group0), true);
+    assertThat(patches.keySet()).containsExactly("group1", "group0");
+    assertThat(patches.get("group0"))
+        .isEqualTo(
+            String.join(
+                    SEPARATOR,
+                    "diff --git a/B.java b/B.java",
+                    "-B1",
+                    "+B1",
+                    "-B0",
+                    "+B0",
+                    "diff --git a/A.java b/A.java",
+                    "-A0",
+                    "+A0")
+                + SEPARATOR);
+    assertThat(patches.get("group1"))
+        .isEqualTo(String.join(SEPARATOR, "diff --git a/A.java b/A.java", "-A1", "+A1") + SEPARATOR);
+    assertThat(index.generatePatch(group0)).isEqualTo(patches.get("group0"));
+  }
+
+  @Test
+  public void testCollectFileIDs() {
+    List<Group> groups =
+        Arrays.asList(
+            new Group("r", "repo", "group0", Arrays.asList("B:h1", "A:h0"), GroupLabel.FIX),
+            new Group("r", "repo", "group1", Collections.singletonList("B:h0"), GroupLabel.FIX));
+    assertThat(PatchIndex.collectFileIDs(groups)).containsExactly("B", "A");
+  }
+
+  private static DiffFile createDiffFile(String name) {
+    String path = name + ".java";
+    DiffFile diffFile =
+        new DiffFile(
+            0,
+            FileStatus.MODIFIED,
+            FileType.JAVA,
+            StandardCharsets.UTF_8,
+            path,
+            path,
+            "",
+            "");
+    diffFile.setFileID(name);
+    diffFile.setRawHeaders(Collections.singletonList("diff --git a/" + path + " b/" + path));
+    for (int i = 0; i < 2; ++i) {
+      List<String> lines = Collections.singletonList(name + i);
+      DiffHunk diffHunk =
+          new DiffHunk(
+              i,
+              FileType.JAVA,
+              ChangeType.MODIFIED,
+              new Hunk(Version.BASE, path, i, i, ContentType.CODE, lines),
+              new Hunk(Version.CURRENT, path, i, i, ContentType.CODE, lines));
+      diffHunk.setFileID(name);
+      diffHunk.setDiffHunkID("h" + i);
+      diffHunk.setRawDiffs(Arrays.asList("-" + name + i, "+" + name + i));
+      diffFile.getDiffHunksMap().put("h" + i, diffHunk);
+    }
+    return diffFile;
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.io.ResultsBundle;
+import com.github.smartcommit.model.DiffFile;
+import com.github.smartcommit.model.DiffHunk;
+import com.github.smartcommit.model.Group;
+import com.github.smartcommit.model.Hunk;
+import com.github.smartcommit.model.constant.ChangeType;
+import com.github.smartcommit.model.constant.ContentType;
+import com.github.smartcommit.model.constant.FileStatus;
+import com.github.smartcommit.model.constant.FileType;
+import com.github.smartcommit.model.constant.GroupLabel;
+import com.github.smartcommit.model.constant.Version;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestResultsBundle {
+  @Test
+  public void testWriteAndRead(@TempDir Path dir) throws IOException {
+    DiffFile diffFile =
+        new DiffFile(
+            0,
+            FileStatus.MODIFIED,
+            FileType.JAVA,
+            StandardCharsets.UTF_8,
+            "A.java",
+            "A.java",
+            "class A {}",
+            "class A { int a; }");
+    diffFile.setFileID("f0");
+    diffFile.setRawHeaders(Arrays.asList("diff --git a/A.java b/A.java", "--- a/A.java"));
+    for (int i = 0; i < 2; ++i) {
+      DiffHunk diffHunk =
+          new DiffHunk(
+              i,
+              FileType.JAVA,
+              ChangeType.MODIFIED,
+              new Hunk(Version.BASE, "A.java", i, i, ContentType.CODE, Arrays.asList("class A {}")),
+              // non-ASCII chars should be kept
+              new Hunk(
+                  Version.CURRENT,
+                  "A.java",
+                  i,
+                  i,
+                  ContentType.CODE,
+                  Arrays.asList("class A { int \u00e4\u4e2d; }")));
+      diffHunk.setFileID("f0");
+      diffHunk.setDiffHunkID("h" + i);
+      diffHunk.setRawDiffs(Arrays.asList("-class A {}", "+class A { int \u00e4\u4e2d; }"));
+      diffFile.getDiffHunksMap().put("h" + i, diffHunk);
+    }
+    Map<String, Group> groups = new LinkedHashMap<>();
+    groups.put(
+        "group0",
+        new Group("r", "repo", "group0", Arrays.asList("f0:h0", "f0:h1"), GroupLabel.FEATURE));
+    String path = dir.resolve(ResultsBundle.FILE_NAME).toString();
+    ResultsBundle.write(groups, Collections.singletonList(diffFile), path);
+    // hunks are saved as separate records, not within the diff file
+    assertThat(diffFile.getDiffHunksMap()).hasSize(2);
+
+    try (ResultsBundle bundle = ResultsBundle.open(path)) {
+      assertThat(bundle.getGroupIDs()).containsExactly("group0");
+      assertThat(bundle.getFileIDs()).containsExactly("f0");
+      assertThat(bundle.getGroup("group0").getDiffHunkIDs()).containsExactly("f0:h0", "f0:h1");
+      assertThat(bundle.getGroup("group1")).isNull();
+
+      DiffHunk diffHunk = bundle.getDiffHunk("h1");
+      assertThat(diffHunk.getIndex()).isEqualTo(1);
+      assertThat(diffHunk.getCurrentHunk().getCodeSnippet())
+          .containsExactly("class A { int \u00e4\u4e2d; }");
+
+      DiffFile read = bundle.getDiffFile("f0");
+      assertThat(read.getCurrentRelativePath()).isEqualTo("A.java");
+      assertThat(read.getRawHeaders()).isEqualTo(diffFile.getRawHeaders());
+      assertThat(read.getDiffHunksMap()).containsOnlyKeys("h0", "h1");
+      assertThat(read.getDiffHunksMap().get("h0").getRawDiffs())
+          .isEqualTo(diffFile.getDiffHunksMap().get("h0").getRawDiffs());
+      assertThat(bundle.getDiffFile("f1")).isNull();
+    }
+  }
+}
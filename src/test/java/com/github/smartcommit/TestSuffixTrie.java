@@ -0,0 +1,35 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.util.SuffixTrie;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestSuffixTrie {
+  @Test
+  public void testFirstEndingWith() {
+    SuffixTrie<String> trie = new SuffixTrie<>();
+    trie.put("getName", "1");
+    trie.put("setName", "2");
+    trie.put("name", "3");
+    trie.put("getName", "4");
+    assertThat(trie.getFirstEndingWith("Name")).isEqualTo("1");
+    assertThat(trie.getFirstEndingWith("setName")).isEqualTo("2");
+    assertThat(trie.getFirstEndingWith("ame")).isEqualTo("1");
+    assertThat(trie.getFirstEndingWith("name")).isEqualTo("3");
+    assertThat(trie.getFirstEndingWith("")).isEqualTo("1");
+    assertThat(trie.getFirstEndingWith("xgetName")).isNull();
+  }
+
+  @Test
+  public void testFirstSuffixOf() {
+    SuffixTrie<String> trie = new SuffixTrie<>();
+    trie.put("src/main/A.java", "1");
+    trie.put("A.java", "2");
+    trie.put("main/B.java", "3");
+    assertThat(trie.getFirstSuffixOf("/tmp/current/src/main/A.java")).isEqualTo("1");
+    assertThat(trie.getFirstSuffixOf("/tmp/current/test/A.java")).isEqualTo("2");
+    assertThat(trie.getFirstSuffixOf("/tmp/current/src/main/B.java")).isEqualTo("3");
+    assertThat(trie.getFirstSuffixOf("/tmp/current/src/test/B.java")).isNull();
+  }
+}
@@ -0,0 +1,72 @@
+package com.github.smartcommit;
+
+import com.github.smartcommit.io.Workspace;
+import com.github.smartcommit.util.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestWorkspace {
+  @Test
+  public void testReuseUnchangedSources(@TempDir Path dir) throws IOException {
+    Workspace workspace = new Workspace(dir.toString(), Long.MAX_VALUE);
+    Path a = dir.resolve("current/a/A.java");
+    Path b = dir.resolve("current/b/B.java");
+    assertThat(workspace.write("class A {}", a.toString())).isTrue();
+    assertThat(workspace.write("class B {}", b.toString())).isTrue();
+    Object fileKey = Files.readAttributes(a, "fileKey").get("fileKey");
+
+    // the next run: A is not changed, B is changed, C is new
+    workspace = new Workspace(dir.toString(), Long.MAX_VALUE);
+    Path c = dir.resolve("current/c/C.java");
+    assertThat(workspace.write("class A {}", a.toString())).isTrue();
+    assertThat(workspace.write("class B { int b; }", b.toString())).isTrue();
+    assertThat(workspace.write("class C {}", c.toString())).isTrue();
+    assertThat(Files.readAttributes(a, "fileKey").get("fileKey")).isEqualTo(fileKey);
+    assertThat(new String(Files.readAllBytes(b), StandardCharsets.UTF_8))
+        .isEqualTo("class B { int b; }");
+    assertThat(countObjects(dir)).isEqualTo(4);
+
+    // the next run: only C is changed
+    Set<String> written = new HashSet<>(Collections.singletonList(c.toString()));
+    workspace.retainOnly(dir.resolve("current").toString(), written);
+    assertThat(c).exists();
+    assertThat(a).doesNotExist();
+    assertThat(dir.resolve("current/b")).doesNotExist();
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed(@TempDir Path dir) throws IOException {
+    Workspace workspace = new Workspace(dir.toString(), 25L);
+    for (int i = 0; i < 4; ++i) {
+      String content = "class A" + i + " {}";
+      workspace.write(content, dir.resolve("current/A" + i + ".java").toString());
+      String id = Utils.hashBlob(content.getBytes(StandardCharsets.UTF_8));
+      Path object =
+          dir.resolve(Workspace.OBJECTS_DIR).resolve(id.substring(0, 2)).resolve(id.substring(2));
+      Files.setLastModifiedTime(object, FileTime.fromMillis(1000L * (i + 1)));
+    }
+    // 11 bytes each, the 2 least recently used are evicted
+    assertThat(workspace.evict()).isEqualTo(2);
+    assertThat(countObjects(dir)).isEqualTo(2);
+    // files are not affected
+    assertThat(dir.resolve("current/A0.java")).hasContent("class A0 {}");
+  }
+
+  private static long countObjects(Path dir) throws IOException {
+    try (Stream<Path> walk = Files.walk(dir.resolve(Workspace.OBJECTS_DIR))) {
+      return walk.filter(Files::isRegularFile).count();
+    }
+  }
+}